@@ -0,0 +1,55 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Picks account ids either uniformly or following a Zipf distribution, where
+ * a handful of hot accounts receive most of the traffic.
+ */
+public class AccountKeys {
+
+	public static final String UNIFORM = "uniform";
+
+	public static final String ZIPF = "zipf";
+
+	private static final double ZIPF_EXPONENT = 1.1;
+
+	private final String[] accountIds;
+
+	private final double[] cumulativeProbabilities;
+
+	public AccountKeys(int accountCount, String distribution) {
+		this.accountIds = new String[accountCount];
+		for (int i = 0; i < accountCount; i++) {
+			this.accountIds[i] = "Id-" + i;
+		}
+
+		if (ZIPF.equals(distribution)) {
+			this.cumulativeProbabilities = new double[accountCount];
+			double sum = 0;
+			for (int i = 0; i < accountCount; i++) {
+				sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+				this.cumulativeProbabilities[i] = sum;
+			}
+			for (int i = 0; i < accountCount; i++) {
+				this.cumulativeProbabilities[i] /= sum;
+			}
+		} else {
+			this.cumulativeProbabilities = null;
+		}
+	}
+
+	public String[] all() {
+		return accountIds;
+	}
+
+	public String next(SplittableRandom random) {
+		if (cumulativeProbabilities == null) {
+			return accountIds[random.nextInt(accountIds.length)];
+		}
+
+		int index = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+		return accountIds[Math.min(index < 0 ? -index - 1 : index, accountIds.length - 1)];
+	}
+}
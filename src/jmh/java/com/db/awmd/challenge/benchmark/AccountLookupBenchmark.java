@@ -0,0 +1,100 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.exception.BusinessException;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.AccountsRepositoryOffHeap;
+import com.db.awmd.challenge.service.AccountIdFilter;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.engine.LockingTransferEngine;
+
+/**
+ * Scan-heavy traffic: {@code unknownRatio} of the looked up ids were never
+ * created. Compares account lookups and transfers from unknown accounts with
+ * and without the Bloom filter in front of the repository.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class AccountLookupBenchmark {
+
+	private static final int ACCOUNTS = 1_000_000;
+
+	private static final int IDS = 1 << 20;
+
+	@Param({ "false", "true" })
+	private boolean filtered;
+
+	@Param({ "memory", "offheap" })
+	private String repository;
+
+	@Param({ "0.9" })
+	private double unknownRatio;
+
+	private AccountsService accountsService;
+
+	private String[] ids;
+
+	private TransferMoney[] unknownTransfers;
+
+	@State(Scope.Thread)
+	public static class ThreadRandom {
+
+		private final SplittableRandom random = new SplittableRandom();
+	}
+
+	@Setup
+	public void prepareAccounts() {
+		AccountsRepository accountsRepository = "offheap".equals(repository)
+				? new AccountsRepositoryOffHeap() : new AccountsRepositoryInMemory();
+		AccountIdFilter accountIdFilter = filtered ? new AccountIdFilter(true, ACCOUNTS, 0.01) : AccountIdFilter.DISABLED;
+		this.accountsService = AccountsService.builder(accountsRepository, (account, description) -> { },
+				new LockingTransferEngine(accountsRepository))
+				.accountIdFilter(accountIdFilter)
+				.build();
+
+		for (int i = 0; i < ACCOUNTS; i++) {
+			accountsService.createAccount(new Account("Id-" + i, new BigDecimal("1000")));
+		}
+
+		SplittableRandom random = new SplittableRandom(42);
+		this.ids = new String[IDS];
+		this.unknownTransfers = new TransferMoney[IDS];
+		for (int i = 0; i < IDS; i++) {
+			ids[i] = random.nextDouble() < unknownRatio
+					? "Scan-" + random.nextInt(Integer.MAX_VALUE) : "Id-" + random.nextInt(ACCOUNTS);
+			unknownTransfers[i] = TransferMoney.builder().accountFrom("Closed-" + i).accountTo("Id-" + (i % ACCOUNTS))
+					.value(BigDecimal.ONE).build();
+		}
+	}
+
+	@Benchmark
+	public Account getAccount(ThreadRandom threadRandom) {
+		return accountsService.getAccount(ids[threadRandom.random.nextInt(IDS)]);
+	}
+
+	@Benchmark
+	public void transferFromUnknownAccount(ThreadRandom threadRandom, Blackhole blackhole) {
+		try {
+			accountsService.transferValuesAccount(unknownTransfers[threadRandom.random.nextInt(IDS)]);
+		} catch (BusinessException ex) {
+			blackhole.consume(ex);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.exception.NoFundException;
+import com.db.awmd.challenge.service.AccountsService;
+
+/**
+ * Baseline for the accounts service. Throughput mode gives operations per
+ * second and sample mode gives the latency percentiles; thread count is set
+ * with {@code gradle jmh -PjmhThreads=N}.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class AccountsServiceBenchmark {
+
+	private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000");
+
+	private static final BigDecimal TRANSFER_VALUE = BigDecimal.ONE;
+
+	@Param({ Engines.LOCKING, Engines.LOCKING_FIXED_POINT, Engines.OPTIMISTIC, Engines.PARTITIONED,
+			Engines.LOCKING_OFF_HEAP, Engines.SEQUENCED })
+	private String engine;
+
+	@Param({ "1000", "1000000" })
+	private int accountCount;
+
+	@Param({ AccountKeys.UNIFORM, AccountKeys.ZIPF })
+	private String distribution;
+
+	private AccountsService accountsService;
+
+	private AccountKeys accountKeys;
+
+	private final AtomicLong createdAccounts = new AtomicLong();
+
+	@State(Scope.Thread)
+	public static class ThreadRandom {
+
+		private final SplittableRandom random = new SplittableRandom();
+	}
+
+	@Setup(Level.Trial)
+	public void prepareAccounts() {
+		this.accountsService = Engines.accountsService(engine);
+		this.accountKeys = new AccountKeys(accountCount, distribution);
+
+		for (String accountId : accountKeys.all()) {
+			this.accountsService.createAccount(new Account(accountId, INITIAL_BALANCE));
+		}
+	}
+
+	@Benchmark
+	public void createAccount() {
+		this.accountsService.createAccount(new Account("New-" + createdAccounts.incrementAndGet(), INITIAL_BALANCE));
+	}
+
+	@Benchmark
+	public void getAccount(ThreadRandom threadRandom, Blackhole blackhole) {
+		blackhole.consume(this.accountsService.getAccount(accountKeys.next(threadRandom.random)));
+	}
+
+	@Benchmark
+	public void transferValuesAccount(ThreadRandom threadRandom) {
+		try {
+			this.accountsService.transferValuesAccount(
+					TransferMoney
+						.builder()
+						.accountFrom(accountKeys.next(threadRandom.random))
+						.accountTo(accountKeys.next(threadRandom.random))
+						.value(TRANSFER_VALUE)
+						.build());
+		} catch (NoFundException ex) {
+			// cannot happen with the initial balance, kept so a drained account does not abort the run
+		}
+	}
+}
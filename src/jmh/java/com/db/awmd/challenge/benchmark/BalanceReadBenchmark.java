@@ -0,0 +1,82 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountSnapshot;
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.exception.NoFundException;
+import com.db.awmd.challenge.service.AccountsService;
+
+/**
+ * Seqlock snapshot reads running next to a transfer writer on the same
+ * accounts, nine readers to one writer. Read throughput should grow with the
+ * reader count while the writer keeps its rate; scale the group with
+ * {@code gradle jmh -PjmhThreads=N} (a multiple of 10).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Group)
+public class BalanceReadBenchmark {
+
+	private static final int ACCOUNTS = 1000;
+
+	@Param({ Engines.LOCKING, Engines.LOCKING_FIXED_POINT })
+	private String engine;
+
+	private AccountsService accountsService;
+
+	private String[] accountIds;
+
+	@State(Scope.Thread)
+	public static class ThreadRandom {
+
+		private final SplittableRandom random = new SplittableRandom();
+	}
+
+	@Setup(Level.Trial)
+	public void prepareAccounts() {
+		this.accountsService = Engines.accountsService(engine);
+		this.accountIds = new String[ACCOUNTS];
+		for (int i = 0; i < ACCOUNTS; i++) {
+			accountIds[i] = "Id-" + i;
+			accountsService.createAccount(new Account(accountIds[i], new BigDecimal("1000000000")));
+		}
+	}
+
+	@Benchmark
+	@Group("readWhileTransferring")
+	@GroupThreads(9)
+	public AccountSnapshot read(ThreadRandom threadRandom) {
+		return accountsService.getAccountSnapshot(accountIds[threadRandom.random.nextInt(ACCOUNTS)]);
+	}
+
+	@Benchmark
+	@Group("readWhileTransferring")
+	@GroupThreads(1)
+	public void transfer(ThreadRandom threadRandom) {
+		try {
+			accountsService.transferValuesAccount(TransferMoney.builder()
+					.accountFrom(accountIds[threadRandom.random.nextInt(ACCOUNTS)])
+					.accountTo(accountIds[threadRandom.random.nextInt(ACCOUNTS)])
+					.value(BigDecimal.ONE)
+					.build());
+		} catch (NoFundException ex) {
+			// cannot happen with the initial balance
+		}
+	}
+}
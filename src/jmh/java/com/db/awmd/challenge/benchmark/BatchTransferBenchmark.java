@@ -0,0 +1,80 @@
+package com.db.awmd.challenge.benchmark;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.IdempotencyCache;
+import com.db.awmd.challenge.service.limit.TransferAdmission;
+import com.db.awmd.challenge.web.AccountsController;
+
+/**
+ * Compares N single calls to /transference against one call to
+ * /transference/batch carrying the same N transfers. Both report transfers
+ * per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class BatchTransferBenchmark {
+
+	private static final int ACCOUNTS = 100;
+
+	private static final int TRANSFERS = 5_000;
+
+	private MockMvc mockMvc;
+
+	private String[] singleRequests;
+
+	private String batchRequest;
+
+	@Setup
+	public void prepareRequests() {
+		AccountsService accountsService = Engines.accountsService(Engines.LOCKING);
+		for (int i = 0; i < ACCOUNTS; i++) {
+			accountsService.createAccount(new Account("Id-" + i, new BigDecimal("1000000000")));
+		}
+
+		this.mockMvc = standaloneSetup(new AccountsController(accountsService, new IdempotencyCache(10_000, 60_000),
+				TransferAdmission.DISABLED)).build();
+
+		this.singleRequests = new String[TRANSFERS];
+		StringBuilder batch = new StringBuilder("{\"mode\":\"BEST_EFFORT\",\"transfers\":[");
+		for (int i = 0; i < TRANSFERS; i++) {
+			singleRequests[i] = "{\"accountFrom\":\"Id-" + (i % ACCOUNTS) + "\",\"accountTo\":\"Id-"
+					+ ((i + 1) % ACCOUNTS) + "\",\"value\":1}";
+			batch.append(i == 0 ? "" : ",").append(singleRequests[i]);
+		}
+		this.batchRequest = batch.append("]}").toString();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TRANSFERS)
+	public void singleCalls() throws Exception {
+		for (String request : singleRequests) {
+			mockMvc.perform(post("/v1/accounts/transference").contentType(MediaType.APPLICATION_JSON).content(request));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TRANSFERS)
+	public void batchCall() throws Exception {
+		mockMvc.perform(post("/v1/accounts/transference/batch").contentType(MediaType.APPLICATION_JSON)
+				.content(batchRequest));
+	}
+}
@@ -0,0 +1,159 @@
+package com.db.awmd.challenge.benchmark;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.RestResponseEntityExceptionHandler;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.IdempotencyCache;
+import com.db.awmd.challenge.service.limit.TransferAdmission;
+import com.db.awmd.challenge.web.AccountsController;
+import com.db.awmd.challenge.wire.BinaryProtocol;
+import com.db.awmd.challenge.wire.BinaryTransferHandler;
+import com.db.awmd.challenge.wire.BinaryTransferServer;
+
+/**
+ * Cost of one transfer through each protocol in front of the same service.
+ * restTransfer posts the JSON body through the controller (Jackson binding,
+ * validation and the error handler, without Tomcat's HTTP parsing) and
+ * binaryTransfer hands the same transfer, encoded, to the binary handler;
+ * both run on the benchmark thread, so with one thread the time per
+ * operation is the CPU per transfer. binaryTransferOverTcp pipelines
+ * {@value #PIPELINE} transfers per round trip over a loopback connection to
+ * the binary server. Add -PjmhGc for the bytes allocated per transfer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class BinaryProtocolBenchmark {
+
+	private static final int ACCOUNTS = 1024;
+
+	private static final int PIPELINE = 100;
+
+	private static final BigDecimal VALUE = new BigDecimal("1.25");
+
+	private AccountsService accountsService;
+
+	private MockMvc mockMvc;
+
+	private BinaryTransferServer server;
+
+	private String[] jsonRequests;
+
+	@State(Scope.Thread)
+	public static class ThreadBuffers {
+
+		private final ByteBuffer out = ByteBuffer.allocateDirect(BinaryProtocol.MAX_RESPONSE_BYTES * PIPELINE);
+
+		private final ByteBuffer[] requests = new ByteBuffer[ACCOUNTS];
+
+		private BinaryTransferHandler handler;
+
+		private SocketChannel client;
+
+		private ByteBuffer pipeline;
+
+		private int next;
+
+		@Setup
+		public void connect(BinaryProtocolBenchmark benchmark) throws IOException {
+			this.handler = new BinaryTransferHandler(benchmark.accountsService, TransferAdmission.DISABLED);
+			for (int i = 0; i < ACCOUNTS; i++) {
+				requests[i] = ByteBuffer.allocateDirect(BinaryProtocol.MAX_FRAME_BYTES);
+				BinaryProtocol.putTransfer(requests[i], i, "Id-" + i, "Id-" + ((i + 1) % ACCOUNTS), VALUE);
+				requests[i].flip();
+			}
+			this.client = SocketChannel.open(new InetSocketAddress("localhost", benchmark.server.getPort()));
+			this.client.socket().setTcpNoDelay(true);
+
+			this.pipeline = ByteBuffer.allocateDirect(BinaryProtocol.MAX_FRAME_BYTES * PIPELINE);
+			for (int i = 0; i < PIPELINE; i++) {
+				BinaryProtocol.putTransfer(pipeline, i, "Id-" + (i % ACCOUNTS), "Id-" + ((i + 1) % ACCOUNTS), VALUE);
+			}
+			pipeline.flip();
+		}
+
+		@TearDown
+		public void disconnect() throws IOException {
+			client.close();
+		}
+	}
+
+	@Setup
+	public void prepareAccounts() throws IOException {
+		this.accountsService = Engines.accountsService(Engines.LOCKING);
+		this.jsonRequests = new String[ACCOUNTS];
+		for (int i = 0; i < ACCOUNTS; i++) {
+			accountsService.createAccount(new Account("Id-" + i, new BigDecimal("1000000000000")));
+		}
+		for (int i = 0; i < ACCOUNTS; i++) {
+			jsonRequests[i] = "{\"accountFrom\":\"Id-" + i + "\",\"accountTo\":\"Id-" + ((i + 1) % ACCOUNTS)
+					+ "\",\"value\":" + VALUE + "}";
+		}
+
+		this.mockMvc = standaloneSetup(new AccountsController(accountsService, new IdempotencyCache(10_000, 60_000),
+				TransferAdmission.DISABLED))
+				.setControllerAdvice(new RestResponseEntityExceptionHandler())
+				.build();
+		this.server = new BinaryTransferServer(accountsService, TransferAdmission.DISABLED, 0, 1);
+	}
+
+	@TearDown
+	public void stopServer() throws IOException {
+		server.shutdown();
+	}
+
+	@Benchmark
+	public Object restTransfer(ThreadBuffers buffers) throws Exception {
+		int i = buffers.next++ & (ACCOUNTS - 1);
+		return mockMvc.perform(post("/v1/accounts/transference").contentType(MediaType.APPLICATION_JSON)
+				.content(jsonRequests[i])).andReturn();
+	}
+
+	@Benchmark
+	public byte binaryTransfer(ThreadBuffers buffers) throws IOException {
+		ByteBuffer request = buffers.requests[buffers.next++ & (ACCOUNTS - 1)];
+		request.rewind();
+		buffers.out.clear();
+		buffers.handler.handle(request, buffers.out);
+		return buffers.out.get(BinaryProtocol.HEADER_BYTES);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PIPELINE)
+	public void binaryTransferOverTcp(ThreadBuffers buffers) throws IOException {
+		buffers.pipeline.rewind();
+		while (buffers.pipeline.hasRemaining()) {
+			buffers.client.write(buffers.pipeline);
+		}
+
+		int expected = PIPELINE * (BinaryProtocol.HEADER_BYTES + 1);
+		buffers.out.clear().limit(expected);
+		while (buffers.out.hasRemaining()) {
+			if (buffers.client.read(buffers.out) < 0) {
+				throw new IOException("The binary server closed the connection");
+			}
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.AccountsRepositoryOffHeap;
+import com.db.awmd.challenge.repository.AccountsRepositoryOptimistic;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.engine.LockingTransferEngine;
+import com.db.awmd.challenge.service.engine.OptimisticTransferEngine;
+import com.db.awmd.challenge.service.engine.PartitionedTransferEngine;
+import com.db.awmd.challenge.service.engine.SequencedTransferEngine;
+
+/**
+ * Wires an {@link AccountsService} for a given accounts.engine value without
+ * starting Spring, with notifications discarded so only the transfer path is
+ * measured.
+ */
+public final class Engines {
+
+	public static final String LOCKING = "locking";
+
+	public static final String LOCKING_FIXED_POINT = "locking-fixed-point";
+
+	public static final String OPTIMISTIC = "optimistic";
+
+	public static final String PARTITIONED = "partitioned";
+
+	public static final String LOCKING_OFF_HEAP = "locking-off-heap";
+
+	public static final String SEQUENCED = "sequenced";
+
+	private Engines() {
+	}
+
+	public static AccountsService accountsService(String engine) {
+		switch (engine) {
+		case LOCKING:
+			AccountsRepository inMemory = new AccountsRepositoryInMemory();
+			return AccountsService.builder(inMemory, (account, description) -> { }, new LockingTransferEngine(inMemory))
+					.build();
+		case LOCKING_FIXED_POINT:
+			AccountsRepository fixedPoint = new AccountsRepositoryInMemory();
+			return AccountsService.builder(fixedPoint, (account, description) -> { },
+					new LockingTransferEngine(fixedPoint))
+					.fixedPointMoney(true)
+					.build();
+		case OPTIMISTIC:
+			AccountsRepositoryOptimistic optimistic = new AccountsRepositoryOptimistic();
+			return AccountsService.builder(optimistic, (account, description) -> { },
+					new OptimisticTransferEngine(optimistic)).build();
+		case LOCKING_OFF_HEAP:
+			AccountsRepository offHeap = new AccountsRepositoryOffHeap();
+			return AccountsService.builder(offHeap, (account, description) -> { }, new LockingTransferEngine(offHeap))
+					.build();
+		case PARTITIONED:
+			AccountsRepository partitioned = new AccountsRepositoryInMemory();
+			return AccountsService.builder(partitioned, (account, description) -> { },
+					new PartitionedTransferEngine(partitioned, 0)).build();
+		case SEQUENCED:
+			AccountsRepository sequenced = new AccountsRepositoryInMemory();
+			return AccountsService.builder(sequenced, (account, description) -> { },
+					new SequencedTransferEngine(sequenced, (account, description) -> { }, 65536))
+					.fixedPointMoney(true)
+					.build();
+		default:
+			throw new IllegalArgumentException("Unknown engine " + engine);
+		}
+	}
+}
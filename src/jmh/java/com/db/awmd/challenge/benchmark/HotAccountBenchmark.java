@@ -0,0 +1,81 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.AccountStriping;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.engine.LockingTransferEngine;
+
+/**
+ * Every thread credits the same hot account from its own source account, so
+ * the only shared state is the hot account. Run it with increasing
+ * {@code -PjmhThreads}: credits into a plain account flatten out at its
+ * stripe lock, while credits into a striped one keep scaling with cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class HotAccountBenchmark {
+
+	private static final String HOT_ACCOUNT = "Hot";
+
+	private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000");
+
+	@Param({ "false", "true" })
+	private boolean striped;
+
+	@Param({ "0" })
+	private int cells;
+
+	private AccountsService accountsService;
+
+	private final AtomicInteger sources = new AtomicInteger();
+
+	@State(Scope.Thread)
+	public static class Source {
+
+		private TransferMoney credit;
+
+		@Setup
+		public void createSource(HotAccountBenchmark benchmark) {
+			String accountId = "Source-" + benchmark.sources.incrementAndGet();
+			benchmark.accountsService.createAccount(new Account(accountId, INITIAL_BALANCE));
+			this.credit = TransferMoney.builder().accountFrom(accountId).accountTo(HOT_ACCOUNT).value(BigDecimal.ONE).build();
+		}
+	}
+
+	@Setup
+	public void prepareService() {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		AccountStriping accountStriping = striped
+				? new AccountStriping(Collections.singleton(HOT_ACCOUNT), cells) : AccountStriping.DISABLED;
+
+		this.accountsService = AccountsService.builder(accountsRepository, (account, description) -> { },
+				new LockingTransferEngine(accountsRepository))
+				.fixedPointMoney(true)
+				.accountStriping(accountStriping)
+				.build();
+		this.accountsService.createAccount(new Account(HOT_ACCOUNT, BigDecimal.ZERO));
+	}
+
+	@Benchmark
+	public void creditHotAccount(Source source) {
+		this.accountsService.transferValuesAccount(source.credit);
+	}
+}
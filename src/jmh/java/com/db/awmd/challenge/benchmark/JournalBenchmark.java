@@ -0,0 +1,91 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.repository.AccountLocks;
+import com.db.awmd.challenge.repository.AccountsRepositoryJournaled;
+import com.db.awmd.challenge.repository.journal.FsyncPolicy;
+import com.db.awmd.challenge.repository.journal.Journal;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.engine.LockingTransferEngine;
+
+/**
+ * Transfer throughput and latency through the journaled repository for each
+ * fsync policy.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+
+	private static final int ACCOUNTS = 10_000;
+
+	@Param({ "PER_WRITE", "GROUP_COMMIT", "NONE" })
+	private FsyncPolicy fsync;
+
+	private Path directory;
+
+	private AccountsRepositoryJournaled accountsRepository;
+
+	private AccountsService accountsService;
+
+	private AccountKeys accountKeys;
+
+	@State(Scope.Thread)
+	public static class ThreadRandom {
+
+		private final SplittableRandom random = new SplittableRandom();
+	}
+
+	@Setup
+	public void openJournal() throws Exception {
+		this.directory = Files.createTempDirectory("journal-benchmark");
+		AccountLocks accountLocks = new AccountLocks();
+		this.accountsRepository = new AccountsRepositoryJournaled(
+				new Journal(directory, 64 * 1024 * 1024, fsync, 5), accountLocks);
+		this.accountsService = AccountsService.builder(accountsRepository, (account, description) -> { },
+				new LockingTransferEngine(accountsRepository, accountLocks)).build();
+		this.accountKeys = new AccountKeys(ACCOUNTS, AccountKeys.UNIFORM);
+
+		for (String accountId : accountKeys.all()) {
+			this.accountsService.createAccount(new Account(accountId, new BigDecimal("1000000000")));
+		}
+	}
+
+	@TearDown
+	public void closeJournal() throws Exception {
+		this.accountsRepository.close();
+		try (Stream<Path> files = Files.list(directory)) {
+			files.forEach(file -> file.toFile().delete());
+		}
+		Files.delete(directory);
+	}
+
+	@Benchmark
+	public void transferValuesAccount(ThreadRandom threadRandom) {
+		this.accountsService.transferValuesAccount(
+				TransferMoney
+					.builder()
+					.accountFrom(accountKeys.next(threadRandom.random))
+					.accountTo(accountKeys.next(threadRandom.random))
+					.value(BigDecimal.ONE)
+					.build());
+	}
+}
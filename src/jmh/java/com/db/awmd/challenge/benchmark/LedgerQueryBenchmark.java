@@ -0,0 +1,116 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.domain.TransferRecord;
+import com.db.awmd.challenge.service.ledger.TransferLedger;
+
+/**
+ * Per-account history queries against a ledger of entryCount transfers spread
+ * over accountCount accounts, most of it spilled to a temporary directory.
+ * Loading a hundred million entries takes a few minutes and several
+ * gigabytes of disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class LedgerQueryBenchmark {
+
+	private static final int TRANSFER_POOL = 1 << 20;
+
+	@Param({ "1000000", "100000000" })
+	private long entryCount;
+
+	@Param({ "100000" })
+	private int accountCount;
+
+	@Param({ "100" })
+	private int limit;
+
+	private Path directory;
+
+	private TransferLedger ledger;
+
+	private String[] accountIds;
+
+	private long firstMillis;
+
+	private long lastMillis;
+
+	@Setup
+	public void loadLedger() throws Exception {
+		this.directory = Files.createTempDirectory("ledger-benchmark");
+		this.ledger = new TransferLedger(directory, 1 << 20, 8);
+		this.ledger.start();
+
+		this.accountIds = new AccountKeys(accountCount, AccountKeys.UNIFORM).all();
+
+		TransferMoney[] transfers = new TransferMoney[TRANSFER_POOL];
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < transfers.length; i++) {
+			transfers[i] = TransferMoney.builder()
+					.accountFrom(accountIds[random.nextInt(accountCount)])
+					.accountTo(accountIds[random.nextInt(accountCount)])
+					.value(new BigDecimal("1.00"))
+					.build();
+		}
+
+		this.firstMillis = System.currentTimeMillis();
+		for (long i = 0; i < entryCount; i++) {
+			ledger.record(transfers[(int) (i % TRANSFER_POOL)]);
+			if (i % TRANSFER_POOL == TRANSFER_POOL - 1) {
+				ledger.flush();
+			}
+		}
+		ledger.flush();
+		this.lastMillis = System.currentTimeMillis();
+	}
+
+	@TearDown
+	public void deleteLedger() throws Exception {
+		ledger.stop();
+		try (Stream<Path> files = Files.list(directory)) {
+			files.forEach(file -> file.toFile().delete());
+		}
+		Files.delete(directory);
+	}
+
+	@Benchmark
+	public List<TransferRecord> oldest() {
+		return ledger.history(randomAccount(), null, null, limit);
+	}
+
+	@Benchmark
+	public List<TransferRecord> fromRandomTime() {
+		long from = ThreadLocalRandom.current().nextLong(firstMillis, lastMillis + 1);
+		return ledger.history(randomAccount(), Instant.ofEpochMilli(from), null, limit);
+	}
+
+	private String randomAccount() {
+		return accountIds[ThreadLocalRandom.current().nextInt(accountCount)];
+	}
+}
@@ -0,0 +1,79 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.metrics.MeterRegistry;
+import com.db.awmd.challenge.repository.AccountLocks;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.engine.LockingTransferEngine;
+
+/**
+ * Transfer throughput on the locking engine with the meters enabled and
+ * disabled. The relative difference between the two runs is the
+ * instrumentation overhead.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+
+	private static final int ACCOUNTS = 1000;
+
+	private static final BigDecimal TRANSFER_VALUE = BigDecimal.ONE;
+
+	@Param({ "true", "false" })
+	private boolean metricsEnabled;
+
+	private AccountsService accountsService;
+
+	private String[] accountIds;
+
+	@State(Scope.Thread)
+	public static class ThreadRandom {
+
+		private final SplittableRandom random = new SplittableRandom();
+	}
+
+	@Setup(Level.Trial)
+	public void prepareAccounts() {
+		MeterRegistry meterRegistry = new MeterRegistry(metricsEnabled);
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		this.accountsService = AccountsService.builder(accountsRepository, (account, description) -> { },
+				new LockingTransferEngine(accountsRepository, new AccountLocks(), meterRegistry))
+				.meterRegistry(meterRegistry)
+				.build();
+
+		this.accountIds = new String[ACCOUNTS];
+		for (int i = 0; i < ACCOUNTS; i++) {
+			accountIds[i] = "Id-" + i;
+			accountsService.createAccount(new Account(accountIds[i], new BigDecimal("1000000000")));
+		}
+	}
+
+	@Benchmark
+	public void transferValuesAccount(ThreadRandom threadRandom) {
+		this.accountsService.transferValuesAccount(
+				TransferMoney
+					.builder()
+					.accountFrom(accountIds[threadRandom.random.nextInt(ACCOUNTS)])
+					.accountTo(accountIds[threadRandom.random.nextInt(ACCOUNTS)])
+					.value(TRANSFER_VALUE)
+					.build());
+	}
+}
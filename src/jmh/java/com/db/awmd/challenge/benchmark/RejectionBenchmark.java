@@ -0,0 +1,101 @@
+package com.db.awmd.challenge.benchmark;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.exception.BusinessException;
+import com.db.awmd.challenge.exception.RestResponseEntityExceptionHandler;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.IdempotencyCache;
+import com.db.awmd.challenge.service.limit.TransferAdmission;
+import com.db.awmd.challenge.web.AccountsController;
+
+/**
+ * Throughput of rejected transfers, the load of a fraud burst. rejectInService
+ * is the service call alone and rejectOverRest adds the exception handler and
+ * the error body; legacyRejection rebuilds what a rejection used to cost
+ * before business exceptions became stackless, for comparison: a formatted
+ * message, a stack trace captured a few frames deep and a map-based body.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class RejectionBenchmark {
+
+	private static final String NO_FUNDS_REQUEST = "{\"accountFrom\":\"Poor\",\"accountTo\":\"Rich\",\"value\":10}";
+
+	private AccountsService accountsService;
+
+	private MockMvc mockMvc;
+
+	private TransferMoney noFundsTransfer;
+
+	@Setup
+	public void prepareAccounts() {
+		this.accountsService = Engines.accountsService(Engines.LOCKING);
+		this.accountsService.createAccount(new Account("Poor", BigDecimal.ONE));
+		this.accountsService.createAccount(new Account("Rich", new BigDecimal("1000000")));
+
+		this.noFundsTransfer = TransferMoney.builder().accountFrom("Poor").accountTo("Rich").value(BigDecimal.TEN).build();
+		this.mockMvc = standaloneSetup(new AccountsController(accountsService, new IdempotencyCache(10_000, 60_000),
+				TransferAdmission.DISABLED))
+				.setControllerAdvice(new RestResponseEntityExceptionHandler())
+				.build();
+	}
+
+	@Benchmark
+	public void rejectInService(Blackhole blackhole) {
+		try {
+			accountsService.transferValuesAccount(noFundsTransfer);
+		} catch (BusinessException ex) {
+			blackhole.consume(ex);
+		}
+	}
+
+	@Benchmark
+	public Object rejectOverRest() throws Exception {
+		return mockMvc.perform(post("/v1/accounts/transference").contentType(MediaType.APPLICATION_JSON)
+				.content(NO_FUNDS_REQUEST)).andReturn();
+	}
+
+	@Benchmark
+	public Object legacyRejection() {
+		try {
+			throwWithStackTrace(8);
+			return null;
+		} catch (RuntimeException ex) {
+			Map<String, Object> body = new LinkedHashMap<>();
+			body.put("timestamp", LocalDateTime.now().toString());
+			body.put("error", ex.getMessage());
+			return body;
+		}
+	}
+
+	private static void throwWithStackTrace(int depth) {
+		if (depth > 0) {
+			throwWithStackTrace(depth - 1);
+			return;
+		}
+		throw new RuntimeException(String.format(
+				"The account %s has insufficient funds. The operation will not be performed.", "Poor"));
+	}
+}
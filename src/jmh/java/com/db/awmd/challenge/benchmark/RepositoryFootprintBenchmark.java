@@ -0,0 +1,106 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.AccountsRepositoryOffHeap;
+
+/**
+ * Loads the repository with accountCount accounts and reports the heap and
+ * direct memory retained per account as the heapBytesPerAccount and
+ * directBytesPerAccount secondary results. GC pauses under load come from
+ * AccountsServiceBenchmark with -PjmhGc, comparing the locking and
+ * locking-off-heap engines.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Thread)
+public class RepositoryFootprintBenchmark {
+
+	@Param({ "memory", "offheap" })
+	private String repository;
+
+	@Param({ "10000000" })
+	private int accountCount;
+
+	private AccountsRepository accountsRepository;
+
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Footprint {
+
+		public long heapBytesPerAccount;
+
+		public long directBytesPerAccount;
+
+		private long heapBefore;
+
+		private long directBefore;
+
+		@Setup(Level.Iteration)
+		public void measureBefore() {
+			System.gc();
+			heapBefore = usedHeap();
+			directBefore = usedDirect();
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void prepareRepository() {
+		this.accountsRepository = "offheap".equals(repository)
+				? new AccountsRepositoryOffHeap() : new AccountsRepositoryInMemory();
+	}
+
+	@Benchmark
+	public AccountsRepository load(Footprint footprint) {
+		for (int i = 0; i < accountCount; i++) {
+			accountsRepository.createAccount(new Account("Id-" + i, new BigDecimal("1000.00")));
+		}
+
+		System.gc();
+		footprint.heapBytesPerAccount = (usedHeap() - footprint.heapBefore) / accountCount;
+		footprint.directBytesPerAccount = (usedDirect() - footprint.directBefore) / accountCount;
+		return accountsRepository;
+	}
+
+	@TearDown(Level.Iteration)
+	public void releaseRepository() {
+		this.accountsRepository = null;
+	}
+
+	private static long usedHeap() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	private static long usedDirect() {
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			if ("direct".equals(pool.getName())) {
+				return pool.getMemoryUsed();
+			}
+		}
+		return 0;
+	}
+}
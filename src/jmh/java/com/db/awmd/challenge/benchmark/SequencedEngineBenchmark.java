@@ -0,0 +1,97 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.FixedPointAccount;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.engine.SequencedTransferEngine;
+
+/**
+ * Drives the sequenced engine directly, without the REST layer.
+ * {@code sustainedThroughput} keeps {@value #PIPELINE} transfers in flight
+ * per thread and reports transfers per second; {@code blockingLatency} waits
+ * for every transfer and reports the latency percentiles of a single caller
+ * round trip. Run with {@code -PjmhInclude=SequencedEngineBenchmark} and
+ * several {@code -PjmhThreads} to see where the business logic thread
+ * saturates.
+ */
+@State(Scope.Benchmark)
+public class SequencedEngineBenchmark {
+
+	private static final int PIPELINE = 1_000;
+
+	private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000000");
+
+	private static final BigDecimal TRANSFER_VALUE = BigDecimal.ONE;
+
+	@Param({ "10000" })
+	private int accountCount;
+
+	@Param({ "65536" })
+	private int ringSize;
+
+	private SequencedTransferEngine engine;
+
+	private Account[] accounts;
+
+	@State(Scope.Thread)
+	public static class ThreadRandom {
+
+		private final SplittableRandom random = new SplittableRandom();
+	}
+
+	@Setup
+	public void prepareEngine() {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		this.accounts = new Account[accountCount];
+		for (int i = 0; i < accountCount; i++) {
+			accounts[i] = new FixedPointAccount("Id-" + i, INITIAL_BALANCE);
+			accountsRepository.createAccount(accounts[i]);
+		}
+		this.engine = new SequencedTransferEngine(accountsRepository, (account, description) -> { }, ringSize);
+	}
+
+	@TearDown
+	public void stopEngine() {
+		this.engine.shutdown();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(PIPELINE)
+	public void sustainedThroughput(ThreadRandom threadRandom) {
+		CompletableFuture<Void> last = null;
+		for (int i = 0; i < PIPELINE; i++) {
+			last = engine.transferAsync(next(threadRandom), next(threadRandom), TRANSFER_VALUE);
+		}
+		last.join();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void blockingLatency(ThreadRandom threadRandom) {
+		engine.transfer(next(threadRandom), next(threadRandom), TRANSFER_VALUE);
+	}
+
+	private Account next(ThreadRandom threadRandom) {
+		return accounts[threadRandom.random.nextInt(accounts.length)];
+	}
+}
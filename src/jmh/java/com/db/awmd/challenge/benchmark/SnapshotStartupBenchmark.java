@@ -0,0 +1,77 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountLocks;
+import com.db.awmd.challenge.repository.AccountsRepositoryJournaled;
+import com.db.awmd.challenge.repository.journal.FsyncPolicy;
+import com.db.awmd.challenge.repository.journal.Journal;
+
+/**
+ * Time for a journaled repository to become ready from a snapshot, which is
+ * the startup cost of the service. Needs a heap large enough for the accounts,
+ * e.g. -Xmx8g for ten million.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class SnapshotStartupBenchmark {
+
+	@Param({ "1000000", "10000000" })
+	private int accountCount;
+
+	private Path directory;
+
+	@Setup
+	public void writeSnapshot() throws Exception {
+		this.directory = Files.createTempDirectory("snapshot-benchmark");
+
+		AccountsRepositoryJournaled accountsRepository = openRepository();
+		for (int i = 0; i < accountCount; i++) {
+			accountsRepository.createAccount(new Account("Id-" + i, new BigDecimal("1000.00")));
+		}
+		accountsRepository.snapshot();
+		accountsRepository.close();
+	}
+
+	@TearDown
+	public void deleteSnapshot() throws Exception {
+		try (Stream<Path> files = Files.list(directory)) {
+			files.forEach(file -> file.toFile().delete());
+		}
+		Files.delete(directory);
+	}
+
+	@Benchmark
+	public AccountsRepositoryJournaled startup() throws Exception {
+		AccountsRepositoryJournaled accountsRepository = openRepository();
+		accountsRepository.close();
+		return accountsRepository;
+	}
+
+	private AccountsRepositoryJournaled openRepository() throws Exception {
+		return new AccountsRepositoryJournaled(
+				new Journal(directory, 64 * 1024 * 1024, FsyncPolicy.NONE, 0), new AccountLocks());
+	}
+}
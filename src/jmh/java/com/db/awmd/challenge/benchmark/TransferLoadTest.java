@@ -0,0 +1,251 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Closed-loop load generator for a running server: every client keeps one
+ * transfer in flight on its own keep-alive connection and sends the next one
+ * as soon as the response arrives. All clients share one selector thread, so
+ * 10k clients need 10k sockets but not 10k threads. Prints throughput, the
+ * latency percentiles and the goodput when done: accepted transfers answered
+ * within the deadline, which is what clients with that timeout actually get.
+ * 429 responses count as shed load, not as errors.
+ *
+ * Arguments: host port clients seconds path deadlineMs, e.g.
+ * {@code gradle loadTest -PloadClients=10000 -PloadPath=/v1/accounts/transference/async}
+ */
+public final class TransferLoadTest {
+
+	private static final int ACCOUNTS = 1000;
+
+	private final InetSocketAddress address;
+
+	private final String host;
+
+	private final String path;
+
+	private final Histogram latency = new Histogram(TimeUnit.MINUTES.toNanos(1), 3);
+
+	private final long deadlineNanos;
+
+	private long good;
+
+	private long shed;
+
+	private long errors;
+
+	private long reconnects;
+
+	private TransferLoadTest(String host, int port, String path, long deadlineMillis) {
+		this.address = new InetSocketAddress(host, port);
+		this.host = host;
+		this.path = path;
+		this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+	}
+
+	public static void main(String[] args) throws Exception {
+		String host = args.length > 0 ? args[0] : "localhost";
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : 18080;
+		int clients = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+		int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 60;
+		String path = args.length > 4 ? args[4] : "/v1/accounts/transference/async";
+		long deadlineMillis = args.length > 5 ? Long.parseLong(args[5]) : 1000;
+
+		TransferLoadTest loadTest = new TransferLoadTest(host, port, path, deadlineMillis);
+		loadTest.createAccounts();
+		loadTest.run(clients, TimeUnit.SECONDS.toNanos(seconds));
+		loadTest.report(clients, seconds);
+	}
+
+	private void createAccounts() throws IOException {
+		for (int i = 0; i < ACCOUNTS; i++) {
+			HttpURLConnection connection = (HttpURLConnection) new URL("http", host, address.getPort(), "/v1/accounts")
+					.openConnection();
+			connection.setRequestMethod("POST");
+			connection.setRequestProperty("Content-Type", "application/json");
+			connection.setDoOutput(true);
+			try (OutputStream body = connection.getOutputStream()) {
+				body.write(("{\"accountId\":\"Load-" + i + "\",\"balance\":1000000000}").getBytes(StandardCharsets.UTF_8));
+			}
+			// 201, or 400 when the account is left over from an earlier run
+			connection.getResponseCode();
+			connection.disconnect();
+		}
+	}
+
+	private void run(int clients, long durationNanos) throws IOException {
+		try (Selector selector = Selector.open()) {
+			for (int i = 0; i < clients; i++) {
+				connect(selector, new Client());
+			}
+
+			long deadline = System.nanoTime() + durationNanos;
+			while (System.nanoTime() < deadline) {
+				selector.select(100);
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					handle(selector, key);
+				}
+			}
+
+			for (SelectionKey key : selector.keys()) {
+				key.channel().close();
+			}
+		}
+	}
+
+	private void handle(Selector selector, SelectionKey key) {
+		SocketChannel channel = (SocketChannel) key.channel();
+		Client client = (Client) key.attachment();
+		try {
+			if (key.isConnectable()) {
+				channel.finishConnect();
+				send(key, client);
+			} else if (key.isWritable()) {
+				write(key, client);
+			} else if (key.isReadable()) {
+				if (channel.read(client.response) < 0) {
+					reconnect(selector, key, client);
+					return;
+				}
+				Response response = Response.parse(client.response);
+				if (response != null) {
+					long elapsed = System.nanoTime() - client.sentAt;
+					latency.recordValue(elapsed);
+					if (response.status == 202) {
+						if (elapsed <= deadlineNanos) {
+							good++;
+						}
+					} else if (response.status == 429) {
+						shed++;
+					} else {
+						errors++;
+					}
+					if (response.close) {
+						reconnect(selector, key, client);
+					} else {
+						send(key, client);
+					}
+				}
+			}
+		} catch (IOException ex) {
+			errors++;
+			reconnect(selector, key, client);
+		}
+	}
+
+	private void send(SelectionKey key, Client client) throws IOException {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		String body = "{\"accountFrom\":\"Load-" + random.nextInt(ACCOUNTS) + "\",\"accountTo\":\"Load-"
+				+ random.nextInt(ACCOUNTS) + "\",\"value\":1}";
+		String request = "POST " + path + " HTTP/1.1\r\nHost: " + host + "\r\nContent-Type: application/json\r\n"
+				+ "Content-Length: " + body.length() + "\r\n\r\n" + body;
+
+		client.request = ByteBuffer.wrap(request.getBytes(StandardCharsets.US_ASCII));
+		client.response.clear();
+		client.sentAt = System.nanoTime();
+		write(key, client);
+	}
+
+	private void write(SelectionKey key, Client client) throws IOException {
+		((SocketChannel) key.channel()).write(client.request);
+		key.interestOps(client.request.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+	}
+
+	private void connect(Selector selector, Client client) throws IOException {
+		SocketChannel channel = SocketChannel.open();
+		channel.configureBlocking(false);
+		channel.connect(address);
+		channel.register(selector, SelectionKey.OP_CONNECT, client);
+	}
+
+	private void reconnect(Selector selector, SelectionKey key, Client client) {
+		reconnects++;
+		try {
+			key.channel().close();
+			connect(selector, client);
+		} catch (IOException ex) {
+			errors++;
+		}
+	}
+
+	private void report(int clients, int seconds) {
+		System.out.printf(Locale.ROOT, "clients=%d requests=%d shed=%d errors=%d reconnects=%d throughput=%.0f/s%n",
+				clients, latency.getTotalCount(), shed, errors, reconnects, (double) latency.getTotalCount() / seconds);
+		System.out.printf(Locale.ROOT, "goodput=%.0f/s (accepted within %d ms)%n",
+				(double) good / seconds, TimeUnit.NANOSECONDS.toMillis(deadlineNanos));
+		System.out.printf(Locale.ROOT, "latency ms p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+				millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+				millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+				millis(latency.getMaxValue()));
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+
+	private static final class Client {
+
+		private final ByteBuffer response = ByteBuffer.allocate(8192);
+
+		private ByteBuffer request;
+
+		private long sentAt;
+	}
+
+	private static final class Response {
+
+		private final int status;
+
+		private final boolean close;
+
+		private Response(int status, boolean close) {
+			this.status = status;
+			this.close = close;
+		}
+
+		/**
+		 * Returns null until the whole response is in the buffer.
+		 */
+		private static Response parse(ByteBuffer buffer) {
+			String received = new String(buffer.array(), 0, buffer.position(), StandardCharsets.ISO_8859_1);
+			int headerEnd = received.indexOf("\r\n\r\n");
+			if (headerEnd < 0) {
+				return null;
+			}
+
+			String headers = received.substring(0, headerEnd).toLowerCase(Locale.ROOT);
+			int bodyStart = headerEnd + 4;
+			int contentLength = headers.indexOf("content-length:");
+			if (contentLength >= 0) {
+				int lineEnd = headers.indexOf("\r\n", contentLength);
+				int length = Integer.parseInt(headers.substring(contentLength + 15,
+						lineEnd < 0 ? headers.length() : lineEnd).trim());
+				if (received.length() < bodyStart + length) {
+					return null;
+				}
+			} else if (headers.contains("transfer-encoding: chunked") && !received.endsWith("0\r\n\r\n")) {
+				return null;
+			}
+
+			return new Response(Integer.parseInt(headers.substring(9, 12)), headers.contains("connection: close"));
+		}
+	}
+}
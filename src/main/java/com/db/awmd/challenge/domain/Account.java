@@ -10,9 +10,14 @@ import org.hibernate.validator.constraints.NotEmpty;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 @Data
+@ToString(exclude = "sequence")
 public class Account {
 
   @NotNull
@@ -21,7 +26,16 @@ public class Account {
 
   @NotNull
   @Min(value = 0, message = "Initial balance must be positive.")
-  private BigDecimal balance;
+  private volatile BigDecimal balance;
+
+  /**
+   * Seqlock guarding the balance: odd while a balance write is in progress,
+   * and twice the number of completed writes otherwise. Writers are already
+   * serialized by the transfer engine, readers never block them.
+   */
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private transient volatile long sequence;
 
   public Account(String accountId) {
     this.accountId = accountId;
@@ -34,4 +48,35 @@ public class Account {
     this.accountId = accountId;
     this.balance = balance;
   }
+
+  public void setBalance(BigDecimal balance) {
+    beginWrite();
+    this.balance = balance;
+    endWrite();
+  }
+
+  /**
+   * Balance and version read together without locking; retried while a
+   * transfer is writing the balance.
+   */
+  public AccountSnapshot snapshot() {
+    while (true) {
+      long start = this.sequence;
+      if ((start & 1) == 0) {
+        BigDecimal current = getBalance();
+        if (this.sequence == start) {
+          return new AccountSnapshot(this.accountId, current, start >>> 1);
+        }
+      }
+      Thread.yield();
+    }
+  }
+
+  protected void beginWrite() {
+    this.sequence++;
+  }
+
+  protected void endWrite() {
+    this.sequence++;
+  }
 }
@@ -0,0 +1,13 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Value;
+
+@Value
+public class AccountExport {
+
+  private final String exportId;
+
+  private final int partitions;
+
+  private final String cutTime;
+}
@@ -0,0 +1,23 @@
+package com.db.awmd.challenge.domain;
+
+import java.math.BigDecimal;
+
+import lombok.Value;
+
+@Value
+public class AccountSnapshot {
+
+  private final String accountId;
+
+  private final BigDecimal balance;
+
+  private final long version;
+
+  public AccountSnapshot withBalance(BigDecimal newBalance) {
+    return new AccountSnapshot(this.accountId, newBalance, this.version + 1);
+  }
+
+  public Account toAccount() {
+    return new Account(this.accountId, this.balance);
+  }
+}
@@ -0,0 +1,8 @@
+package com.db.awmd.challenge.domain;
+
+public enum BatchMode {
+
+  ALL_OR_NOTHING,
+
+  BEST_EFFORT
+}
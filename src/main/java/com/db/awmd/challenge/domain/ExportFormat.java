@@ -0,0 +1,5 @@
+package com.db.awmd.challenge.domain;
+
+public enum ExportFormat {
+  NDJSON, BINARY
+}
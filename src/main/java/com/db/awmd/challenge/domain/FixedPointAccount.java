@@ -0,0 +1,46 @@
+package com.db.awmd.challenge.domain;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Account whose balance is held as a scaled {@code long} of minor units, so the
+ * transfer path can check and move funds without creating {@link BigDecimal}s.
+ * The {@link BigDecimal} view is only built when the balance is read at the
+ * REST boundary.
+ */
+public class FixedPointAccount extends Account {
+
+  private volatile long balanceUnits;
+
+  public FixedPointAccount(String accountId, BigDecimal balance) {
+    super(accountId);
+    this.balanceUnits = Money.toMinorUnits(balance);
+  }
+
+  public static FixedPointAccount of(Account account) {
+    return new FixedPointAccount(account.getAccountId(), account.getBalance());
+  }
+
+  @Override
+  public BigDecimal getBalance() {
+    return Money.toBigDecimal(getBalanceUnits());
+  }
+
+  @Override
+  public void setBalance(BigDecimal balance) {
+    setBalanceUnits(Money.toMinorUnits(balance));
+  }
+
+  @JsonIgnore
+  public long getBalanceUnits() {
+    return this.balanceUnits;
+  }
+
+  public void setBalanceUnits(long balanceUnits) {
+    beginWrite();
+    this.balanceUnits = balanceUnits;
+    endWrite();
+  }
+}
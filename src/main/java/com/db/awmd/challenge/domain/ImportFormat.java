@@ -0,0 +1,5 @@
+package com.db.awmd.challenge.domain;
+
+public enum ImportFormat {
+  NDJSON, CSV
+}
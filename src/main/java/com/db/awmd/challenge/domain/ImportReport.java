@@ -0,0 +1,20 @@
+package com.db.awmd.challenge.domain;
+
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * Outcome of a bulk import. Only the first errors are listed, so the report
+ * stays small however many lines fail; {@code failed} always has the full
+ * count.
+ */
+@Value
+public class ImportReport {
+
+  private final long imported;
+
+  private final long failed;
+
+  private final List<ImportError> errors;
+}
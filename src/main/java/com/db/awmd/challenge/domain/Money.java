@@ -0,0 +1,50 @@
+package com.db.awmd.challenge.domain;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import com.db.awmd.challenge.exception.InvalidValueException;
+
+/**
+ * Conversions between BigDecimal amounts and long minor units (scale
+ * {@value #SCALE}). Going to minor units reads the unscaled value and checks
+ * the scale instead of building a rescaled BigDecimal; Java 8 only exposes the
+ * unscaled value as a BigInteger, so that one object is still created per
+ * conversion unless the JIT removes it.
+ */
+public final class Money {
+
+  public static final int SCALE = 2;
+
+  private static final long[] POWERS_OF_TEN = { 1L, 10L, 100L };
+
+  private Money() {
+  }
+
+  public static long toMinorUnits(BigDecimal amount) {
+    int scale = amount.scale();
+    if (scale > SCALE) {
+      amount = amount.stripTrailingZeros();
+      scale = amount.scale();
+      if (scale > SCALE) {
+        throw new InvalidValueException();
+      }
+    }
+
+    BigInteger unscaledValue = amount.unscaledValue();
+    if (unscaledValue.bitLength() >= Long.SIZE) {
+      throw new InvalidValueException();
+    }
+    try {
+      return scale >= 0
+          ? Math.multiplyExact(unscaledValue.longValue(), POWERS_OF_TEN[SCALE - scale])
+          : amount.movePointRight(SCALE).longValueExact();
+    } catch (ArithmeticException ex) {
+      throw new InvalidValueException();
+    }
+  }
+
+  public static BigDecimal toBigDecimal(long minorUnits) {
+    return BigDecimal.valueOf(minorUnits, SCALE);
+  }
+}
@@ -0,0 +1,20 @@
+package com.db.awmd.challenge.domain;
+
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * One debit of the source account by the sum of the legs, credited to every
+ * leg's account, applied as a whole or not at all.
+ */
+@Value
+@Builder
+public class MultiLegTransfer {
+
+  private final String accountFrom;
+
+  private final List<TransferLeg> legs;
+
+}
@@ -0,0 +1,113 @@
+package com.db.awmd.challenge.domain;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.db.awmd.challenge.exception.BalanceOverflowException;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Fixed-point account for hot accounts that receive many concurrent credits.
+ * The balance is split across cells of minor units, each on its own cache
+ * line, and is their sum. Credits add to the cell of the calling thread
+ * without any lock; debits must be serialized by the caller and take from the
+ * caller's cell when it holds enough, combining cells only otherwise. Since
+ * concurrent credits only ever grow a cell, a debit that found the funds can
+ * always take them. Lock-free credits do not advance the snapshot version.
+ */
+public class StripedAccount extends FixedPointAccount {
+
+  private static final int CELL_SPACING = 8;
+
+  private final AtomicLongArray cells;
+
+  private final int cellMask;
+
+  public StripedAccount(String accountId, BigDecimal balance, int cellCount) {
+    super(accountId, BigDecimal.ZERO);
+    int size = Integer.highestOneBit(Math.max(cellCount, 1) * 2 - 1);
+    this.cells = new AtomicLongArray(size * CELL_SPACING);
+    this.cellMask = size - 1;
+    this.cells.set(0, Money.toMinorUnits(balance));
+  }
+
+  public static StripedAccount of(Account account, int cellCount) {
+    return new StripedAccount(account.getAccountId(), account.getBalance(), cellCount);
+  }
+
+  @JsonIgnore
+  public int getCellCount() {
+    return cellMask + 1;
+  }
+
+  @JsonIgnore
+  @Override
+  public long getBalanceUnits() {
+    long sum = 0;
+    for (int cell = 0; cell <= cellMask; cell++) {
+      sum += cells.get(cell * CELL_SPACING);
+    }
+    return sum;
+  }
+
+  /**
+   * Replaces the balance by adjusting it with the difference to the current
+   * sum, so only valid while no lock-free credit can race with it.
+   */
+  @Override
+  public void setBalanceUnits(long balanceUnits) {
+    beginWrite();
+    cells.addAndGet(0, balanceUnits - getBalanceUnits());
+    endWrite();
+  }
+
+  /**
+   * Adds the units to the caller's cell, or throws before changing it if the
+   * cell would overflow. Callers check the whole balance beforehand, which
+   * concurrent credits can still overtake.
+   */
+  public void creditUnits(long units) {
+    int home = homeCell();
+    long cell;
+    do {
+      cell = cells.get(home);
+      if (cell > Long.MAX_VALUE - units) {
+        throw new BalanceOverflowException(getAccountId());
+      }
+    } while (!cells.compareAndSet(home, cell, cell + units));
+  }
+
+  /**
+   * Takes the units if the balance covers them. Callers must not run two
+   * debits of the same account at once.
+   */
+  public boolean debitUnits(long units) {
+    int home = homeCell();
+    if (cells.get(home) >= units) {
+      cells.addAndGet(home, -units);
+      return true;
+    }
+
+    if (getBalanceUnits() < units) {
+      return false;
+    }
+
+    beginWrite();
+    long remaining = units;
+    for (int cell = 0; remaining > 0; cell = (cell + 1) & cellMask) {
+      int index = cell * CELL_SPACING;
+      long taken = Math.min(cells.get(index), remaining);
+      if (taken > 0) {
+        cells.addAndGet(index, -taken);
+        remaining -= taken;
+      }
+    }
+    endWrite();
+    return true;
+  }
+
+  private int homeCell() {
+    long id = Thread.currentThread().getId();
+    return (int) ((id ^ (id >>> 16)) & cellMask) * CELL_SPACING;
+  }
+}
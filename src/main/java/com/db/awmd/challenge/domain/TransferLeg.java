@@ -0,0 +1,16 @@
+package com.db.awmd.challenge.domain;
+
+import java.math.BigDecimal;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class TransferLeg {
+
+  private final String accountTo;
+
+  private final BigDecimal value;
+
+}
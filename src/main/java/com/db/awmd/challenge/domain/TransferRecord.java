@@ -0,0 +1,19 @@
+package com.db.awmd.challenge.domain;
+
+import java.math.BigDecimal;
+
+import lombok.Value;
+
+@Value
+public class TransferRecord {
+
+  private final long sequence;
+
+  private final String timestamp;
+
+  private final String accountFrom;
+
+  private final String accountTo;
+
+  private final BigDecimal value;
+}
@@ -0,0 +1,37 @@
+package com.db.awmd.challenge.domain;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Value;
+
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransferResult {
+
+  private final String accountFrom;
+
+  private final String accountTo;
+
+  private final BigDecimal value;
+
+  private final TransferStatus status;
+
+  private final String error;
+
+  public static TransferResult applied(TransferMoney transfer) {
+    return new TransferResult(transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getValue(),
+        TransferStatus.APPLIED, null);
+  }
+
+  public static TransferResult rejected(TransferMoney transfer, String error) {
+    return new TransferResult(transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getValue(),
+        TransferStatus.REJECTED, error);
+  }
+
+  public static TransferResult aborted(TransferMoney transfer) {
+    return new TransferResult(transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getValue(),
+        TransferStatus.ABORTED, null);
+  }
+}
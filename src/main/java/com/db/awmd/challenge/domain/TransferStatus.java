@@ -0,0 +1,10 @@
+package com.db.awmd.challenge.domain;
+
+public enum TransferStatus {
+
+  APPLIED,
+
+  REJECTED,
+
+  ABORTED
+}
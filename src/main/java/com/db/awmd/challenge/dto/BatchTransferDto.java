@@ -0,0 +1,27 @@
+package com.db.awmd.challenge.dto;
+
+import java.util.List;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+import org.hibernate.validator.constraints.NotEmpty;
+
+import com.db.awmd.challenge.domain.BatchMode;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class BatchTransferDto {
+
+	@NotNull
+	private BatchMode mode;
+
+	@NotNull
+	@NotEmpty
+	@Valid
+	private List<TransferMoneyDto> transfers;
+
+}
@@ -0,0 +1,26 @@
+package com.db.awmd.challenge.dto;
+
+import java.util.List;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+import org.hibernate.validator.constraints.NotEmpty;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class MultiLegTransferDto {
+
+	@NotNull
+	@NotEmpty
+	private String accountFrom;
+
+	@NotNull
+	@NotEmpty
+	@Valid
+	private List<TransferLegDto> legs;
+
+}
@@ -0,0 +1,23 @@
+package com.db.awmd.challenge.dto;
+
+import java.math.BigDecimal;
+
+import javax.validation.constraints.NotNull;
+
+import org.hibernate.validator.constraints.NotEmpty;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class TransferLegDto {
+
+	@NotNull
+	@NotEmpty
+	private String accountTo;
+
+	@NotNull
+	private BigDecimal value;
+
+}
@@ -5,6 +5,6 @@ public class AccountNotFoundException extends BusinessException {
 	private static final long serialVersionUID = 255721644032051440L;
 
 	public AccountNotFoundException(String accountId) {
-		super(String.format("The account %s does not exist", accountId));
+		super("The account %s does not exist", accountId);
 	}
 }
\ No newline at end of file
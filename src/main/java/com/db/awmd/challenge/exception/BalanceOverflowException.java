@@ -0,0 +1,10 @@
+package com.db.awmd.challenge.exception;
+
+public class BalanceOverflowException extends BusinessException {
+
+	private static final long serialVersionUID = 255721644032051440L;
+
+	public BalanceOverflowException(String accountId) {
+		super("The balance of account %s would overflow. The operation will not be performed.", accountId);
+	}
+}
@@ -1,10 +1,41 @@
 package com.db.awmd.challenge.exception;
 
+/**
+ * Expected rejection of an operation. Rejections can outnumber successful
+ * transfers, so business exceptions capture no stack trace, and subclasses
+ * may pass a format and its argument instead of a formatted message: the
+ * message is only built when something reads it.
+ */
 public class BusinessException extends RuntimeException {
 
 	private static final long serialVersionUID = 255721644032051440L;
 
+	private final String format;
+
+	private final Object argument;
+
+	private transient String message;
+
 	public BusinessException(String message) {
-		super(message);
+		super(message, null, false, false);
+		this.format = null;
+		this.argument = null;
+	}
+
+	protected BusinessException(String format, Object argument) {
+		super(null, null, false, false);
+		this.format = format;
+		this.argument = argument;
+	}
+
+	@Override
+	public String getMessage() {
+		if (format == null) {
+			return super.getMessage();
+		}
+		if (message == null) {
+			message = String.format(format, argument);
+		}
+		return message;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,119 @@
+package com.db.awmd.challenge.exception;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Writes {@code {"timestamp":...,"error":...}} error bodies as UTF-8 JSON
+ * into a per-thread buffer that is reused across requests, instead of
+ * building a map for Jackson. The timestamp keeps the
+ * {@link LocalDateTime#toString()} format and is formatted at most once per
+ * millisecond.
+ */
+final class ErrorBodies {
+
+	private static final byte[] TIMESTAMP_FIELD = "{\"timestamp\":\"".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] ERROR_FIELD = "\",\"error\":".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	private static final ThreadLocal<ErrorBodies> BUFFERS = ThreadLocal.withInitial(ErrorBodies::new);
+
+	private static volatile Timestamp timestamp = new Timestamp(0);
+
+	private byte[] buffer = new byte[256];
+
+	private int length;
+
+	private ErrorBodies() {
+	}
+
+	static byte[] error(String message) {
+		ErrorBodies body = BUFFERS.get();
+		body.length = 0;
+		body.append(TIMESTAMP_FIELD);
+		body.append(currentTimestamp());
+		body.append(ERROR_FIELD);
+		if (message == null) {
+			body.append(NULL);
+		} else {
+			body.appendString(message);
+		}
+		body.append((byte) '}');
+		return Arrays.copyOf(body.buffer, body.length);
+	}
+
+	private static byte[] currentTimestamp() {
+		long now = System.currentTimeMillis();
+		Timestamp current = timestamp;
+		if (current.millis != now) {
+			current = new Timestamp(now);
+			timestamp = current;
+		}
+		return current.text;
+	}
+
+	private void appendString(String value) {
+		append((byte) '"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				append((byte) '\\');
+				append((byte) c);
+			} else if (c < 0x20) {
+				append((byte) '\\');
+				append((byte) 'u');
+				append((byte) '0');
+				append((byte) '0');
+				append(HEX[c >> 4]);
+				append(HEX[c & 0xF]);
+			} else if (c < 0x80) {
+				append((byte) c);
+			} else {
+				int end = i + 1;
+				while (end < value.length() && value.charAt(end) >= 0x80) {
+					end++;
+				}
+				append(value.substring(i, end).getBytes(StandardCharsets.UTF_8));
+				i = end - 1;
+			}
+		}
+		append((byte) '"');
+	}
+
+	private void append(byte[] bytes) {
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, length, bytes.length);
+		length += bytes.length;
+	}
+
+	private void append(byte value) {
+		ensureCapacity(1);
+		buffer[length++] = value;
+	}
+
+	private void ensureCapacity(int extra) {
+		if (length + extra > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+		}
+	}
+
+	private static final class Timestamp {
+
+		private final long millis;
+
+		private final byte[] text;
+
+		private Timestamp(long millis) {
+			this.millis = millis;
+			this.text = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).toString()
+					.getBytes(StandardCharsets.US_ASCII);
+		}
+	}
+}
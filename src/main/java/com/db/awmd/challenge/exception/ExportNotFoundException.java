@@ -0,0 +1,10 @@
+package com.db.awmd.challenge.exception;
+
+public class ExportNotFoundException extends BusinessException {
+
+	private static final long serialVersionUID = 255721644032051440L;
+
+	public ExportNotFoundException(String exportId) {
+		super("The export %s does not exist or has expired", exportId);
+	}
+}
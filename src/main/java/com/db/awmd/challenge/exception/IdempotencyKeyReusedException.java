@@ -0,0 +1,10 @@
+package com.db.awmd.challenge.exception;
+
+public class IdempotencyKeyReusedException extends BusinessException {
+
+	private static final long serialVersionUID = 255721644032051440L;
+
+	public IdempotencyKeyReusedException(String idempotencyKey) {
+		super("The idempotency key %s was already used for a different transfer. The operation will not be performed.", idempotencyKey);
+	}
+}
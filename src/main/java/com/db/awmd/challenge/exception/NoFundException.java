@@ -5,6 +5,6 @@ public class NoFundException extends BusinessException {
 	private static final long serialVersionUID = 255721644032051440L;
 
 	public NoFundException(String accountId) {
-		super(String.format("The account %s has insufficient funds. The operation will not be performed.", accountId));
+		super("The account %s has insufficient funds. The operation will not be performed.", accountId);
 	}
 }
\ No newline at end of file
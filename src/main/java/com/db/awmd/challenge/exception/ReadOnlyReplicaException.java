@@ -0,0 +1,14 @@
+package com.db.awmd.challenge.exception;
+
+/**
+ * Raised by a replica for any write, which only the primary accepts. Answered
+ * with 405 and, like a {@link BusinessException}, captures no stack trace.
+ */
+public class ReadOnlyReplicaException extends RuntimeException {
+
+	private static final long serialVersionUID = 255721644032051440L;
+
+	public ReadOnlyReplicaException() {
+		super("This node is a read-only replica. Send writes to the primary.", null, false, false);
+	}
+}
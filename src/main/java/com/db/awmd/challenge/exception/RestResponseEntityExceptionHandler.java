@@ -7,6 +7,7 @@ import java.util.Map;
 
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -18,24 +19,28 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 @ControllerAdvice
 public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionHandler {
 
+	private static final HttpHeaders ERROR_HEADERS = HttpHeaders.readOnlyHttpHeaders(jsonHeaders(false));
+
+	private static final HttpHeaders RETRY_HEADERS = HttpHeaders.readOnlyHttpHeaders(jsonHeaders(true));
+
 	@ExceptionHandler(value = {RuntimeException.class})
 	protected ResponseEntity<Object> handleConflict(RuntimeException ex, WebRequest request) {
-		Map<String, Object> body = new LinkedHashMap<>();
-		
-		body.put("timestamp", LocalDateTime.now().toString());
-		body.put("error", ex.getMessage());
-
-		return new ResponseEntity<>(body, HttpStatus.INTERNAL_SERVER_ERROR);
+		return new ResponseEntity<>(ErrorBodies.error(ex.getMessage()), ERROR_HEADERS, HttpStatus.INTERNAL_SERVER_ERROR);
 	}
 	
 	@ExceptionHandler(value = {BusinessException.class})
 	protected ResponseEntity<Object> handleConflict(BusinessException ex, WebRequest request) {
-		Map<String, Object> body = new LinkedHashMap<>();
+		return new ResponseEntity<>(ErrorBodies.error(ex.getMessage()), ERROR_HEADERS, HttpStatus.BAD_REQUEST);
+	}
 
-		body.put("timestamp", LocalDateTime.now().toString());
-		body.put("error", ex.getMessage());
+	@ExceptionHandler(value = {TooManyRequestsException.class})
+	protected ResponseEntity<Object> handleOverload(TooManyRequestsException ex, WebRequest request) {
+		return new ResponseEntity<>(ErrorBodies.error(ex.getMessage()), RETRY_HEADERS, HttpStatus.TOO_MANY_REQUESTS);
+	}
 
-		return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+	@ExceptionHandler(value = {ReadOnlyReplicaException.class})
+	protected ResponseEntity<Object> handleReadOnly(ReadOnlyReplicaException ex, WebRequest request) {
+		return new ResponseEntity<>(ErrorBodies.error(ex.getMessage()), ERROR_HEADERS, HttpStatus.METHOD_NOT_ALLOWED);
 	}
 
 	@Override
@@ -57,4 +62,13 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
 
 		return handleExceptionInternal(ex, body, headers, status, request);
 	}
+
+	private static HttpHeaders jsonHeaders(boolean retryLater) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+		if (retryLater) {
+			headers.set(HttpHeaders.RETRY_AFTER, "1");
+		}
+		return headers;
+	}
 }
\ No newline at end of file
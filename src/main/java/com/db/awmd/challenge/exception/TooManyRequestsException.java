@@ -0,0 +1,15 @@
+package com.db.awmd.challenge.exception;
+
+/**
+ * Load shedding rather than a business rule, so it is answered with 429
+ * instead of 400 and clients are expected to retry later. Like a
+ * {@link BusinessException} it captures no stack trace.
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+	private static final long serialVersionUID = 255721644032051440L;
+
+	public TooManyRequestsException(String reason) {
+		super("Too many transfers " + reason + ". Retry the operation later.", null, false, false);
+	}
+}
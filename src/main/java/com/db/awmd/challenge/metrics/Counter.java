@@ -0,0 +1,32 @@
+package com.db.awmd.challenge.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counter {
+
+	static final Counter NOOP = new Counter(null) {
+		@Override
+		public void increment() {
+		}
+	};
+
+	private final String name;
+
+	private final LongAdder count = new LongAdder();
+
+	Counter(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void increment() {
+		count.increment();
+	}
+
+	public long count() {
+		return count.sum();
+	}
+}
@@ -0,0 +1,55 @@
+package com.db.awmd.challenge.metrics;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import com.db.awmd.challenge.web.AccountsController;
+
+/**
+ * Times every {@link AccountsController} request under
+ * http.&lt;method&gt;.&lt;path pattern&gt;, including time spent in the
+ * exception handler and, for async requests, the wait for completion.
+ */
+@Component
+public class EndpointTimingInterceptor extends HandlerInterceptorAdapter {
+
+	private static final String START_ATTRIBUTE = EndpointTimingInterceptor.class.getName() + ".start";
+
+	private final MeterRegistry meterRegistry;
+
+	@Autowired
+	public EndpointTimingInterceptor(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		// async requests come through here again on their completion dispatch, keep the first start
+		if (meterRegistry.isEnabled() && isTimed(handler) && request.getAttribute(START_ATTRIBUTE) == null) {
+			request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+		}
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		Object start = request.getAttribute(START_ATTRIBUTE);
+		if (start == null) {
+			return;
+		}
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		meterRegistry.timer("http." + request.getMethod() + "." + pattern).recordSince((Long) start);
+	}
+
+	private static boolean isTimed(Object handler) {
+		return handler instanceof HandlerMethod
+				&& ((HandlerMethod) handler).getBeanType() == AccountsController.class;
+	}
+}
@@ -0,0 +1,32 @@
+package com.db.awmd.challenge.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint at /latency listing every timer with its percentiles, in
+ * microseconds, and every counter.
+ */
+@Component
+public class LatencyEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+	private final MeterRegistry meterRegistry;
+
+	@Autowired
+	public LatencyEndpoint(MeterRegistry meterRegistry) {
+		super("latency", false);
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public Map<String, Object> invoke() {
+		Map<String, Object> latency = new LinkedHashMap<>();
+		latency.put("timers", meterRegistry.timerSummaries());
+		latency.put("counters", meterRegistry.counterValues());
+		return latency;
+	}
+}
@@ -0,0 +1,78 @@
+package com.db.awmd.challenge.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+/**
+ * Named timers and counters for the transfer path. Callers are expected to
+ * look meters up once and keep them in a field; the lookup itself is a map
+ * read. A disabled registry hands out no-op meters, which is also what code
+ * wired without Spring gets through {@link #DISABLED}.
+ */
+@Component
+public class MeterRegistry implements PublicMetrics {
+
+	public static final MeterRegistry DISABLED = new MeterRegistry(false);
+
+	private final boolean enabled;
+
+	private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+	@Autowired
+	public MeterRegistry(@Value("${accounts.metrics.enabled:true}") boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public Timer timer(String name) {
+		if (!enabled) {
+			return Timer.NOOP;
+		}
+		Timer timer = timers.get(name);
+		return timer != null ? timer : timers.computeIfAbsent(name, Timer::new);
+	}
+
+	public Counter counter(String name) {
+		if (!enabled) {
+			return Counter.NOOP;
+		}
+		Counter counter = counters.get(name);
+		return counter != null ? counter : counters.computeIfAbsent(name, Counter::new);
+	}
+
+	public Map<String, Object> timerSummaries() {
+		Map<String, Object> summaries = new TreeMap<>();
+		timers.forEach((name, timer) -> summaries.put(name, timer.summary()));
+		return summaries;
+	}
+
+	public Map<String, Object> counterValues() {
+		Map<String, Object> values = new TreeMap<>();
+		counters.forEach((name, counter) -> values.put(name, counter.count()));
+		return values;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		List<Metric<?>> metrics = new ArrayList<>();
+		timers.forEach((name, timer) -> metrics.add(new Metric<Number>("timer." + name + ".count", timer.count())));
+		counters.forEach((name, counter) -> metrics.add(new Metric<Number>("counter." + name, counter.count())));
+		return metrics;
+	}
+}
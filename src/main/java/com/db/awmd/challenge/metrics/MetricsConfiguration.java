@@ -0,0 +1,22 @@
+package com.db.awmd.challenge.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+@Configuration
+public class MetricsConfiguration extends WebMvcConfigurerAdapter {
+
+	private final EndpointTimingInterceptor endpointTimingInterceptor;
+
+	@Autowired
+	public MetricsConfiguration(EndpointTimingInterceptor endpointTimingInterceptor) {
+		this.endpointTimingInterceptor = endpointTimingInterceptor;
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(endpointTimingInterceptor).addPathPatterns("/v1/accounts/**");
+	}
+}
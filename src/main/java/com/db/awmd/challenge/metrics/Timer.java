@@ -0,0 +1,84 @@
+package com.db.awmd.challenge.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latency distribution in nanoseconds. Writers record into a wait-free
+ * {@link Recorder}; readers fold the interval histogram into a cumulative one,
+ * so recording never contends with the endpoint.
+ */
+public class Timer {
+
+	static final Timer NOOP = new Timer(null) {
+		@Override
+		public void record(long nanos) {
+		}
+	};
+
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p99.9" };
+
+	private final String name;
+
+	private final Recorder recorder = new Recorder(3);
+
+	private final Histogram total = new Histogram(3);
+
+	private Histogram interval;
+
+	Timer(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long start() {
+		return System.nanoTime();
+	}
+
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	public void record(long nanos) {
+		recorder.recordValue(nanos < 0 ? 0 : nanos);
+	}
+
+	public synchronized long count() {
+		collect();
+		return total.getTotalCount();
+	}
+
+	/**
+	 * Count, mean, percentiles and max in microseconds since startup.
+	 */
+	public synchronized Map<String, Object> summary() {
+		collect();
+
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("count", total.getTotalCount());
+		summary.put("mean", toMicros(total.getMean()));
+		for (int i = 0; i < PERCENTILES.length; i++) {
+			summary.put(PERCENTILE_NAMES[i], toMicros(total.getValueAtPercentile(PERCENTILES[i])));
+		}
+		summary.put("max", toMicros(total.getMaxValue()));
+		return summary;
+	}
+
+	private void collect() {
+		interval = recorder.getIntervalHistogram(interval);
+		total.add(interval);
+	}
+
+	private static double toMicros(double nanos) {
+		return nanos / TimeUnit.MICROSECONDS.toNanos(1);
+	}
+}
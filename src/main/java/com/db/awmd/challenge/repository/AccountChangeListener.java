@@ -0,0 +1,24 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+
+public interface AccountChangeListener {
+
+  AccountChangeListener NONE = new AccountChangeListener() { };
+
+  /**
+   * Called by the transfer engine right before it changes the balance, while it
+   * holds the account's {@link AccountLocks} stripe.
+   */
+  default void beforeBalanceChange(Account account) {
+  }
+
+  /**
+   * Called by AccountsService to insert a new account through {@code insert}.
+   * Listeners that track creations override it to record the account at the
+   * same point as it becomes visible in the repository.
+   */
+  default void create(Account account, Runnable insert) {
+    insert.run();
+  }
+}
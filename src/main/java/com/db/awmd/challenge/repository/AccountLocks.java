@@ -0,0 +1,72 @@
+package com.db.awmd.challenge.repository;
+
+import java.util.BitSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fixed table of lock stripes that account ids hash onto. Stripes must always
+ * be taken in ascending order, which is what makes multi-account locking
+ * deadlock free.
+ */
+@Component
+public class AccountLocks {
+
+	public static final int DEFAULT_STRIPES = 4096;
+
+	private final ReentrantLock[] stripes;
+
+	public AccountLocks() {
+		this(DEFAULT_STRIPES);
+	}
+
+	@Autowired
+	public AccountLocks(@Value("${accounts.locking.stripes:" + DEFAULT_STRIPES + "}") int stripes) {
+		this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(stripes, 1) * 2 - 1)];
+		for (int i = 0; i < this.stripes.length; i++) {
+			this.stripes[i] = new ReentrantLock();
+		}
+	}
+
+	public int size() {
+		return stripes.length;
+	}
+
+	public int stripeOf(String accountId) {
+		int hash = accountId.hashCode();
+		return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+	}
+
+	public void lock(int stripe) {
+		stripes[stripe].lock();
+	}
+
+	public void unlock(int stripe) {
+		stripes[stripe].unlock();
+	}
+
+	public void lockPair(int stripe, int otherStripe) {
+		stripes[Math.min(stripe, otherStripe)].lock();
+		stripes[Math.max(stripe, otherStripe)].lock();
+	}
+
+	public void unlockPair(int stripe, int otherStripe) {
+		stripes[Math.max(stripe, otherStripe)].unlock();
+		stripes[Math.min(stripe, otherStripe)].unlock();
+	}
+
+	public void lockAll(BitSet lockedStripes) {
+		for (int i = lockedStripes.nextSetBit(0); i >= 0; i = lockedStripes.nextSetBit(i + 1)) {
+			stripes[i].lock();
+		}
+	}
+
+	public void unlockAll(BitSet lockedStripes) {
+		for (int i = lockedStripes.previousSetBit(stripes.length - 1); i >= 0; i = lockedStripes.previousSetBit(i - 1)) {
+			stripes[i].unlock();
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package com.db.awmd.challenge.repository;
 
+import java.util.function.Consumer;
+
 import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
 
@@ -12,4 +14,16 @@ public interface AccountsRepository {
   void clearAccounts();
   
   void updateAccount(Account account);
+
+  /**
+   * Visits the accounts of one of {@code partitions} disjoint slices of the
+   * store, in no particular order and without blocking writers. Accounts
+   * created or removed during the walk may or may not be visited.
+   */
+  void forEachAccount(int partition, int partitions, Consumer<Account> action);
+
+  static boolean inPartition(String accountId, int partition, int partitions) {
+    int hash = accountId.hashCode();
+    return Math.floorMod(hash ^ (hash >>> 16), partitions) == partition;
+  }
 }
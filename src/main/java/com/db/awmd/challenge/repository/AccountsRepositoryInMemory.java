@@ -2,13 +2,17 @@ package com.db.awmd.challenge.repository;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Repository;
 
 import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
 
 @Repository
+@ConditionalOnExpression("(('${accounts.engine:locking}' == 'locking' or '${accounts.engine:locking}' == 'sequenced')"
+		+ " and '${accounts.repository:memory}' == 'memory') or '${accounts.engine:locking}' == 'partitioned'")
 public class AccountsRepositoryInMemory implements AccountsRepository {
 
 	private final Map<String, Account> accounts = new ConcurrentHashMap<>();
@@ -36,4 +40,13 @@ public class AccountsRepositoryInMemory implements AccountsRepository {
 	public void updateAccount(Account account) {
 		accounts.replace(account.getAccountId(), account);
 	}
+
+	@Override
+	public void forEachAccount(int partition, int partitions, Consumer<Account> action) {
+		for (Account account : accounts.values()) {
+			if (AccountsRepository.inPartition(account.getAccountId(), partition, partitions)) {
+				action.accept(account);
+			}
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,281 @@
+package com.db.awmd.challenge.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.FixedPointAccount;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.repository.journal.FsyncPolicy;
+import com.db.awmd.challenge.repository.journal.Journal;
+import com.db.awmd.challenge.repository.journal.JournalException;
+import com.db.awmd.challenge.repository.journal.JournalListener;
+import com.db.awmd.challenge.repository.journal.JournalPosition;
+import com.db.awmd.challenge.repository.journal.SnapshotReader;
+import com.db.awmd.challenge.repository.journal.SnapshotWriter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory accounts backed by a write-ahead {@link Journal}. Account creations
+ * are journaled here and transfers are journaled by the transfer engine through
+ * {@link TransferJournal}, both under the account's stripe lock, so the journal
+ * order matches the order in which balances changed. The sequenced engine
+ * journals from a single thread in the order it applied the transfers instead.
+ *
+ * Accounts are partitioned by {@link AccountLocks} stripe, which lets
+ * {@link #snapshot()} copy one stripe at a time under its lock while transfers
+ * on every other stripe keep running. On startup the latest snapshot is loaded
+ * and only the journal tail written after it is replayed.
+ */
+@Slf4j
+@Repository
+@ConditionalOnExpression("('${accounts.engine:locking}' == 'locking' or '${accounts.engine:locking}' == 'sequenced')"
+		+ " and '${accounts.repository:memory}' == 'journaled'")
+public class AccountsRepositoryJournaled implements AccountsRepository, TransferJournal, JournalListener {
+
+	private final Map<String, Account>[] partitions;
+
+	private final Journal journal;
+
+	private final AccountLocks accountLocks;
+
+	private final boolean fixedPointMoney;
+
+	private volatile RuntimeException appendFailure;
+
+	private volatile BooleanSupplier appendBarrier = () -> true;
+
+	@Autowired
+	public AccountsRepositoryJournaled(@Value("${accounts.journal.directory:journal}") String directory,
+			@Value("${accounts.journal.segment-size:67108864}") int segmentSize,
+			@Value("${accounts.journal.fsync:GROUP_COMMIT}") FsyncPolicy fsyncPolicy,
+			@Value("${accounts.journal.group-commit-interval-ms:5}") long groupCommitIntervalMillis,
+			@Value("${accounts.money.fixed-point:false}") boolean fixedPointMoney,
+			AccountLocks accountLocks) throws IOException {
+		this(new Journal(Paths.get(directory), segmentSize, fsyncPolicy, groupCommitIntervalMillis), accountLocks,
+				fixedPointMoney);
+	}
+
+	public AccountsRepositoryJournaled(Journal journal, AccountLocks accountLocks) throws IOException {
+		this(journal, accountLocks, false);
+	}
+
+	/**
+	 * Accounts restored from the snapshot and the journal are created as
+	 * {@link FixedPointAccount}s when {@code fixedPointMoney} is set, as
+	 * AccountsService creates them. Striped accounts need the memory
+	 * repository, so they are never restored here.
+	 */
+	@SuppressWarnings("unchecked")
+	public AccountsRepositoryJournaled(Journal journal, AccountLocks accountLocks, boolean fixedPointMoney)
+			throws IOException {
+		this.journal = journal;
+		this.accountLocks = accountLocks;
+		this.fixedPointMoney = fixedPointMoney;
+		this.partitions = new Map[accountLocks.size()];
+		for (int i = 0; i < partitions.length; i++) {
+			this.partitions[i] = new ConcurrentHashMap<>();
+		}
+
+		JournalPosition position = SnapshotReader.loadLatest(journal.getDirectory(), this::onCreate);
+		this.journal.replay(this, position);
+	}
+
+	@Override
+	public void createAccount(Account account) throws DuplicateAccountIdException {
+		int stripe = accountLocks.stripeOf(account.getAccountId());
+
+		accountLocks.lock(stripe);
+		try {
+			if (partitions[stripe].containsKey(account.getAccountId())) {
+				throw new DuplicateAccountIdException(
+						"Account id " + account.getAccountId() + " already exists!");
+			}
+
+			journal.appendCreate(account.getAccountId(), account.getBalance());
+			partitions[stripe].put(account.getAccountId(), account);
+		} finally {
+			accountLocks.unlock(stripe);
+		}
+	}
+
+	@Override
+	public Account getAccount(String accountId) {
+		return partitionOf(accountId).get(accountId);
+	}
+
+	@Override
+	public void clearAccounts() {
+		journal.appendClear();
+		onClear();
+	}
+
+	@Override
+	public void updateAccount(Account account) {
+		partitionOf(account.getAccountId()).replace(account.getAccountId(), account);
+	}
+
+	/**
+	 * Walks whole stripes when the partition count divides the stripe count, so
+	 * each partition only touches its own stripes.
+	 */
+	@Override
+	public void forEachAccount(int partition, int partitions, Consumer<Account> action) {
+		if (partitions <= this.partitions.length && this.partitions.length % partitions == 0) {
+			for (int stripe = partition; stripe < this.partitions.length; stripe += partitions) {
+				this.partitions[stripe].values().forEach(action);
+			}
+			return;
+		}
+
+		for (Map<String, Account> accounts : this.partitions) {
+			for (Account account : accounts.values()) {
+				if (AccountsRepository.inPartition(account.getAccountId(), partition, partitions)) {
+					action.accept(account);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void appendTransfer(String accountFrom, String accountTo, BigDecimal value, BigDecimal fromBalance,
+			BigDecimal toBalance) {
+		journal.appendTransfer(accountFrom, accountTo, value, fromBalance, toBalance);
+	}
+
+	/**
+	 * Stops snapshots, which would otherwise make the transfers missing from
+	 * the journal durable after all.
+	 */
+	@Override
+	public void appendFailed(RuntimeException cause) {
+		this.appendFailure = cause;
+	}
+
+	@Override
+	public void setAppendBarrier(BooleanSupplier awaitAppended) {
+		this.appendBarrier = awaitAppended;
+	}
+
+	@Override
+	public void onCreate(String accountId, BigDecimal balance) {
+		partitionOf(accountId).put(accountId,
+				fixedPointMoney ? new FixedPointAccount(accountId, balance) : new Account(accountId, balance));
+	}
+
+	@Override
+	public void onTransfer(String accountFrom, String accountTo, BigDecimal value, BigDecimal fromBalance,
+			BigDecimal toBalance) {
+		if (accountFrom.equals(accountTo)) {
+			return;
+		}
+		getAccount(accountTo).setBalance(toBalance);
+		getAccount(accountFrom).setBalance(fromBalance);
+	}
+
+	@Override
+	public void onClear() {
+		for (Map<String, Account> accounts : partitions) {
+			accounts.clear();
+		}
+	}
+
+	/**
+	 * Writes a snapshot without stopping transfers. The journal position is taken
+	 * first and every stripe is then copied under its own lock, so a transfer is
+	 * either fully in the copy or journaled after that position. The journal is
+	 * forced before the snapshot is published, which makes every transfer the
+	 * copy contains durable. With an engine that changes balances before it
+	 * journals them, the copy may hold a transfer whose record is still in
+	 * flight, so the snapshot first waits on the engine's append barrier.
+	 * Older snapshots and journal segments are removed.
+	 */
+	@Scheduled(initialDelayString = "${accounts.snapshot.interval-ms:60000}",
+			fixedDelayString = "${accounts.snapshot.interval-ms:60000}")
+	public void snapshot() throws IOException {
+		if (appendFailure != null) {
+			throw new JournalException("Not writing a snapshot, the balances include transfers missing from the journal",
+					appendFailure);
+		}
+		long start = System.nanoTime();
+		JournalPosition position = journal.position();
+
+		try (SnapshotWriter writer = new SnapshotWriter(journal.getDirectory(), position)) {
+			for (int stripe = 0; stripe < partitions.length; stripe++) {
+				copyStripe(stripe, writer::add);
+				writer.endChunk();
+			}
+
+			if (!appendBarrier.getAsBoolean() || appendFailure != null) {
+				throw new JournalException("Not writing a snapshot, the copy includes transfers that were not journaled",
+						appendFailure);
+			}
+			journal.force();
+			Path snapshot = writer.commit();
+
+			for (Path previous : SnapshotReader.snapshots(journal.getDirectory())) {
+				if (!previous.equals(snapshot)) {
+					Files.deleteIfExists(previous);
+				}
+			}
+			journal.deleteSegmentsBefore(position.getSegmentIndex());
+
+			log.info("Wrote snapshot {} in {} ms", snapshot, (System.nanoTime() - start) / 1_000_000);
+		}
+	}
+
+	public Journal getJournal() {
+		return journal;
+	}
+
+	public int getStripes() {
+		return partitions.length;
+	}
+
+	/**
+	 * Hands the balance of every account of the stripe to the consumer under
+	 * the stripe lock. Copies of every stripe taken after reading
+	 * {@link Journal#position()} converge with a replay from that position.
+	 */
+	public void copyStripe(int stripe, BiConsumer<String, BigDecimal> consumer) {
+		accountLocks.lock(stripe);
+		try {
+			for (Account account : partitions[stripe].values()) {
+				consumer.accept(account.getAccountId(), account.getBalance());
+			}
+		} finally {
+			accountLocks.unlock(stripe);
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		try {
+			journal.close();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private Map<String, Account> partitionOf(String accountId) {
+		return partitions[accountLocks.stripeOf(accountId)];
+	}
+}
@@ -0,0 +1,342 @@
+package com.db.awmd.challenge.repository;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Money;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+
+/**
+ * Accounts kept outside the Java heap. Each account is a 16 byte record in a
+ * direct buffer slab: the balance in minor units and a reference to its id,
+ * which is stored once in a separate off-heap id area (one byte per char when
+ * the id is Latin-1). Ids are found through an open-addressing index made of
+ * two int arrays, so the heap holds no per-account objects at all.
+ *
+ * {@link #getAccount(String)} hands out an {@link OffHeapAccount} that reads
+ * and writes the record directly, which keeps the transfer engines working
+ * unchanged. Every lookup creates a new handle, a short-lived object holding
+ * no balance, so two lookups of one id are different objects and the engines
+ * compare account ids, never references. Lookups run under an optimistic
+ * {@link StampedLock} read and only fall back to a read lock when an account
+ * creation or a clear got in between.
+ */
+@Repository
+@ConditionalOnExpression("'${accounts.engine:locking}' == 'locking' and '${accounts.repository:memory}' == 'offheap'")
+public class AccountsRepositoryOffHeap implements AccountsRepository {
+
+	static final int RECORD_BYTES = 16;
+
+	private static final int RECORD_CHUNK_SHIFT = 16;
+
+	private static final int RECORD_CHUNK_MASK = (1 << RECORD_CHUNK_SHIFT) - 1;
+
+	private static final int ID_CHUNK_BYTES = 1 << 20;
+
+	private static final int LATIN1 = 0x8000;
+
+	private static final int MAX_ID_LENGTH = 0x7FFF;
+
+	private static final int INITIAL_SLOTS = 1 << 10;
+
+	private final StampedLock lock = new StampedLock();
+
+	private Slab slab = new Slab();
+
+	@Override
+	public void createAccount(Account account) throws DuplicateAccountIdException {
+		String accountId = account.getAccountId();
+		if (accountId.length() > MAX_ID_LENGTH) {
+			throw new IllegalArgumentException("Account id longer than " + MAX_ID_LENGTH + " characters");
+		}
+		long balanceUnits = Money.toMinorUnits(account.getBalance());
+		int hash = hash(accountId);
+
+		long stamp = lock.writeLock();
+		try {
+			if (slab.find(accountId, hash) >= 0) {
+				throw new DuplicateAccountIdException(
+						"Account id " + accountId + " already exists!");
+			}
+			slab.insert(accountId, hash, balanceUnits);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public Account getAccount(String accountId) {
+		int hash = hash(accountId);
+
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				OffHeapAccount account = slab.account(accountId, hash);
+				if (lock.validate(stamp)) {
+					return account;
+				}
+			} catch (RuntimeException ex) {
+				// torn read of a slab that was changing underneath, retried under the read lock
+			}
+		}
+
+		stamp = lock.readLock();
+		try {
+			return slab.account(accountId, hash);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public void clearAccounts() {
+		long stamp = lock.writeLock();
+		try {
+			// a fresh slab, so handles still held by in-flight transfers never write into reused records
+			slab = new Slab();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public void updateAccount(Account account) {
+		if (account instanceof OffHeapAccount) {
+			return;
+		}
+		Account stored = getAccount(account.getAccountId());
+		if (stored != null) {
+			stored.setBalance(account.getBalance());
+		}
+	}
+
+	/**
+	 * Partitions are contiguous record ranges of the slab as it was when the
+	 * walk started.
+	 */
+	@Override
+	public void forEachAccount(int partition, int partitions, Consumer<Account> action) {
+		Slab walked;
+		int size;
+		long stamp = lock.readLock();
+		try {
+			walked = slab;
+			size = walked.size;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+
+		long from = (long) size * partition / partitions;
+		long to = (long) size * (partition + 1) / partitions;
+		for (int record = (int) from; record < to; record++) {
+			action.accept(walked.account(record));
+		}
+	}
+
+	public int size() {
+		long stamp = lock.readLock();
+		try {
+			return slab.size;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Off-heap bytes in use, records and ids, plus the heap taken by the index.
+	 */
+	public long footprintBytes() {
+		long stamp = lock.readLock();
+		try {
+			return (long) slab.recordChunks.length * (RECORD_CHUNK_MASK + 1) * RECORD_BYTES
+					+ (long) slab.idChunkCount * ID_CHUNK_BYTES
+					+ 2L * Integer.BYTES * slab.slots.length;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	private static int hash(String accountId) {
+		int hash = accountId.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean isLatin1(String accountId) {
+		for (int i = 0; i < accountId.length(); i++) {
+			if (accountId.charAt(i) > 0xFF) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static final class Slab {
+
+		/** record index + 1 per slot, 0 marks an empty slot */
+		private int[] slots = new int[INITIAL_SLOTS];
+
+		private int[] hashes = new int[INITIAL_SLOTS];
+
+		private ByteBuffer[] recordChunks = new ByteBuffer[0];
+
+		private ByteBuffer[] idChunks = new ByteBuffer[4];
+
+		private int idChunkCount;
+
+		private int idPosition = ID_CHUNK_BYTES;
+
+		private int size;
+
+		private OffHeapAccount account(String accountId, int hash) {
+			int record = find(accountId, hash);
+			if (record < 0) {
+				return null;
+			}
+			return new OffHeapAccount(accountId, recordChunks[record >>> RECORD_CHUNK_SHIFT],
+					(record & RECORD_CHUNK_MASK) * RECORD_BYTES);
+		}
+
+		private OffHeapAccount account(int record) {
+			ByteBuffer records = recordChunks[record >>> RECORD_CHUNK_SHIFT];
+			int offset = (record & RECORD_CHUNK_MASK) * RECORD_BYTES;
+			return new OffHeapAccount(readId(records.getLong(offset + Long.BYTES)), records, offset);
+		}
+
+		private String readId(long idReference) {
+			ByteBuffer ids = idChunks[(int) (idReference >>> 32)];
+			int position = (int) idReference;
+			int header = ids.getShort(position) & 0xFFFF;
+			char[] chars = new char[header & MAX_ID_LENGTH];
+
+			position += Short.BYTES;
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = (header & LATIN1) != 0
+						? (char) (ids.get(position + i) & 0xFF)
+						: ids.getChar(position + i * Character.BYTES);
+			}
+			return new String(chars);
+		}
+
+		private int find(String accountId, int hash) {
+			int[] slots = this.slots;
+			int[] hashes = this.hashes;
+			int mask = slots.length - 1;
+
+			for (int slot = hash & mask, probes = 0; probes < slots.length; slot = (slot + 1) & mask, probes++) {
+				int record = slots[slot] - 1;
+				if (record < 0) {
+					return -1;
+				}
+				if (hashes[slot] == hash && idEquals(record, accountId)) {
+					return record;
+				}
+			}
+			return -1;
+		}
+
+		private boolean idEquals(int record, String accountId) {
+			long idReference = recordChunks[record >>> RECORD_CHUNK_SHIFT]
+					.getLong((record & RECORD_CHUNK_MASK) * RECORD_BYTES + Long.BYTES);
+			ByteBuffer ids = idChunks[(int) (idReference >>> 32)];
+			int position = (int) idReference;
+
+			int header = ids.getShort(position) & 0xFFFF;
+			if ((header & MAX_ID_LENGTH) != accountId.length()) {
+				return false;
+			}
+
+			position += Short.BYTES;
+			if ((header & LATIN1) != 0) {
+				for (int i = 0; i < accountId.length(); i++) {
+					if ((ids.get(position + i) & 0xFF) != accountId.charAt(i)) {
+						return false;
+					}
+				}
+			} else {
+				for (int i = 0; i < accountId.length(); i++) {
+					if (ids.getChar(position + i * Character.BYTES) != accountId.charAt(i)) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		private void insert(String accountId, int hash, long balanceUnits) {
+			int record = size;
+			if ((record >>> RECORD_CHUNK_SHIFT) == recordChunks.length) {
+				ByteBuffer[] grown = Arrays.copyOf(recordChunks, recordChunks.length + 1);
+				grown[recordChunks.length] = ByteBuffer.allocateDirect((RECORD_CHUNK_MASK + 1) * RECORD_BYTES);
+				recordChunks = grown;
+			}
+
+			ByteBuffer records = recordChunks[record >>> RECORD_CHUNK_SHIFT];
+			int offset = (record & RECORD_CHUNK_MASK) * RECORD_BYTES;
+			records.putLong(offset + Long.BYTES, appendId(accountId));
+			records.putLong(offset, balanceUnits);
+
+			if ((size + 1) * 2 > slots.length) {
+				resize();
+			}
+			place(slots, hashes, hash, record + 1);
+			size++;
+		}
+
+		private long appendId(String accountId) {
+			boolean latin1 = isLatin1(accountId);
+			int bytes = Short.BYTES + accountId.length() * (latin1 ? 1 : Character.BYTES);
+
+			if (idPosition + bytes > ID_CHUNK_BYTES) {
+				if (idChunkCount == idChunks.length) {
+					idChunks = Arrays.copyOf(idChunks, idChunks.length * 2);
+				}
+				idChunks[idChunkCount++] = ByteBuffer.allocateDirect(ID_CHUNK_BYTES);
+				idPosition = 0;
+			}
+
+			int chunk = idChunkCount - 1;
+			ByteBuffer ids = idChunks[chunk];
+			int position = idPosition;
+
+			ids.putShort(position, (short) (accountId.length() | (latin1 ? LATIN1 : 0)));
+			for (int i = 0; i < accountId.length(); i++) {
+				if (latin1) {
+					ids.put(position + Short.BYTES + i, (byte) accountId.charAt(i));
+				} else {
+					ids.putChar(position + Short.BYTES + i * Character.BYTES, accountId.charAt(i));
+				}
+			}
+
+			idPosition += bytes;
+			return ((long) chunk << 32) | position;
+		}
+
+		private void resize() {
+			int[] grownSlots = new int[slots.length * 2];
+			int[] grownHashes = new int[hashes.length * 2];
+			for (int slot = 0; slot < slots.length; slot++) {
+				if (slots[slot] != 0) {
+					place(grownSlots, grownHashes, hashes[slot], slots[slot]);
+				}
+			}
+			hashes = grownHashes;
+			slots = grownSlots;
+		}
+
+		private static void place(int[] slots, int[] hashes, int hash, int value) {
+			int mask = slots.length - 1;
+			int slot = hash & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			hashes[slot] = hash;
+			slots[slot] = value;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.db.awmd.challenge.repository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountSnapshot;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+
+/**
+ * Keeps every account as an immutable, versioned {@link AccountSnapshot}. Balances
+ * are only changed through {@link #compareAndSet}, so readers always see a
+ * consistent copy and writers never block each other.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.engine", havingValue = "optimistic")
+public class AccountsRepositoryOptimistic implements AccountsRepository {
+
+	private final Map<String, AtomicReference<AccountSnapshot>> accounts = new ConcurrentHashMap<>();
+
+	@Override
+	public void createAccount(Account account) throws DuplicateAccountIdException {
+		AtomicReference<AccountSnapshot> previousAccount = accounts.putIfAbsent(account.getAccountId(),
+				new AtomicReference<>(new AccountSnapshot(account.getAccountId(), account.getBalance(), 0)));
+		if (previousAccount != null) {
+			throw new DuplicateAccountIdException(
+					"Account id " + account.getAccountId() + " already exists!");
+		}
+	}
+
+	@Override
+	public Account getAccount(String accountId) {
+		AccountSnapshot snapshot = getSnapshot(accountId);
+		return snapshot == null ? null : snapshot.toAccount();
+	}
+
+	@Override
+	public void clearAccounts() {
+		accounts.clear();
+	}
+
+	@Override
+	public void updateAccount(Account account) {
+		AtomicReference<AccountSnapshot> reference = accounts.get(account.getAccountId());
+		if (reference == null) {
+			return;
+		}
+
+		AccountSnapshot current;
+		do {
+			current = reference.get();
+		} while (!reference.compareAndSet(current, current.withBalance(account.getBalance())));
+	}
+
+	@Override
+	public void forEachAccount(int partition, int partitions, Consumer<Account> action) {
+		accounts.forEach((accountId, reference) -> {
+			if (AccountsRepository.inPartition(accountId, partition, partitions)) {
+				action.accept(reference.get().toAccount());
+			}
+		});
+	}
+
+	public AccountSnapshot getSnapshot(String accountId) {
+		AtomicReference<AccountSnapshot> reference = accounts.get(accountId);
+		return reference == null ? null : reference.get();
+	}
+
+	public boolean compareAndSet(AccountSnapshot expected, AccountSnapshot updated) {
+		AtomicReference<AccountSnapshot> reference = accounts.get(expected.getAccountId());
+		return reference != null && reference.compareAndSet(expected, updated);
+	}
+}
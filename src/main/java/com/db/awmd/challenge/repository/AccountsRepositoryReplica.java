@@ -0,0 +1,112 @@
+package com.db.awmd.challenge.repository;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.ReadOnlyReplicaException;
+import com.db.awmd.challenge.repository.journal.JournalListener;
+import com.db.awmd.challenge.repository.replication.JournalFollower;
+
+/**
+ * Read-only copy of a primary running the journaled repository. Accounts only
+ * change by applying the journal the primary ships, in the primary's order, on
+ * the single follower thread; reads see each balance as soon as its record is
+ * applied.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.engine", havingValue = "replica")
+public class AccountsRepositoryReplica implements AccountsRepository, JournalListener, PublicMetrics {
+
+	private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+
+	private final JournalFollower follower;
+
+	@Autowired
+	public AccountsRepositoryReplica(@Value("${accounts.replication.primary-host:localhost}") String primaryHost,
+			@Value("${accounts.replication.primary-port:18081}") int primaryPort) {
+		this.follower = new JournalFollower(primaryHost, primaryPort, this);
+		this.follower.start();
+	}
+
+	@Override
+	public void createAccount(Account account) {
+		throw new ReadOnlyReplicaException();
+	}
+
+	@Override
+	public Account getAccount(String accountId) {
+		return accounts.get(accountId);
+	}
+
+	@Override
+	public void clearAccounts() {
+		throw new ReadOnlyReplicaException();
+	}
+
+	@Override
+	public void updateAccount(Account account) {
+		throw new ReadOnlyReplicaException();
+	}
+
+	@Override
+	public void forEachAccount(int partition, int partitions, Consumer<Account> action) {
+		for (Account account : accounts.values()) {
+			if (AccountsRepository.inPartition(account.getAccountId(), partition, partitions)) {
+				action.accept(account);
+			}
+		}
+	}
+
+	@Override
+	public void onCreate(String accountId, BigDecimal balance) {
+		accounts.put(accountId, new Account(accountId, balance));
+	}
+
+	@Override
+	public void onTransfer(String accountFrom, String accountTo, BigDecimal value, BigDecimal fromBalance,
+			BigDecimal toBalance) {
+		if (accountFrom.equals(accountTo)) {
+			return;
+		}
+		Account to = accounts.get(accountTo);
+		Account from = accounts.get(accountFrom);
+		if (to != null) {
+			to.setBalance(toBalance);
+		}
+		if (from != null) {
+			from.setBalance(fromBalance);
+		}
+	}
+
+	@Override
+	public void onClear() {
+		accounts.clear();
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		return Arrays.asList(
+				new Metric<Number>("replication.connected", follower.isConnected() ? 1 : 0),
+				new Metric<Number>("replication.lag.bytes", follower.getLagBytes()),
+				new Metric<Number>("replication.lag.ms", follower.getLagMillis()));
+	}
+
+	@PreDestroy
+	public void close() {
+		follower.close();
+	}
+}
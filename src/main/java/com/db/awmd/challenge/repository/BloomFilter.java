@@ -0,0 +1,97 @@
+package com.db.awmd.challenge.repository;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent Bloom filter over account ids. Every id maps to one block of
+ * 512 bits, a cache line, and sets its bits inside that block only, so a
+ * lookup touches a single line. Adding is lock-free and never loses a bit set
+ * by a concurrent add. It answers false only for ids that were never added;
+ * the false positive rate holds up to the expected number of ids and grows
+ * past it.
+ */
+public final class BloomFilter {
+
+	private static final int BLOCK_BITS = 512;
+
+	private static final int LONGS_PER_BLOCK = BLOCK_BITS / Long.SIZE;
+
+	private final AtomicLongArray bits;
+
+	private final int blockMask;
+
+	private final int hashes;
+
+	public BloomFilter(long expectedIds, double falsePositiveRate) {
+		long n = Math.max(expectedIds, 1);
+		double bitsPerId = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+		// blocking costs some accuracy, which a fifth more bits buys back
+		long requiredBits = (long) Math.ceil(n * bitsPerId * 1.2);
+		long requiredBlocks = Math.max(1, (requiredBits + BLOCK_BITS - 1) / BLOCK_BITS);
+		int blocks = Integer.highestOneBit((int) Math.min(requiredBlocks * 2 - 1, Integer.MAX_VALUE / LONGS_PER_BLOCK));
+
+		this.bits = new AtomicLongArray(blocks * LONGS_PER_BLOCK);
+		this.blockMask = blocks - 1;
+		this.hashes = Math.max(1, Math.min(16, (int) Math.round(bitsPerId * Math.log(2))));
+	}
+
+	public void add(String id) {
+		long hash = hash(id);
+		int base = block(hash);
+		int step = step(hash);
+		int position = (int) hash;
+		for (int i = 0; i < hashes; i++) {
+			int index = base + ((position >>> 6) & (LONGS_PER_BLOCK - 1));
+			long mask = 1L << position;
+			if ((bits.get(index) & mask) == 0) {
+				bits.getAndAccumulate(index, mask, (word, bit) -> word | bit);
+			}
+			position += step;
+		}
+	}
+
+	public boolean mightContain(String id) {
+		long hash = hash(id);
+		int base = block(hash);
+		int step = step(hash);
+		int position = (int) hash;
+		for (int i = 0; i < hashes; i++) {
+			int index = base + ((position >>> 6) & (LONGS_PER_BLOCK - 1));
+			if ((bits.get(index) & (1L << position)) == 0) {
+				return false;
+			}
+			position += step;
+		}
+		return true;
+	}
+
+	public long sizeInBytes() {
+		return (long) bits.length() * Long.BYTES;
+	}
+
+	private int block(long hash) {
+		return ((int) (hash >>> 32) & blockMask) * LONGS_PER_BLOCK;
+	}
+
+	private static int step(long hash) {
+		return (int) (hash >>> 48) | 1;
+	}
+
+	/**
+	 * 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3
+	 * mixer so that ids differing only in their last chars spread over the
+	 * blocks.
+	 */
+	private static long hash(String id) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < id.length(); i++) {
+			hash = (hash ^ id.charAt(i)) * 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -0,0 +1,75 @@
+package com.db.awmd.challenge.repository;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.metrics.Counter;
+import com.db.awmd.challenge.metrics.MeterRegistry;
+
+/**
+ * Answers {@link #getAccount(String)} for ids that were never created from a
+ * {@link BloomFilter}, without touching the wrapped repository. The filter is
+ * seeded with the accounts the repository already holds, for example after a
+ * journal replay, and every id is added before and after its account becomes
+ * visible, so an account that can be found is never filtered out. Accounts
+ * must only be created through this wrapper.
+ */
+public class FilteredAccountsRepository implements AccountsRepository {
+
+	private final AccountsRepository delegate;
+
+	private final Supplier<BloomFilter> filters;
+
+	private final Counter filtered;
+
+	private volatile BloomFilter filter;
+
+	public FilteredAccountsRepository(AccountsRepository delegate, Supplier<BloomFilter> filters,
+			MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.filters = filters;
+		this.filtered = meterRegistry.counter("repository.getAccount.filtered");
+
+		BloomFilter seeded = filters.get();
+		delegate.forEachAccount(0, 1, account -> seeded.add(account.getAccountId()));
+		this.filter = seeded;
+	}
+
+	@Override
+	public void createAccount(Account account) throws DuplicateAccountIdException {
+		filter.add(account.getAccountId());
+		delegate.createAccount(account);
+		filter.add(account.getAccountId());
+	}
+
+	@Override
+	public Account getAccount(String accountId) {
+		if (!filter.mightContain(accountId)) {
+			filtered.increment();
+			return null;
+		}
+		return delegate.getAccount(accountId);
+	}
+
+	/**
+	 * Starts a new, empty filter before clearing, so ids created while the
+	 * repository is being cleared land in the new one.
+	 */
+	@Override
+	public void clearAccounts() {
+		this.filter = filters.get();
+		delegate.clearAccounts();
+	}
+
+	@Override
+	public void updateAccount(Account account) {
+		delegate.updateAccount(account);
+	}
+
+	@Override
+	public void forEachAccount(int partition, int partitions, Consumer<Account> action) {
+		delegate.forEachAccount(partition, partitions, action);
+	}
+}
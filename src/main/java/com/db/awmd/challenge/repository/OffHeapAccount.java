@@ -0,0 +1,48 @@
+package com.db.awmd.challenge.repository;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+import com.db.awmd.challenge.domain.FixedPointAccount;
+import com.db.awmd.challenge.domain.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * View over one record of {@link AccountsRepositoryOffHeap}. The balance is
+ * read from and written to the off-heap slab, so the handle holds no state of
+ * its own besides the id and the record position. The balance is a single
+ * aligned word, so its snapshots need no sequence and always report version 0.
+ */
+public class OffHeapAccount extends FixedPointAccount {
+
+  private final ByteBuffer records;
+
+  private final int offset;
+
+  OffHeapAccount(String accountId, ByteBuffer records, int offset) {
+    super(accountId, BigDecimal.ZERO);
+    this.records = records;
+    this.offset = offset;
+  }
+
+  @Override
+  public BigDecimal getBalance() {
+    return Money.toBigDecimal(getBalanceUnits());
+  }
+
+  @Override
+  public void setBalance(BigDecimal balance) {
+    setBalanceUnits(Money.toMinorUnits(balance));
+  }
+
+  @JsonIgnore
+  @Override
+  public long getBalanceUnits() {
+    return this.records.getLong(this.offset);
+  }
+
+  @Override
+  public void setBalanceUnits(long balanceUnits) {
+    this.records.putLong(this.offset, balanceUnits);
+  }
+}
@@ -0,0 +1,85 @@
+package com.db.awmd.challenge.repository;
+
+import java.util.function.Consumer;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.metrics.MeterRegistry;
+import com.db.awmd.challenge.metrics.Timer;
+
+/**
+ * Records a repository.&lt;method&gt; timer around each call to the wrapped
+ * repository.
+ */
+public class TimedAccountsRepository implements AccountsRepository {
+
+	private final AccountsRepository delegate;
+
+	private final Timer createAccount;
+
+	private final Timer getAccount;
+
+	private final Timer clearAccounts;
+
+	private final Timer updateAccount;
+
+	public TimedAccountsRepository(AccountsRepository delegate, MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.createAccount = meterRegistry.timer("repository.createAccount");
+		this.getAccount = meterRegistry.timer("repository.getAccount");
+		this.clearAccounts = meterRegistry.timer("repository.clearAccounts");
+		this.updateAccount = meterRegistry.timer("repository.updateAccount");
+	}
+
+	public static AccountsRepository wrap(AccountsRepository accountsRepository, MeterRegistry meterRegistry) {
+		if (!meterRegistry.isEnabled() || accountsRepository instanceof TimedAccountsRepository) {
+			return accountsRepository;
+		}
+		return new TimedAccountsRepository(accountsRepository, meterRegistry);
+	}
+
+	@Override
+	public void createAccount(Account account) throws DuplicateAccountIdException {
+		long start = createAccount.start();
+		try {
+			delegate.createAccount(account);
+		} finally {
+			createAccount.recordSince(start);
+		}
+	}
+
+	@Override
+	public Account getAccount(String accountId) {
+		long start = getAccount.start();
+		try {
+			return delegate.getAccount(accountId);
+		} finally {
+			getAccount.recordSince(start);
+		}
+	}
+
+	@Override
+	public void clearAccounts() {
+		long start = clearAccounts.start();
+		try {
+			delegate.clearAccounts();
+		} finally {
+			clearAccounts.recordSince(start);
+		}
+	}
+
+	@Override
+	public void updateAccount(Account account) {
+		long start = updateAccount.start();
+		try {
+			delegate.updateAccount(account);
+		} finally {
+			updateAccount.recordSince(start);
+		}
+	}
+
+	@Override
+	public void forEachAccount(int partition, int partitions, Consumer<Account> action) {
+		delegate.forEachAccount(partition, partitions, action);
+	}
+}
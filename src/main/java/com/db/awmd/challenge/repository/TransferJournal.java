@@ -0,0 +1,28 @@
+package com.db.awmd.challenge.repository;
+
+import java.math.BigDecimal;
+import java.util.function.BooleanSupplier;
+
+public interface TransferJournal {
+
+  TransferJournal NONE = (accountFrom, accountTo, value, fromBalance, toBalance) -> { };
+
+  void appendTransfer(String accountFrom, String accountTo, BigDecimal value, BigDecimal fromBalance,
+      BigDecimal toBalance);
+
+  /**
+   * Called by an engine that changed balances before appending their record
+   * and then failed to append it, so the balances now hold transfers the
+   * journal is missing.
+   */
+  default void appendFailed(RuntimeException cause) {
+  }
+
+  /**
+   * Called once by an engine that changes balances before appending their
+   * record. The barrier returns true when every balance change made before it
+   * was called has been appended, or false if that will no longer happen.
+   */
+  default void setAppendBarrier(BooleanSupplier awaitAppended) {
+  }
+}
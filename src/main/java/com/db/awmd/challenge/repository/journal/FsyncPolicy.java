@@ -0,0 +1,10 @@
+package com.db.awmd.challenge.repository.journal;
+
+public enum FsyncPolicy {
+
+	PER_WRITE,
+
+	GROUP_COMMIT,
+
+	NONE
+}
@@ -0,0 +1,405 @@
+package com.db.awmd.challenge.repository.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only journal of account creations and transfers, written to
+ * memory-mapped segment files that roll over once full. Each record is
+ * {@code [int length][byte type][payload][int crc32]}; a zero length marks the
+ * end of a segment and a checksum mismatch marks a torn write, where replay
+ * stops. Only the last segment may end in a torn write; a bad record in an
+ * earlier one fails the replay rather than skipping a gap. Transfer records
+ * carry the resulting balances, so replaying a record over a state that
+ * already contains it is harmless.
+ */
+@Slf4j
+public class Journal implements Closeable {
+
+	private static final byte CREATE = 1;
+
+	private static final byte TRANSFER = 2;
+
+	private static final byte CLEAR = 3;
+
+	private static final int LENGTH_BYTES = Integer.BYTES;
+
+	private static final int CHECKSUM_BYTES = Integer.BYTES;
+
+	private static final String SEGMENT_PREFIX = "journal-";
+
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	private final Path directory;
+
+	private final int segmentSize;
+
+	private final FsyncPolicy fsyncPolicy;
+
+	private final ScheduledExecutorService flusher;
+
+	private final ThreadLocal<ByteBuffer> scratch = ThreadLocal.withInitial(() -> ByteBuffer.allocate(256));
+
+	private static final ThreadLocal<CRC32> CHECKSUMS = ThreadLocal.withInitial(CRC32::new);
+
+	private long segmentIndex;
+
+	private FileChannel channel;
+
+	private MappedByteBuffer segment;
+
+	private boolean dirty;
+
+	public Journal(Path directory, int segmentSize, FsyncPolicy fsyncPolicy, long groupCommitIntervalMillis)
+			throws IOException {
+		this.directory = Files.createDirectories(directory);
+		this.segmentSize = segmentSize;
+		this.fsyncPolicy = fsyncPolicy;
+
+		if (fsyncPolicy == FsyncPolicy.GROUP_COMMIT) {
+			this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "journal-group-commit");
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.flusher.scheduleAtFixedRate(this::flush, groupCommitIntervalMillis, groupCommitIntervalMillis,
+					TimeUnit.MILLISECONDS);
+		} else {
+			this.flusher = null;
+		}
+	}
+
+	/**
+	 * Replays every valid record from the given position onwards, in segment
+	 * order, and leaves the journal positioned after the last one, ready for
+	 * appends. Throws {@link JournalException} if a segment other than the last
+	 * one stops on an invalid record.
+	 */
+	public synchronized void replay(JournalListener listener, JournalPosition from) throws IOException {
+		List<Path> segments = segments().stream()
+				.filter(path -> indexOf(path) >= from.getSegmentIndex())
+				.collect(Collectors.toList());
+		long records = 0;
+
+		for (int i = 0; i < segments.size(); i++) {
+			Path path = segments.get(i);
+			long index = indexOf(path);
+			boolean last = i == segments.size() - 1;
+
+			try (FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+				ByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+				if (index == from.getSegmentIndex()) {
+					buffer.position(from.getOffset());
+				}
+				records += replayRecords(buffer, listener);
+
+				if (!last && buffer.position() + LENGTH_BYTES <= buffer.limit() && buffer.getInt(buffer.position()) != 0) {
+					throw new JournalException("Corrupt journal record in " + path + " at offset " + buffer.position()
+							+ ", later segments cannot be replayed past it", null);
+				}
+				if (last) {
+					openSegment(index);
+					this.segment.position(buffer.position());
+					if (buffer.position() + LENGTH_BYTES <= buffer.limit() && buffer.getInt(buffer.position()) != 0) {
+						log.warn("Discarding torn journal tail in {} at offset {}", path, buffer.position());
+						while (this.segment.hasRemaining()) {
+							this.segment.put((byte) 0);
+						}
+						this.segment.position(buffer.position());
+					}
+				}
+			}
+		}
+
+		if (segments.isEmpty()) {
+			openSegment(from.getSegmentIndex());
+		}
+
+		log.info("Replayed {} journal records from {} segments", records, segments.size());
+	}
+
+	public synchronized JournalPosition position() {
+		return new JournalPosition(segmentIndex, segment.position());
+	}
+
+	public synchronized void force() {
+		segment.force();
+		dirty = false;
+	}
+
+	/**
+	 * Deletes the segments that lie entirely before the given segment, once a
+	 * snapshot has made them redundant.
+	 */
+	public void deleteSegmentsBefore(long segmentIndex) throws IOException {
+		for (Path path : segments()) {
+			if (indexOf(path) < segmentIndex) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	public Path segmentPath(long index) {
+		return directory.resolve(segmentName(index));
+	}
+
+	/**
+	 * Distance in bytes from the start of the journal, counting every earlier
+	 * segment as full.
+	 */
+	public long offsetOf(JournalPosition position) {
+		return position.getSegmentIndex() * segmentSize + position.getOffset();
+	}
+
+	public void appendCreate(String accountId, BigDecimal balance) {
+		byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+		byte[] unscaled = balance.unscaledValue().toByteArray();
+
+		ByteBuffer payload = scratch(1 + Short.BYTES + id.length + decimalSize(unscaled));
+		payload.put(CREATE);
+		putBytes(payload, id);
+		putDecimal(payload, balance.scale(), unscaled);
+
+		append(payload);
+	}
+
+	public void appendTransfer(String accountFrom, String accountTo, BigDecimal value, BigDecimal fromBalance,
+			BigDecimal toBalance) {
+		byte[] from = accountFrom.getBytes(StandardCharsets.UTF_8);
+		byte[] to = accountTo.getBytes(StandardCharsets.UTF_8);
+		byte[] unscaledValue = value.unscaledValue().toByteArray();
+		byte[] unscaledFrom = fromBalance.unscaledValue().toByteArray();
+		byte[] unscaledTo = toBalance.unscaledValue().toByteArray();
+
+		ByteBuffer payload = scratch(1 + 2 * Short.BYTES + from.length + to.length
+				+ decimalSize(unscaledValue) + decimalSize(unscaledFrom) + decimalSize(unscaledTo));
+		payload.put(TRANSFER);
+		putBytes(payload, from);
+		putBytes(payload, to);
+		putDecimal(payload, value.scale(), unscaledValue);
+		putDecimal(payload, fromBalance.scale(), unscaledFrom);
+		putDecimal(payload, toBalance.scale(), unscaledTo);
+
+		append(payload);
+	}
+
+	public void appendClear() {
+		ByteBuffer payload = scratch(1);
+		payload.put(CLEAR);
+
+		append(payload);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (flusher != null) {
+			flusher.shutdown();
+		}
+		if (segment != null) {
+			if (fsyncPolicy != FsyncPolicy.NONE) {
+				segment.force();
+			}
+			channel.close();
+		}
+	}
+
+	private void append(ByteBuffer payload) {
+		payload.flip();
+		int length = payload.remaining();
+		int recordSize = LENGTH_BYTES + length + CHECKSUM_BYTES;
+		if (recordSize > segmentSize - LENGTH_BYTES) {
+			throw new IllegalArgumentException("Journal record of " + recordSize + " bytes does not fit a segment");
+		}
+
+		CRC32 checksum = CHECKSUMS.get();
+		checksum.reset();
+		checksum.update(payload.duplicate());
+
+		synchronized (this) {
+			if (segment == null) {
+				throw new IllegalStateException("The journal must be replayed before appending");
+			}
+			if (segment.remaining() < recordSize + LENGTH_BYTES) {
+				roll();
+			}
+
+			segment.putInt(length);
+			segment.put(payload);
+			segment.putInt((int) checksum.getValue());
+
+			if (fsyncPolicy == FsyncPolicy.PER_WRITE) {
+				segment.force();
+			} else {
+				dirty = true;
+			}
+		}
+	}
+
+	private void flush() {
+		MappedByteBuffer current;
+		synchronized (this) {
+			if (!dirty) {
+				return;
+			}
+			dirty = false;
+			current = segment;
+		}
+		current.force();
+	}
+
+	private void roll() {
+		try {
+			if (fsyncPolicy != FsyncPolicy.NONE) {
+				segment.force();
+			}
+			channel.close();
+			openSegment(++segmentIndex);
+		} catch (IOException ex) {
+			throw new JournalException("Failed to roll journal segment " + segmentIndex, ex);
+		}
+	}
+
+	private void openSegment(long index) throws IOException {
+		this.channel = FileChannel.open(directory.resolve(segmentName(index)),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		this.segmentIndex = index;
+	}
+
+	/**
+	 * Hands every complete, valid record from the buffer's position onwards to
+	 * the listener and leaves the position on the first one that is not: the
+	 * end of the segment, a torn write or a record cut off by the buffer's
+	 * limit.
+	 */
+	public static long replayRecords(ByteBuffer buffer, JournalListener listener) {
+		CRC32 checksum = CHECKSUMS.get();
+		long records = 0;
+
+		while (buffer.remaining() >= LENGTH_BYTES) {
+			int start = buffer.position();
+			int length = buffer.getInt();
+			if (length <= 0 || length + CHECKSUM_BYTES > buffer.remaining()) {
+				buffer.position(start);
+				break;
+			}
+
+			ByteBuffer payload = buffer.slice();
+			payload.limit(length);
+			buffer.position(buffer.position() + length);
+
+			checksum.reset();
+			checksum.update(payload.duplicate());
+			if ((int) checksum.getValue() != buffer.getInt()) {
+				buffer.position(start);
+				break;
+			}
+
+			dispatch(payload, listener);
+			records++;
+		}
+
+		return records;
+	}
+
+	private static void dispatch(ByteBuffer payload, JournalListener listener) {
+		byte type = payload.get();
+		switch (type) {
+		case CREATE:
+			listener.onCreate(getString(payload), getDecimal(payload));
+			break;
+		case TRANSFER:
+			listener.onTransfer(getString(payload), getString(payload), getDecimal(payload), getDecimal(payload),
+					getDecimal(payload));
+			break;
+		case CLEAR:
+			listener.onClear();
+			break;
+		default:
+			throw new JournalException("Unknown journal record type " + type, null);
+		}
+	}
+
+	private List<Path> segments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files
+					.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	private ByteBuffer scratch(int size) {
+		ByteBuffer buffer = scratch.get();
+		if (buffer.capacity() < size) {
+			buffer = ByteBuffer.allocate(Integer.highestOneBit(size) << 1);
+			scratch.set(buffer);
+		}
+		buffer.clear();
+		return buffer;
+	}
+
+	private static int decimalSize(byte[] unscaled) {
+		return Integer.BYTES + Short.BYTES + unscaled.length;
+	}
+
+	private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+	}
+
+	private static void putDecimal(ByteBuffer buffer, int scale, byte[] unscaled) {
+		buffer.putInt(scale);
+		putBytes(buffer, unscaled);
+	}
+
+	private static byte[] getBytes(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		return new String(getBytes(buffer), StandardCharsets.UTF_8);
+	}
+
+	private static BigDecimal getDecimal(ByteBuffer buffer) {
+		int scale = buffer.getInt();
+		return new BigDecimal(new BigInteger(getBytes(buffer)), scale);
+	}
+
+	private static String segmentName(long index) {
+		return String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+	}
+
+	private static long indexOf(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+}
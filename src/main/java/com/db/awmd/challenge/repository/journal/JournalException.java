@@ -0,0 +1,10 @@
+package com.db.awmd.challenge.repository.journal;
+
+public class JournalException extends RuntimeException {
+
+	private static final long serialVersionUID = 255721644032051440L;
+
+	public JournalException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
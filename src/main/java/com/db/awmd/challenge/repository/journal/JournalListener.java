@@ -0,0 +1,13 @@
+package com.db.awmd.challenge.repository.journal;
+
+import java.math.BigDecimal;
+
+public interface JournalListener {
+
+	void onCreate(String accountId, BigDecimal balance);
+
+	void onTransfer(String accountFrom, String accountTo, BigDecimal value, BigDecimal fromBalance,
+			BigDecimal toBalance);
+
+	void onClear();
+}
@@ -0,0 +1,13 @@
+package com.db.awmd.challenge.repository.journal;
+
+import lombok.Value;
+
+@Value
+public class JournalPosition {
+
+	public static final JournalPosition START = new JournalPosition(0, 0);
+
+	private final long segmentIndex;
+
+	private final int offset;
+}
@@ -0,0 +1,101 @@
+package com.db.awmd.challenge.repository.journal;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Loads the most recent snapshot written by {@link SnapshotWriter}. Every chunk
+ * is memory-mapped and decoded on its own, in parallel, so the consumer must be
+ * thread safe.
+ */
+@Slf4j
+public final class SnapshotReader {
+
+	private SnapshotReader() {
+	}
+
+	public static List<Path> snapshots(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files
+					.filter(path -> path.getFileName().toString().startsWith(SnapshotWriter.SNAPSHOT_PREFIX)
+							&& path.getFileName().toString().endsWith(SnapshotWriter.SNAPSHOT_SUFFIX))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Hands every account of the latest snapshot to the consumer and returns the
+	 * journal position replay has to resume from, or {@link JournalPosition#START}
+	 * when there is no snapshot yet.
+	 */
+	public static JournalPosition loadLatest(Path directory, BiConsumer<String, BigDecimal> consumer)
+			throws IOException {
+		List<Path> snapshots = snapshots(directory);
+		if (snapshots.isEmpty()) {
+			return JournalPosition.START;
+		}
+		Path latest = snapshots.get(snapshots.size() - 1);
+
+		long start = System.nanoTime();
+		try (FileChannel channel = FileChannel.open(latest, StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, SnapshotWriter.HEADER_BYTES);
+			ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, size - SnapshotWriter.TRAILER_BYTES,
+					SnapshotWriter.TRAILER_BYTES);
+			if (header.getInt() != SnapshotWriter.MAGIC || trailer.getInt(Integer.BYTES + Long.BYTES) != SnapshotWriter.MAGIC) {
+				throw new JournalException("Snapshot " + latest + " is corrupt", null);
+			}
+			JournalPosition position = new JournalPosition(header.getLong(), header.getInt());
+
+			int chunkCount = trailer.getInt();
+			long indexOffset = trailer.getLong();
+			ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) chunkCount * Long.BYTES);
+			long[] chunkOffsets = new long[chunkCount];
+			for (int i = 0; i < chunkCount; i++) {
+				chunkOffsets[i] = index.getLong();
+			}
+
+			IntStream.range(0, chunkCount).parallel().forEach(i -> {
+				try {
+					long offset = chunkOffsets[i];
+					long end = i + 1 < chunkCount ? chunkOffsets[i + 1] : indexOffset;
+					decodeChunk(channel.map(FileChannel.MapMode.READ_ONLY, offset, end - offset), consumer);
+				} catch (IOException ex) {
+					throw new JournalException("Failed to read snapshot chunk " + i, ex);
+				}
+			});
+
+			log.info("Loaded snapshot {} in {} ms", latest, (System.nanoTime() - start) / 1_000_000);
+			return position;
+		}
+	}
+
+	private static void decodeChunk(ByteBuffer buffer, BiConsumer<String, BigDecimal> consumer) {
+		buffer.getInt();
+		int count = buffer.getInt();
+		for (int i = 0; i < count; i++) {
+			byte[] id = new byte[buffer.getShort() & 0xFFFF];
+			buffer.get(id);
+			int scale = buffer.getInt();
+			byte[] unscaled = new byte[buffer.getShort() & 0xFFFF];
+			buffer.get(unscaled);
+			consumer.accept(new String(id, StandardCharsets.UTF_8), new BigDecimal(new BigInteger(unscaled), scale));
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package com.db.awmd.challenge.repository.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a snapshot of account balances as independent chunks, so that the
+ * {@link SnapshotReader} can decode them in parallel. Layout:
+ * {@code [header][chunk]*[chunk offsets][trailer]}, where every chunk is
+ * {@code [int bytes][int count][account]*} and every account is
+ * {@code [short id length][id][int scale][short unscaled length][unscaled]}.
+ * The file is written under a temporary name and only renamed once complete.
+ */
+public class SnapshotWriter implements Closeable {
+
+	static final int MAGIC = 0x534E4150;
+
+	static final int HEADER_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+	static final int TRAILER_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+	static final String SNAPSHOT_PREFIX = "snapshot-";
+
+	static final String SNAPSHOT_SUFFIX = ".bin";
+
+	private final Path directory;
+
+	private final JournalPosition position;
+
+	private final Path temporaryFile;
+
+	private final FileChannel channel;
+
+	private final List<Long> chunkOffsets = new ArrayList<>();
+
+	private ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+
+	private int chunkCount;
+
+	public SnapshotWriter(Path directory, JournalPosition position) throws IOException {
+		this.directory = directory;
+		this.position = position;
+		this.temporaryFile = directory.resolve(SNAPSHOT_PREFIX + "in-progress.tmp");
+		this.channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		header.putInt(MAGIC).putLong(position.getSegmentIndex()).putInt(position.getOffset()).flip();
+		write(header);
+
+		startChunk();
+	}
+
+	public void add(String accountId, BigDecimal balance) {
+		byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+		byte[] unscaled = balance.unscaledValue().toByteArray();
+
+		ensureCapacity(Short.BYTES + id.length + Integer.BYTES + Short.BYTES + unscaled.length);
+		chunk.putShort((short) id.length).put(id);
+		chunk.putInt(balance.scale()).putShort((short) unscaled.length).put(unscaled);
+		chunkCount++;
+	}
+
+	public void endChunk() throws IOException {
+		chunk.putInt(0, chunk.position() - 2 * Integer.BYTES);
+		chunk.putInt(Integer.BYTES, chunkCount);
+		chunk.flip();
+
+		chunkOffsets.add(channel.position());
+		write(chunk);
+
+		startChunk();
+	}
+
+	/**
+	 * Writes the chunk index, forces the file to disk and publishes it under its
+	 * final name, which encodes the journal position the snapshot starts from.
+	 */
+	public Path commit() throws IOException {
+		long indexOffset = channel.position();
+		ByteBuffer index = ByteBuffer.allocate(chunkOffsets.size() * Long.BYTES + TRAILER_BYTES);
+		chunkOffsets.forEach(index::putLong);
+		index.putInt(chunkOffsets.size()).putLong(indexOffset).putInt(MAGIC).flip();
+		write(index);
+
+		channel.force(true);
+		channel.close();
+
+		return Files.move(temporaryFile, directory.resolve(snapshotName(position)), StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (channel.isOpen()) {
+			channel.close();
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+
+	static String snapshotName(JournalPosition position) {
+		return String.format("%s%020d-%010d%s", SNAPSHOT_PREFIX, position.getSegmentIndex(), position.getOffset(),
+				SNAPSHOT_SUFFIX);
+	}
+
+	private void startChunk() {
+		chunk.clear();
+		chunk.position(2 * Integer.BYTES);
+		chunkCount = 0;
+	}
+
+	private void ensureCapacity(int bytes) {
+		if (chunk.remaining() < bytes) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(chunk.capacity() * 2, chunk.position() + bytes));
+			chunk.flip();
+			larger.put(chunk);
+			chunk = larger;
+		}
+	}
+
+	private void write(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package com.db.awmd.challenge.repository.replication;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import com.db.awmd.challenge.repository.journal.Journal;
+import com.db.awmd.challenge.repository.journal.JournalListener;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Replica side of replication. Connects to a {@link JournalShipper}, applies
+ * the account copy and the journal records it streams to a
+ * {@link JournalListener} in order, and acknowledges its position on every
+ * heartbeat. On a lost connection it reconnects and resumes from the last
+ * applied record, or takes a fresh copy if the primary no longer has it.
+ */
+@Slf4j
+public class JournalFollower implements Closeable {
+
+	private static final long RECONNECT_MILLIS = 1000;
+
+	private final InetSocketAddress primary;
+
+	private final JournalListener listener;
+
+	private final Thread thread;
+
+	private final ByteBuffer header = ByteBuffer.allocateDirect(64);
+
+	private final ByteBuffer ack = ByteBuffer.allocateDirect(ReplicationProtocol.REPLICA_FRAME_BYTES);
+
+	private ByteBuffer pending = ByteBuffer.allocateDirect(2 * (1 << 20));
+
+	private volatile SocketChannel channel;
+
+	private volatile boolean running = true;
+
+	private volatile long appliedSegment = -1;
+
+	private volatile int appliedOffset;
+
+	private int receivedOffset;
+
+	private boolean segmentEnded;
+
+	private volatile long headSegment = -1;
+
+	private volatile int headOffset;
+
+	private volatile int segmentSize;
+
+	private volatile long caughtUpMillis = System.currentTimeMillis();
+
+	public JournalFollower(String host, int port, JournalListener listener) {
+		this.primary = new InetSocketAddress(host, port);
+		this.listener = listener;
+		this.thread = new Thread(this::follow, "replication-follower");
+		this.thread.setDaemon(true);
+	}
+
+	public void start() {
+		thread.start();
+	}
+
+	public boolean isConnected() {
+		return channel != null;
+	}
+
+	/**
+	 * Journal bytes the primary had written at its last heartbeat that are
+	 * not applied here yet.
+	 */
+	public long getLagBytes() {
+		long head = headSegment * segmentSize + headOffset;
+		long applied = appliedSegment * segmentSize + appliedOffset;
+		return headSegment < 0 ? 0 : Math.max(0, head - applied);
+	}
+
+	/**
+	 * Time since this replica last had everything the primary had written, as
+	 * of the primary's heartbeats; it keeps growing while disconnected.
+	 */
+	public long getLagMillis() {
+		return getLagBytes() == 0 && isConnected() ? 0 : System.currentTimeMillis() - caughtUpMillis;
+	}
+
+	@Override
+	public void close() {
+		this.running = false;
+		closeChannel();
+		try {
+			thread.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void follow() {
+		while (running) {
+			try {
+				this.channel = SocketChannel.open(primary);
+				channel.socket().setTcpNoDelay(true);
+				log.info("Following the primary at {} from segment {} offset {}", primary, appliedSegment, appliedOffset);
+
+				sendPosition(ReplicationProtocol.HELLO);
+				this.receivedOffset = appliedOffset;
+				this.segmentEnded = false;
+				pending.clear();
+
+				while (running) {
+					readFrame();
+				}
+			} catch (IOException ex) {
+				if (running) {
+					log.warn("Lost the primary at {}: {}", primary, ex.toString());
+				}
+			} finally {
+				closeChannel();
+			}
+
+			if (running) {
+				sleep();
+			}
+		}
+	}
+
+	private void readFrame() throws IOException {
+		header.clear().limit(ReplicationProtocol.HEADER_BYTES);
+		ReplicationProtocol.readFully(channel, header);
+		byte type = header.get(0);
+		int length = header.getInt(1);
+
+		switch (type) {
+		case ReplicationProtocol.RESET:
+			header.clear().limit(length);
+			ReplicationProtocol.readFully(channel, header);
+			header.flip();
+			listener.onClear();
+			startSegment(header.getLong(), header.getInt());
+			break;
+		case ReplicationProtocol.ACCOUNT:
+			header.clear().limit(length);
+			ReplicationProtocol.readFully(channel, header);
+			header.flip();
+			listener.onCreate(getString(header, StandardCharsets.UTF_8),
+					new BigDecimal(getString(header, StandardCharsets.US_ASCII)));
+			break;
+		case ReplicationProtocol.RECORDS:
+			header.clear().limit(ReplicationProtocol.RECORDS_HEADER_BYTES);
+			ReplicationProtocol.readFully(channel, header);
+			header.flip();
+			receive(header.getLong(), header.getInt(), length - ReplicationProtocol.RECORDS_HEADER_BYTES);
+			break;
+		case ReplicationProtocol.HEARTBEAT:
+			header.clear().limit(length);
+			ReplicationProtocol.readFully(channel, header);
+			header.flip();
+			this.headSegment = header.getLong();
+			this.headOffset = header.getInt();
+			this.segmentSize = header.getInt();
+			if (getLagBytes() == 0) {
+				this.caughtUpMillis = System.currentTimeMillis();
+			}
+			sendPosition(ReplicationProtocol.ACK);
+			break;
+		default:
+			throw new IOException("Unknown replication frame type " + type);
+		}
+	}
+
+	/**
+	 * Appends journal bytes to what is left of the previous chunk and applies
+	 * every record that is now complete. Bytes after the end of a segment are
+	 * its unused tail and are dropped.
+	 */
+	private void receive(long segmentIndex, int offset, int length) throws IOException {
+		if (segmentIndex != appliedSegment) {
+			startSegment(segmentIndex, offset);
+		}
+		if (offset != receivedOffset) {
+			throw new IOException("Expected journal offset " + receivedOffset + " in segment " + segmentIndex
+					+ " but got " + offset);
+		}
+
+		if (pending.remaining() < length) {
+			ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(pending.capacity() * 2, pending.position() + length));
+			pending.flip();
+			larger.put(pending);
+			this.pending = larger;
+		}
+		int limit = pending.limit();
+		pending.limit(pending.position() + length);
+		ReplicationProtocol.readFully(channel, pending);
+		pending.limit(limit);
+		this.receivedOffset += length;
+
+		if (segmentEnded) {
+			pending.clear();
+			return;
+		}
+
+		pending.flip();
+		Journal.replayRecords(pending, listener);
+		this.appliedOffset += pending.position();
+
+		if (pending.remaining() >= Integer.BYTES) {
+			int next = pending.getInt(pending.position());
+			if (next == 0) {
+				this.segmentEnded = true;
+				pending.clear();
+				return;
+			}
+			if (pending.remaining() >= 2 * Integer.BYTES + next) {
+				this.appliedSegment = -1;
+				throw new IOException("Corrupt journal record in segment " + segmentIndex + " at offset " + appliedOffset);
+			}
+		}
+		pending.compact();
+	}
+
+	private void startSegment(long segmentIndex, int offset) {
+		this.appliedSegment = segmentIndex;
+		this.appliedOffset = offset;
+		this.receivedOffset = offset;
+		this.segmentEnded = false;
+		pending.clear();
+	}
+
+	private void sendPosition(byte type) throws IOException {
+		ack.clear();
+		ack.put(type).putLong(appliedSegment).putInt(appliedOffset);
+		ack.flip();
+		while (ack.hasRemaining()) {
+			channel.write(ack);
+		}
+	}
+
+	private void closeChannel() {
+		SocketChannel current = channel;
+		this.channel = null;
+		if (current != null) {
+			try {
+				current.close();
+			} catch (IOException ex) {
+				log.debug("Failed to close the replication channel", ex);
+			}
+		}
+	}
+
+	private void sleep() {
+		try {
+			Thread.sleep(RECONNECT_MILLIS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			this.running = false;
+		}
+	}
+
+	private static String getString(ByteBuffer buffer, Charset charset) {
+		byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+		return new String(bytes, charset);
+	}
+}
@@ -0,0 +1,336 @@
+package com.db.awmd.challenge.repository.replication;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import com.db.awmd.challenge.repository.AccountsRepositoryJournaled;
+import com.db.awmd.challenge.repository.journal.Journal;
+import com.db.awmd.challenge.repository.journal.JournalPosition;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Primary side of replication. Every replica that connects gets a thread that
+ * streams the journal segments to it with {@link FileChannel#transferTo}, so
+ * records go from the page cache to the socket without being copied through
+ * the heap. A replica that has nothing yet, or whose segment was already
+ * deleted after a snapshot, first gets a copy of every account taken the same
+ * way as a snapshot, and the stream resumes from the journal position read
+ * before the copy.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("('${accounts.engine:locking}' == 'locking' or '${accounts.engine:locking}' == 'sequenced')"
+		+ " and '${accounts.repository:memory}' == 'journaled' and ${accounts.replication.port:0} > 0")
+public class JournalShipper implements PublicMetrics {
+
+	private static final int CHUNK_BYTES = 1 << 20;
+
+	private static final long HEARTBEAT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	private final AccountsRepositoryJournaled accountsRepository;
+
+	private final Journal journal;
+
+	private final ServerSocketChannel server;
+
+	private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+
+	private volatile boolean running = true;
+
+	@Autowired
+	public JournalShipper(AccountsRepositoryJournaled accountsRepository,
+			@Value("${accounts.replication.port:0}") int port) throws IOException {
+		this.accountsRepository = accountsRepository;
+		this.journal = accountsRepository.getJournal();
+		this.server = ServerSocketChannel.open();
+		this.server.bind(new InetSocketAddress(port));
+
+		Thread acceptor = new Thread(this::accept, "replication-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		log.info("Shipping the journal to replicas on port {}", getPort());
+	}
+
+	public int getPort() throws IOException {
+		return ((InetSocketAddress) server.getLocalAddress()).getPort();
+	}
+
+	@PreDestroy
+	public void shutdown() throws IOException {
+		this.running = false;
+		server.close();
+		for (Session session : sessions) {
+			session.close();
+		}
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		long head = journal.offsetOf(journal.position());
+		long maxLag = 0;
+		for (Session session : sessions) {
+			maxLag = Math.max(maxLag, head - session.ackedOffset);
+		}
+		return Arrays.asList(
+				new Metric<Number>("replication.replicas", sessions.size()),
+				new Metric<Number>("replication.lag.bytes", maxLag));
+	}
+
+	private void accept() {
+		while (running) {
+			try {
+				SocketChannel channel = server.accept();
+				Session session = new Session(channel);
+				sessions.add(session);
+
+				Thread shipper = new Thread(session, "replication-shipper-" + channel.getRemoteAddress());
+				shipper.setDaemon(true);
+				shipper.start();
+			} catch (IOException ex) {
+				if (running) {
+					log.warn("Failed to accept a replica", ex);
+				}
+			}
+		}
+	}
+
+	private final class Session implements Runnable {
+
+		private final SocketChannel channel;
+
+		private final ByteBuffer header = ByteBuffer.allocateDirect(64);
+
+		private final ByteBuffer acks = ByteBuffer.allocate(ReplicationProtocol.REPLICA_FRAME_BYTES * 64);
+
+		private volatile long ackedOffset;
+
+		private FileChannel segment;
+
+		private long segmentIndex;
+
+		private int offset;
+
+		private Session(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public void run() {
+			try {
+				channel.socket().setTcpNoDelay(true);
+				ByteBuffer hello = ByteBuffer.allocate(ReplicationProtocol.REPLICA_FRAME_BYTES);
+				ReplicationProtocol.readFully(channel, hello);
+				hello.flip();
+				hello.get();
+				long helloSegment = hello.getLong();
+				int helloOffset = hello.getInt();
+
+				if (helloSegment < 0 || !Files.exists(journal.segmentPath(helloSegment))) {
+					bootstrap();
+				} else {
+					openSegment(helloSegment, helloOffset);
+				}
+				this.ackedOffset = journal.offsetOf(new JournalPosition(segmentIndex, offset));
+				log.info("Replica {} follows from segment {} offset {}", channel.getRemoteAddress(), segmentIndex, offset);
+
+				channel.configureBlocking(false);
+				long lastHeartbeat = 0;
+				while (running) {
+					readAcks();
+					JournalPosition head = journal.position();
+					boolean shipped = ship(head);
+
+					long now = System.nanoTime();
+					if (now - lastHeartbeat >= HEARTBEAT_NANOS) {
+						heartbeat(head);
+						lastHeartbeat = now;
+					}
+					if (!shipped) {
+						LockSupport.parkNanos(IDLE_PARK_NANOS);
+					}
+				}
+			} catch (IOException ex) {
+				if (running) {
+					log.info("Replica disconnected: {}", ex.toString());
+				}
+			} finally {
+				close();
+			}
+		}
+
+		private void close() {
+			sessions.remove(this);
+			try {
+				channel.close();
+				if (segment != null) {
+					segment.close();
+				}
+			} catch (IOException ex) {
+				log.debug("Failed to close a replica session", ex);
+			}
+		}
+
+		/**
+		 * Sends a copy of every account, one stripe at a time. Each stripe is
+		 * copied under its lock and sent after releasing it, so a slow replica
+		 * never holds up transfers.
+		 */
+		private void bootstrap() throws IOException {
+			JournalPosition position = journal.position();
+
+			header.clear();
+			header.put(ReplicationProtocol.RESET).putInt(ReplicationProtocol.RECORDS_HEADER_BYTES)
+					.putLong(position.getSegmentIndex()).putInt(position.getOffset());
+			header.flip();
+			writeFully(header);
+
+			ByteBuffer frames = ByteBuffer.allocate(64 * 1024);
+			List<String> accountIds = new ArrayList<>();
+			List<BigDecimal> balances = new ArrayList<>();
+			for (int stripe = 0; stripe < accountsRepository.getStripes(); stripe++) {
+				accountIds.clear();
+				balances.clear();
+				accountsRepository.copyStripe(stripe, (accountId, balance) -> {
+					accountIds.add(accountId);
+					balances.add(balance);
+				});
+
+				for (int i = 0; i < accountIds.size(); i++) {
+					byte[] id = accountIds.get(i).getBytes(StandardCharsets.UTF_8);
+					byte[] balance = balances.get(i).toPlainString().getBytes(StandardCharsets.US_ASCII);
+					int length = 2 * Short.BYTES + id.length + balance.length;
+					if (frames.remaining() < ReplicationProtocol.HEADER_BYTES + length) {
+						frames.flip();
+						writeFully(frames);
+						frames.clear();
+					}
+					frames.put(ReplicationProtocol.ACCOUNT).putInt(length)
+							.putShort((short) id.length).put(id)
+							.putShort((short) balance.length).put(balance);
+				}
+			}
+			frames.flip();
+			writeFully(frames);
+
+			openSegment(position.getSegmentIndex(), position.getOffset());
+		}
+
+		/**
+		 * Ships the next chunk up to the head of the journal. A segment the
+		 * journal has rolled past is shipped to its end, where the zero length
+		 * marker tells the replica to move on.
+		 */
+		private boolean ship(JournalPosition head) throws IOException {
+			if (segmentIndex < head.getSegmentIndex()) {
+				int end = journal.getSegmentSize();
+				if (offset >= end) {
+					openSegment(segmentIndex + 1, 0);
+				} else {
+					send(Math.min(CHUNK_BYTES, end - offset));
+				}
+				return true;
+			}
+			if (offset < head.getOffset()) {
+				send(Math.min(CHUNK_BYTES, head.getOffset() - offset));
+				return true;
+			}
+			return false;
+		}
+
+		private void send(int length) throws IOException {
+			header.clear();
+			header.put(ReplicationProtocol.RECORDS).putInt(ReplicationProtocol.RECORDS_HEADER_BYTES + length)
+					.putLong(segmentIndex).putInt(offset);
+			header.flip();
+			writeFully(header);
+
+			long position = offset;
+			long remaining = length;
+			while (remaining > 0) {
+				long sent = segment.transferTo(position, remaining, channel);
+				if (sent == 0) {
+					awaitWritable();
+				}
+				position += sent;
+				remaining -= sent;
+			}
+			offset += length;
+		}
+
+		private void heartbeat(JournalPosition head) throws IOException {
+			header.clear();
+			header.put(ReplicationProtocol.HEARTBEAT).putInt(Long.BYTES + 2 * Integer.BYTES + Long.BYTES)
+					.putLong(head.getSegmentIndex()).putInt(head.getOffset())
+					.putInt(journal.getSegmentSize()).putLong(System.currentTimeMillis());
+			header.flip();
+			writeFully(header);
+		}
+
+		private void readAcks() throws IOException {
+			if (channel.read(acks) < 0) {
+				throw new EOFException("Replica closed the connection");
+			}
+			acks.flip();
+			while (acks.remaining() >= ReplicationProtocol.REPLICA_FRAME_BYTES) {
+				acks.get();
+				this.ackedOffset = journal.offsetOf(new JournalPosition(acks.getLong(), acks.getInt()));
+			}
+			acks.compact();
+		}
+
+		private void openSegment(long index, int position) throws IOException {
+			if (segment != null) {
+				segment.close();
+			}
+			this.segment = FileChannel.open(journal.segmentPath(index), StandardOpenOption.READ);
+			this.segmentIndex = index;
+			this.offset = position;
+		}
+
+		private void writeFully(ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining()) {
+				if (channel.write(buffer) == 0) {
+					awaitWritable();
+				}
+			}
+		}
+
+		private void awaitWritable() throws IOException {
+			if (!running) {
+				throw new IOException("Shutting down");
+			}
+			LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+		}
+	}
+}
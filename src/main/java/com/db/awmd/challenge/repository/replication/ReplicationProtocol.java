@@ -0,0 +1,60 @@
+package com.db.awmd.challenge.repository.replication;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Frames exchanged between a {@link JournalShipper} and a
+ * {@link JournalFollower}. The replica opens with {@link #HELLO} and its
+ * applied journal position, then acknowledges with {@link #ACK}; both are
+ * {@code [byte type][long segmentIndex][int offset]}. The primary answers
+ * with frames of {@code [byte type][int length][payload]}:
+ * <ul>
+ * <li>{@link #RESET} {@code [long segmentIndex][int offset]}: drop every
+ * account, the {@link #ACCOUNT} frames that follow are a copy of the primary
+ * and the journal resumes from that position;</li>
+ * <li>{@link #ACCOUNT} {@code [short length][id][short length][balance]},
+ * UTF-8 id and plain decimal balance;</li>
+ * <li>{@link #RECORDS} {@code [long segmentIndex][int offset][bytes]}: journal
+ * segment bytes as written on the primary, which may cut a record in two;</li>
+ * <li>{@link #HEARTBEAT} {@code [long segmentIndex][int offset][int
+ * segmentSize][long millis]}: the head of the primary's journal.</li>
+ * </ul>
+ * All numbers are big-endian.
+ */
+final class ReplicationProtocol {
+
+	static final byte HELLO = 1;
+
+	static final byte ACK = 2;
+
+	static final int REPLICA_FRAME_BYTES = 1 + Long.BYTES + Integer.BYTES;
+
+	static final byte RESET = 1;
+
+	static final byte ACCOUNT = 2;
+
+	static final byte RECORDS = 3;
+
+	static final byte HEARTBEAT = 4;
+
+	static final int HEADER_BYTES = 1 + Integer.BYTES;
+
+	static final int RECORDS_HEADER_BYTES = Long.BYTES + Integer.BYTES;
+
+	private ReplicationProtocol() {
+	}
+
+	/**
+	 * Reads until the buffer is full, for channels in blocking mode.
+	 */
+	static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new EOFException("Replication peer closed the connection");
+			}
+		}
+	}
+}
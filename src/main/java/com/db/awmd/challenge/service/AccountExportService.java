@@ -0,0 +1,283 @@
+package com.db.awmd.challenge.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountExport;
+import com.db.awmd.challenge.domain.ExportFormat;
+import com.db.awmd.challenge.exception.ExportNotFoundException;
+import com.db.awmd.challenge.exception.InvalidValueException;
+import com.db.awmd.challenge.repository.AccountChangeListener;
+import com.db.awmd.challenge.repository.AccountLocks;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Point-in-time account exports that run next to live transfers. Opening an
+ * export takes every lock stripe just long enough to register it, which is
+ * the cut. From then on the transfer engine saves the balance an account had
+ * at the cut before its first change ({@link #beforeBalanceChange}), and the
+ * export reads that saved balance instead of the live one. Extra memory is
+ * one entry per account changed while the export is open, released when it is
+ * closed or expires.
+ *
+ * An export is split into partitions that clients may stream in parallel or
+ * one after another as pages; a partition can be read again with the same
+ * result until the export is closed. The consistent view relies on writers
+ * holding the {@link AccountLocks} stripes, that is the locking engine; with
+ * the other engines the export is a weakly consistent walk.
+ *
+ * The binary format is big-endian: the int magic {@code ACCT}, a version
+ * byte, then per account the id as modified UTF-8 with a short length, the
+ * balance scale as a byte and the unscaled value as a length-prefixed two's
+ * complement byte array, ended by an empty id and the long record count.
+ */
+@Slf4j
+@Service
+public class AccountExportService implements AccountChangeListener {
+
+	static final int BINARY_MAGIC = 0x41434354;
+
+	static final int BINARY_VERSION = 1;
+
+	private static final int MAX_PARTITIONS = 65536;
+
+	private final AccountsRepository accountsRepository;
+
+	private final AccountLocks accountLocks;
+
+	private final long timeToLiveMillis;
+
+	private final Map<String, ExportSession> sessions = new ConcurrentHashMap<>();
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	private volatile ExportSession[] active = new ExportSession[0];
+
+	@Autowired
+	public AccountExportService(AccountsRepository accountsRepository, AccountLocks accountLocks,
+			@Value("${accounts.export.ttl-ms:3600000}") long timeToLiveMillis) {
+		this.accountsRepository = accountsRepository;
+		this.accountLocks = accountLocks;
+		this.timeToLiveMillis = timeToLiveMillis;
+	}
+
+	public synchronized AccountExport open(int partitions) {
+		if (partitions < 1 || partitions > MAX_PARTITIONS) {
+			throw new InvalidValueException();
+		}
+
+		ExportSession session = new ExportSession(UUID.randomUUID().toString(), partitions);
+		BitSet allStripes = new BitSet(accountLocks.size());
+		allStripes.set(0, accountLocks.size());
+
+		accountLocks.lockAll(allStripes);
+		try {
+			session.cutTime = Instant.now();
+			sessions.put(session.exportId, session);
+			active = sessions.values().toArray(new ExportSession[0]);
+		} finally {
+			accountLocks.unlockAll(allStripes);
+		}
+
+		log.info("Opened export {} with {} partitions", session.exportId, partitions);
+		return session.describe();
+	}
+
+	public AccountExport describe(String exportId, int partition) {
+		ExportSession session = session(exportId);
+		if (partition < 0 || partition >= session.partitions) {
+			throw new InvalidValueException();
+		}
+		return session.describe();
+	}
+
+	public void export(String exportId, int partition, ExportFormat format, OutputStream output) throws IOException {
+		ExportSession session = session(exportId);
+		AccountWriter writer = format == ExportFormat.BINARY
+				? new BinaryAccountWriter(output) : new NdjsonAccountWriter(jsonFactory, output);
+
+		try {
+			accountsRepository.forEachAccount(partition, session.partitions, account -> {
+				String accountId = account.getAccountId();
+				if (session.createdAfterCut.contains(accountId)) {
+					return;
+				}
+				try {
+					writer.write(accountId, balanceAtCut(session, account));
+				} catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			});
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+		writer.finish();
+	}
+
+	public synchronized void close(String exportId) {
+		if (sessions.remove(exportId) == null) {
+			throw new ExportNotFoundException(exportId);
+		}
+		active = sessions.values().toArray(new ExportSession[0]);
+		log.info("Closed export {}", exportId);
+	}
+
+	@Scheduled(fixedDelayString = "${accounts.export.expiry-check-ms:60000}")
+	public synchronized void expire() {
+		Instant oldest = Instant.now().minusMillis(timeToLiveMillis);
+		if (sessions.values().removeIf(session -> session.cutTime.isBefore(oldest))) {
+			active = sessions.values().toArray(new ExportSession[0]);
+		}
+	}
+
+	@Override
+	public void beforeBalanceChange(Account account) {
+		ExportSession[] open = this.active;
+		for (ExportSession session : open) {
+			session.balancesAtCut.putIfAbsent(account.getAccountId(), account.getBalance());
+		}
+	}
+
+	/**
+	 * Inserts and records the account under its stripe, which {@link #open}
+	 * also takes for the cut, so an account is either in the repository at
+	 * the cut or marked as created after it.
+	 */
+	@Override
+	public void create(Account account, Runnable insert) {
+		int stripe = accountLocks.stripeOf(account.getAccountId());
+		accountLocks.lock(stripe);
+		try {
+			insert.run();
+			ExportSession[] open = this.active;
+			for (ExportSession session : open) {
+				session.createdAfterCut.add(account.getAccountId());
+			}
+		} finally {
+			accountLocks.unlock(stripe);
+		}
+	}
+
+	private BigDecimal balanceAtCut(ExportSession session, Account account) {
+		int stripe = accountLocks.stripeOf(account.getAccountId());
+		accountLocks.lock(stripe);
+		try {
+			BigDecimal saved = session.balancesAtCut.get(account.getAccountId());
+			return saved != null ? saved : account.getBalance();
+		} finally {
+			accountLocks.unlock(stripe);
+		}
+	}
+
+	private ExportSession session(String exportId) {
+		ExportSession session = sessions.get(exportId);
+		if (session == null) {
+			throw new ExportNotFoundException(exportId);
+		}
+		return session;
+	}
+
+	private static final class ExportSession {
+
+		private final String exportId;
+
+		private final int partitions;
+
+		private final Map<String, BigDecimal> balancesAtCut = new ConcurrentHashMap<>();
+
+		private final Set<String> createdAfterCut = ConcurrentHashMap.newKeySet();
+
+		private volatile Instant cutTime;
+
+		private ExportSession(String exportId, int partitions) {
+			this.exportId = exportId;
+			this.partitions = partitions;
+		}
+
+		private AccountExport describe() {
+			return new AccountExport(exportId, partitions, cutTime.toString());
+		}
+	}
+
+	private interface AccountWriter {
+
+		void write(String accountId, BigDecimal balance) throws IOException;
+
+		void finish() throws IOException;
+	}
+
+	private static final class NdjsonAccountWriter implements AccountWriter {
+
+		private final JsonGenerator generator;
+
+		private NdjsonAccountWriter(JsonFactory jsonFactory, OutputStream output) throws IOException {
+			this.generator = jsonFactory.createGenerator(output, JsonEncoding.UTF8);
+			this.generator.setRootValueSeparator(null);
+		}
+
+		@Override
+		public void write(String accountId, BigDecimal balance) throws IOException {
+			generator.writeStartObject();
+			generator.writeStringField("accountId", accountId);
+			generator.writeNumberField("balance", balance);
+			generator.writeEndObject();
+			generator.writeRaw('\n');
+		}
+
+		@Override
+		public void finish() throws IOException {
+			generator.flush();
+		}
+	}
+
+	private static final class BinaryAccountWriter implements AccountWriter {
+
+		private final DataOutputStream output;
+
+		private long count;
+
+		private BinaryAccountWriter(OutputStream output) throws IOException {
+			this.output = new DataOutputStream(new BufferedOutputStream(output, 64 * 1024));
+			this.output.writeInt(BINARY_MAGIC);
+			this.output.writeByte(BINARY_VERSION);
+		}
+
+		@Override
+		public void write(String accountId, BigDecimal balance) throws IOException {
+			byte[] unscaled = balance.unscaledValue().toByteArray();
+			output.writeUTF(accountId);
+			output.writeByte(balance.scale());
+			output.writeByte(unscaled.length);
+			output.write(unscaled);
+			count++;
+		}
+
+		@Override
+		public void finish() throws IOException {
+			output.writeUTF("");
+			output.writeLong(count);
+			output.flush();
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package com.db.awmd.challenge.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.db.awmd.challenge.metrics.MeterRegistry;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.BloomFilter;
+import com.db.awmd.challenge.repository.FilteredAccountsRepository;
+
+/**
+ * Puts a {@link FilteredAccountsRepository} in front of the repository the
+ * service reads accounts from, so lookups of unknown ids (typos, scans,
+ * closed accounts) are answered without reaching the store. A replica
+ * receives its accounts from the primary's journal rather than through the
+ * repository, so the filter is left out there.
+ */
+@Component
+public class AccountIdFilter {
+
+	public static final AccountIdFilter DISABLED = new AccountIdFilter(false, 0, 0);
+
+	private final boolean enabled;
+
+	private final long expectedAccounts;
+
+	private final double falsePositiveRate;
+
+	@Autowired
+	public AccountIdFilter(@Value("${accounts.filter.enabled:true}") boolean enabled,
+			@Value("${accounts.filter.expected-accounts:1000000}") long expectedAccounts,
+			@Value("${accounts.filter.false-positive-rate:0.01}") double falsePositiveRate,
+			@Value("${accounts.engine:locking}") String engine) {
+		this(enabled && !"replica".equals(engine), expectedAccounts, falsePositiveRate);
+	}
+
+	public AccountIdFilter(boolean enabled, long expectedAccounts, double falsePositiveRate) {
+		this.enabled = enabled;
+		this.expectedAccounts = expectedAccounts;
+		this.falsePositiveRate = falsePositiveRate;
+	}
+
+	public AccountsRepository wrap(AccountsRepository accountsRepository, MeterRegistry meterRegistry) {
+		if (!enabled || accountsRepository instanceof FilteredAccountsRepository) {
+			return accountsRepository;
+		}
+		return new FilteredAccountsRepository(accountsRepository,
+				() -> new BloomFilter(expectedAccounts, falsePositiveRate), meterRegistry);
+	}
+}
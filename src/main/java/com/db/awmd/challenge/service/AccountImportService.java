@@ -0,0 +1,254 @@
+package com.db.awmd.challenge.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.ImportError;
+import com.db.awmd.challenge.domain.ImportFormat;
+import com.db.awmd.challenge.domain.ImportReport;
+import com.db.awmd.challenge.exception.BusinessException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates accounts from an NDJSON or CSV stream. The body is read one line at
+ * a time and each line is parsed and validated on its own, with the Jackson
+ * streaming parser for NDJSON. Valid accounts are handed to a worker pool in
+ * chunks and at most a few chunks are in flight, so memory stays flat however
+ * large the file is.
+ */
+@Slf4j
+@Service
+public class AccountImportService {
+
+	static final int MAX_REPORTED_ERRORS = 1000;
+
+	private final AccountsService accountsService;
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	private final ExecutorService executor;
+
+	private final int threads;
+
+	private final int chunkSize;
+
+	@Autowired
+	public AccountImportService(AccountsService accountsService,
+			@Value("${accounts.import.threads:0}") int threads,
+			@Value("${accounts.import.chunk-size:1000}") int chunkSize) {
+		this.accountsService = accountsService;
+		this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		this.chunkSize = chunkSize;
+		AtomicInteger workerIds = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+			Thread thread = new Thread(runnable, "account-import-" + workerIds.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public ImportReport importAccounts(InputStream body, ImportFormat format) throws IOException {
+		Import running = new Import(threads * 2);
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+		List<Line> chunk = new ArrayList<>(chunkSize);
+		long lineNumber = 0;
+		String line;
+
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			if (line.trim().isEmpty() || (format == ImportFormat.CSV && lineNumber == 1 && isCsvHeader(line))) {
+				continue;
+			}
+
+			try {
+				chunk.add(new Line(lineNumber, format == ImportFormat.CSV ? parseCsv(line) : parseJson(line)));
+			} catch (IOException | IllegalArgumentException ex) {
+				running.fail(lineNumber, ex.getMessage());
+			}
+
+			if (chunk.size() == chunkSize) {
+				running.submit(chunk);
+				chunk = new ArrayList<>(chunkSize);
+			}
+		}
+		if (!chunk.isEmpty()) {
+			running.submit(chunk);
+		}
+
+		ImportReport report = running.await();
+		log.info("Imported {} accounts, {} lines failed", report.getImported(), report.getFailed());
+		return report;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private Account parseJson(String line) throws IOException {
+		String accountId = null;
+		BigDecimal balance = null;
+
+		try (JsonParser parser = jsonFactory.createParser(line)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IllegalArgumentException("Expected a JSON object.");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if ("accountId".equals(field)) {
+					accountId = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+				} else if ("balance".equals(field)) {
+					balance = toBalance(value == JsonToken.VALUE_NULL ? null : parser.getText());
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+		return validate(accountId, balance);
+	}
+
+	private Account parseCsv(String line) {
+		int comma = line.indexOf(',');
+		if (comma < 0 || line.indexOf(',', comma + 1) >= 0) {
+			throw new IllegalArgumentException("Expected accountId,balance.");
+		}
+		return validate(line.substring(0, comma).trim(), toBalance(line.substring(comma + 1).trim()));
+	}
+
+	private static boolean isCsvHeader(String line) {
+		return line.trim().toLowerCase().startsWith("accountid");
+	}
+
+	private static BigDecimal toBalance(String text) {
+		if (text == null || text.isEmpty()) {
+			return null;
+		}
+		try {
+			return new BigDecimal(text);
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("Balance " + text + " is not a number.");
+		}
+	}
+
+	/**
+	 * Same rules as the constraints on {@link Account}.
+	 */
+	private static Account validate(String accountId, BigDecimal balance) {
+		if (accountId == null || accountId.isEmpty()) {
+			throw new IllegalArgumentException("accountId may not be empty.");
+		}
+		if (balance == null) {
+			throw new IllegalArgumentException("balance may not be null.");
+		}
+		if (balance.signum() < 0) {
+			throw new IllegalArgumentException("Initial balance must be positive.");
+		}
+		return new Account(accountId, balance);
+	}
+
+	private static final class Line {
+
+		private final long number;
+
+		private final Account account;
+
+		private Line(long number, Account account) {
+			this.number = number;
+			this.account = account;
+		}
+	}
+
+	/**
+	 * State of one import call. The semaphore bounds the chunks in flight so a
+	 * fast reader cannot queue the whole file in front of the workers.
+	 */
+	private final class Import {
+
+		private final Semaphore inFlight;
+
+		private final int permits;
+
+		private final LongAdder imported = new LongAdder();
+
+		private final LongAdder failed = new LongAdder();
+
+		private final Queue<ImportError> errors = new ConcurrentLinkedQueue<>();
+
+		private final AtomicInteger reportedErrors = new AtomicInteger();
+
+		private Import(int permits) {
+			this.permits = permits;
+			this.inFlight = new Semaphore(permits);
+		}
+
+		private void submit(List<Line> chunk) {
+			inFlight.acquireUninterruptibly();
+			try {
+				executor.execute(() -> {
+					try {
+						insert(chunk);
+					} finally {
+						inFlight.release();
+					}
+				});
+			} catch (RuntimeException ex) {
+				inFlight.release();
+				throw ex;
+			}
+		}
+
+		private void insert(List<Line> chunk) {
+			for (Line line : chunk) {
+				try {
+					accountsService.createAccount(line.account);
+					imported.increment();
+				} catch (BusinessException | IllegalArgumentException ex) {
+					fail(line.number, ex.getMessage());
+				}
+			}
+		}
+
+		private void fail(long line, String error) {
+			failed.increment();
+			if (reportedErrors.incrementAndGet() <= MAX_REPORTED_ERRORS) {
+				errors.add(new ImportError(line, error));
+			}
+		}
+
+		private ImportReport await() {
+			inFlight.acquireUninterruptibly(permits);
+			inFlight.release(permits);
+
+			List<ImportError> sorted = new ArrayList<>(errors);
+			sorted.sort(Comparator.comparingLong(ImportError::getLine));
+			return new ImportReport(imported.sum(), failed.sum(), sorted);
+		}
+	}
+}
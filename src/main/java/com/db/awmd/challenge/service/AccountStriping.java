@@ -0,0 +1,64 @@
+package com.db.awmd.challenge.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.StripedAccount;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides which accounts are created as {@link StripedAccount}s. Only the
+ * locking engine over the in-memory repository credits striped accounts
+ * without locking them; with any other setup the configured accounts are
+ * created as usual.
+ */
+@Slf4j
+@Component
+public class AccountStriping {
+
+	public static final AccountStriping DISABLED = new AccountStriping(Collections.emptySet(), 0);
+
+	private final Set<String> accountIds;
+
+	private final int cells;
+
+	public AccountStriping(Set<String> accountIds, int cells) {
+		this.accountIds = accountIds;
+		this.cells = cells > 0 ? cells : Runtime.getRuntime().availableProcessors();
+	}
+
+	@Autowired
+	public AccountStriping(@Value("${accounts.striping.accounts:}") String[] accountIds,
+			@Value("${accounts.striping.cells:0}") int cells,
+			@Value("${accounts.engine:locking}") String engine,
+			@Value("${accounts.repository:memory}") String repository) {
+		this(supported(accountIds, engine, repository), cells);
+	}
+
+	public boolean isStriped(String accountId) {
+		return accountIds.contains(accountId);
+	}
+
+	public Account apply(Account account) {
+		return isStriped(account.getAccountId()) ? StripedAccount.of(account, cells) : account;
+	}
+
+	private static Set<String> supported(String[] accountIds, String engine, String repository) {
+		if (accountIds.length == 0) {
+			return Collections.emptySet();
+		}
+		if (!"locking".equals(engine) || !"memory".equals(repository)) {
+			log.warn("Ignoring accounts.striping.accounts, striping needs the locking engine and the memory repository");
+			return Collections.emptySet();
+		}
+		return new HashSet<>(Arrays.asList(accountIds));
+	}
+}
@@ -1,16 +1,44 @@
 package com.db.awmd.challenge.service;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountSnapshot;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.FixedPointAccount;
+import com.db.awmd.challenge.domain.Money;
+import com.db.awmd.challenge.domain.MultiLegTransfer;
+import com.db.awmd.challenge.domain.TransferLeg;
 import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.domain.TransferRecord;
+import com.db.awmd.challenge.domain.TransferResult;
+import com.db.awmd.challenge.domain.TransferStatus;
 import com.db.awmd.challenge.exception.AccountNotFoundException;
+import com.db.awmd.challenge.exception.BusinessException;
 import com.db.awmd.challenge.exception.InvalidValueException;
-import com.db.awmd.challenge.exception.NoFundException;
+import com.db.awmd.challenge.metrics.Counter;
+import com.db.awmd.challenge.metrics.MeterRegistry;
+import com.db.awmd.challenge.metrics.Timer;
+import com.db.awmd.challenge.repository.AccountChangeListener;
 import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TimedAccountsRepository;
+import com.db.awmd.challenge.service.engine.BatchTransfer;
+import com.db.awmd.challenge.service.engine.TransferEngine;
+import com.db.awmd.challenge.service.ledger.TransferLedger;
 
 import lombok.Getter;
 
@@ -22,55 +50,352 @@ public class AccountsService {
 	
 	private final NotificationService notificationService;
 
+	private final TransferEngine transferEngine;
+
+	private final boolean fixedPointMoney;
+
+	private final MeterRegistry meterRegistry;
+
+	private final Timer transferTimer;
+
+	private final ConcurrentMap<Class<?>, Counter> rejectionCounters = new ConcurrentHashMap<>();
+
+	private final AccountChangeListener accountChangeListener;
+
+	private final TransferLedger transferLedger;
+
+	private final AccountStriping accountStriping;
+
 	@Autowired
-	public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService) {
-		this.accountsRepository = accountsRepository;
+	public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService,
+			TransferEngine transferEngine, @Value("${accounts.money.fixed-point:false}") boolean fixedPointMoney,
+			MeterRegistry meterRegistry, AccountChangeListener accountChangeListener, TransferLedger transferLedger,
+			AccountStriping accountStriping, AccountIdFilter accountIdFilter) {
+		this.accountsRepository = TimedAccountsRepository.wrap(accountIdFilter.wrap(accountsRepository, meterRegistry),
+				meterRegistry);
 		this.notificationService = notificationService;
+		this.transferEngine = transferEngine;
+		this.fixedPointMoney = fixedPointMoney;
+		this.meterRegistry = meterRegistry;
+		this.transferTimer = meterRegistry.timer("transfer");
+		this.accountChangeListener = accountChangeListener;
+		this.transferLedger = transferLedger;
+		this.accountStriping = accountStriping;
+	}
+
+	/**
+	 * Builds a service outside Spring, with every optional collaborator
+	 * disabled unless it is set.
+	 */
+	public static Builder builder(AccountsRepository accountsRepository, NotificationService notificationService,
+			TransferEngine transferEngine) {
+		return new Builder(accountsRepository, notificationService, transferEngine);
 	}
 
 	public void createAccount(Account account) {
-		this.accountsRepository.createAccount(account);
+		Account created;
+		if(this.accountStriping.isStriped(account.getAccountId())) {
+			created = this.accountStriping.apply(account);
+		} else {
+			created = fixedPointMoney ? FixedPointAccount.of(account) : account;
+		}
+		this.accountChangeListener.create(created, () -> this.accountsRepository.createAccount(created));
 	}
 
 	public Account getAccount(String accountId) {
 		return this.accountsRepository.getAccount(accountId);
 	}
 
-	public synchronized void transferValuesAccount(TransferMoney transferData) {
-		int negativeValue = -1;
-		int positiveValue = 1;
+	/**
+	 * Detached copy of the account as of one consistent read, never blocking a
+	 * transfer that is updating it.
+	 */
+	public AccountSnapshot getAccountSnapshot(String accountId) {
+		Account account = this.accountsRepository.getAccount(accountId);
+		return account == null ? null : account.snapshot();
+	}
+
+	/**
+	 * Applied transfers from or to the account with from &lt;= time &lt; to,
+	 * oldest first. Transfers show up shortly after they are applied, since the
+	 * ledger indexes them off the transfer path.
+	 */
+	public List<TransferRecord> getTransfers(String accountId, Instant from, Instant to, int limit) {
+		requireAccount(accountId);
+		return this.transferLedger.history(accountId, from, to, limit);
+	}
+
+	public void transferValuesAccount(TransferMoney transferData) {
+		long start = transferTimer.start();
+		try {
+			transfer(transferData);
+		} catch (BusinessException ex) {
+			countRejection(ex);
+			throw ex;
+		} finally {
+			transferTimer.recordSince(start);
+		}
+	}
+
+	/**
+	 * Same checks as {@link #transferValuesAccount(TransferMoney)}, but the
+	 * returned future completes when the transfer engine has applied the
+	 * transfer instead of the caller waiting for it. Rejections complete the
+	 * future exceptionally.
+	 */
+	public CompletableFuture<Void> transferValuesAccountAsync(TransferMoney transferData) {
+		long start = transferTimer.start();
+		CompletableFuture<Void> transfer;
+		try {
+			Account accountFrom = requireAccount(transferData.getAccountFrom());
+			Account accountTo = requireAccount(transferData.getAccountTo());
+			requirePositive(transferData.getValue());
+			requireRepresentable(accountFrom, accountTo, transferData.getValue());
+
+			transfer = this.transferEngine.transferAsync(accountFrom, accountTo, transferData.getValue())
+					.thenRun(() -> {
+						this.transferLedger.record(transferData);
+						notifyTransferenceOperation(transferData.getValue(), accountFrom, accountTo);
+					});
+		} catch (BusinessException ex) {
+			transfer = new CompletableFuture<>();
+			transfer.completeExceptionally(ex);
+		}
+
+		return transfer.whenComplete((ignored, ex) -> {
+			Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+			if (cause instanceof BusinessException) {
+				countRejection((BusinessException) cause);
+			}
+			transferTimer.recordSince(start);
+		});
+	}
+
+	private void transfer(TransferMoney transferData) {
+		Account accountFrom = requireAccount(transferData.getAccountFrom());
+		Account accountTo = requireAccount(transferData.getAccountTo());
+		requirePositive(transferData.getValue());
+		requireRepresentable(accountFrom, accountTo, transferData.getValue());
+
+		this.transferEngine.transfer(accountFrom, accountTo, transferData.getValue());
+		this.transferLedger.record(transferData);
+
+		notifyTransferenceOperation(transferData.getValue(), accountFrom, accountTo);
+	}
 
-		Account accountFrom = this.accountsRepository.getAccount(transferData.getAccountFrom());  
-		
-		if(accountFrom == null) {
-			throw new AccountNotFoundException(transferData.getAccountFrom());
+	private void countRejection(BusinessException ex) {
+		Counter counter = rejectionCounters.get(ex.getClass());
+		if (counter == null) {
+			counter = rejectionCounters.computeIfAbsent(ex.getClass(),
+					type -> meterRegistry.counter("transfer.rejected." + type.getSimpleName()));
 		}
+		counter.increment();
+	}
 
-		Account accountTo = this.accountsRepository.getAccount(transferData.getAccountTo());
+	private Account requireAccount(String accountId) {
+		Account account = this.accountsRepository.getAccount(accountId);
 
-		if(accountTo == null) {
-			throw new AccountNotFoundException(transferData.getAccountTo());
+		if(account == null) {
+			throw new AccountNotFoundException(accountId);
 		}
+		return account;
+	}
 
-		if(transferData.getValue().compareTo(BigDecimal.ZERO) != positiveValue) {
+	private void requirePositive(BigDecimal value) {
+		int positiveValue = 1;
+
+		if(value.compareTo(BigDecimal.ZERO) != positiveValue) {
 			throw new InvalidValueException();
 		}
+	}
+
+	/**
+	 * Fixed-point accounts only hold whole minor units, so a value with more
+	 * decimals is rejected here rather than by the account halfway through a
+	 * batch or multi-leg transfer.
+	 */
+	private void requireRepresentable(Account accountFrom, Account accountTo, BigDecimal value) {
+		if (accountFrom instanceof FixedPointAccount || accountTo instanceof FixedPointAccount) {
+			Money.toMinorUnits(value);
+		}
+	}
+
+	public List<TransferResult> transferValuesAccounts(List<TransferMoney> transfers, BatchMode mode) {
+		TransferResult[] results = new TransferResult[transfers.size()];
+		Map<String, Account> accounts = new HashMap<>();
+		List<BatchTransfer> accepted = new ArrayList<>(transfers.size());
+		List<Integer> acceptedIndexes = new ArrayList<>(transfers.size());
+
+		for (int i = 0; i < transfers.size(); i++) {
+			TransferMoney transferData = transfers.get(i);
+			try {
+				Account accountFrom = resolveAccount(accounts, transferData.getAccountFrom());
+				Account accountTo = resolveAccount(accounts, transferData.getAccountTo());
+
+				if(transferData.getValue().compareTo(BigDecimal.ZERO) <= 0) {
+					throw new InvalidValueException();
+				}
+				requireRepresentable(accountFrom, accountTo, transferData.getValue());
 
-		if(accountFrom.getBalance().subtract(transferData.getValue()).compareTo(BigDecimal.ZERO) == negativeValue) {
-			throw new NoFundException(accountFrom.getAccountId());
+				accepted.add(new BatchTransfer(transferData, accountFrom, accountTo));
+				acceptedIndexes.add(i);
+			} catch (BusinessException ex) {
+				results[i] = TransferResult.rejected(transferData, ex.getMessage());
+			}
 		}
 
-		accountTo.setBalance(accountTo.getBalance().add(transferData.getValue()));
-		accountFrom.setBalance(accountFrom.getBalance().subtract(transferData.getValue()));
+		if (mode == BatchMode.ALL_OR_NOTHING && accepted.size() < transfers.size()) {
+			for (int i = 0; i < results.length; i++) {
+				if (results[i] == null) {
+					results[i] = TransferResult.aborted(transfers.get(i));
+				}
+			}
+			return Arrays.asList(results);
+		}
 
-		accountsRepository.updateAccount(accountTo);
-		accountsRepository.updateAccount(accountFrom);
+		List<TransferResult> batchResults = this.transferEngine.transferBatch(accepted, mode);
 
-		notifyTransferenceOperation(transferData.getValue(), accountFrom, accountTo);
+		for (int i = 0; i < batchResults.size(); i++) {
+			TransferResult result = batchResults.get(i);
+			results[acceptedIndexes.get(i)] = result;
+
+			if (result.getStatus() == TransferStatus.APPLIED) {
+				BatchTransfer transfer = accepted.get(i);
+				this.transferLedger.record(transfer.getTransfer());
+				notifyTransferenceOperation(result.getValue(), transfer.getAccountFrom(), transfer.getAccountTo());
+			}
+		}
+
+		return Arrays.asList(results);
 	}
 
-	private synchronized void notifyTransferenceOperation(BigDecimal value, Account accountFrom, Account accountTo) {
-		notificationService.notifyAboutTransfer(accountTo, String.format("You received %s in your account", value));
-		notificationService.notifyAboutTransfer(accountFrom, String.format("You transfered %s from your account to the account %s", value, accountTo.getAccountId()));
+	/**
+	 * Debits the source account once with the total of the legs and credits
+	 * every leg, or rejects the whole transfer. The source owner is notified
+	 * once for the total and every credited owner once per leg.
+	 */
+	public void transferValuesAccountMultiLeg(MultiLegTransfer transferData) {
+		long start = transferTimer.start();
+		try {
+			transferMultiLeg(transferData);
+		} catch (BusinessException ex) {
+			countRejection(ex);
+			throw ex;
+		} finally {
+			transferTimer.recordSince(start);
+		}
+	}
+
+	private void transferMultiLeg(MultiLegTransfer transferData) {
+		Map<String, Account> accounts = new HashMap<>();
+		Account accountFrom = resolveAccount(accounts, transferData.getAccountFrom());
+		List<BatchTransfer> legs = new ArrayList<>(transferData.getLegs().size());
+		BigDecimal total = BigDecimal.ZERO;
+
+		for (TransferLeg leg : transferData.getLegs()) {
+			Account accountTo = resolveAccount(accounts, leg.getAccountTo());
+			requirePositive(leg.getValue());
+			requireRepresentable(accountFrom, accountTo, leg.getValue());
+
+			TransferMoney transfer = TransferMoney
+					.builder()
+					.accountFrom(accountFrom.getAccountId())
+					.accountTo(accountTo.getAccountId())
+					.value(leg.getValue())
+					.build();
+			legs.add(new BatchTransfer(transfer, accountFrom, accountTo));
+			total = total.add(leg.getValue());
+		}
+
+		this.transferEngine.transferMultiLeg(legs);
+
+		for (BatchTransfer leg : legs) {
+			this.transferLedger.record(leg.getTransfer());
+		}
+
+		if (!transferEngine.notifiesTransfers()) {
+			NotificationService.notifyMultiLegOwners(notificationService, accountFrom, total, legs);
+		}
+	}
+
+	private Account resolveAccount(Map<String, Account> accounts, String accountId) {
+		Account account = accounts.get(accountId);
+		if (account == null) {
+			account = this.accountsRepository.getAccount(accountId);
+			if (account == null) {
+				throw new AccountNotFoundException(accountId);
+			}
+			accounts.put(accountId, account);
+		}
+		return account;
+	}
+
+	private void notifyTransferenceOperation(BigDecimal value, Account accountFrom, Account accountTo) {
+		if (!transferEngine.notifiesTransfers()) {
+			NotificationService.notifyBothOwners(notificationService, accountFrom, accountTo, value);
+		}
+	}
+
+	public static final class Builder {
+
+		private final AccountsRepository accountsRepository;
+
+		private final NotificationService notificationService;
+
+		private final TransferEngine transferEngine;
+
+		private boolean fixedPointMoney;
+
+		private MeterRegistry meterRegistry = MeterRegistry.DISABLED;
+
+		private AccountChangeListener accountChangeListener = AccountChangeListener.NONE;
+
+		private TransferLedger transferLedger = TransferLedger.DISABLED;
+
+		private AccountStriping accountStriping = AccountStriping.DISABLED;
+
+		private AccountIdFilter accountIdFilter = AccountIdFilter.DISABLED;
+
+		private Builder(AccountsRepository accountsRepository, NotificationService notificationService,
+				TransferEngine transferEngine) {
+			this.accountsRepository = accountsRepository;
+			this.notificationService = notificationService;
+			this.transferEngine = transferEngine;
+		}
+
+		public Builder fixedPointMoney(boolean fixedPointMoney) {
+			this.fixedPointMoney = fixedPointMoney;
+			return this;
+		}
+
+		public Builder meterRegistry(MeterRegistry meterRegistry) {
+			this.meterRegistry = meterRegistry;
+			return this;
+		}
+
+		public Builder accountChangeListener(AccountChangeListener accountChangeListener) {
+			this.accountChangeListener = accountChangeListener;
+			return this;
+		}
+
+		public Builder transferLedger(TransferLedger transferLedger) {
+			this.transferLedger = transferLedger;
+			return this;
+		}
+
+		public Builder accountStriping(AccountStriping accountStriping) {
+			this.accountStriping = accountStriping;
+			return this;
+		}
+
+		public Builder accountIdFilter(AccountIdFilter accountIdFilter) {
+			this.accountIdFilter = accountIdFilter;
+			return this;
+		}
+
+		public AccountsService build() {
+			return new AccountsService(accountsRepository, notificationService, transferEngine, fixedPointMoney,
+					meterRegistry, accountChangeListener, transferLedger, accountStriping, accountIdFilter);
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,226 @@
+package com.db.awmd.challenge.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import com.db.awmd.challenge.domain.Account;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Takes notifications off the transfer path: callers only enqueue, and a
+ * dedicated worker pool drains the queue in batches into the
+ * {@link EmailNotificationService}. When the bounded queue is full the
+ * configured {@link BackpressurePolicy} decides whether the caller blocks, the
+ * notification is dropped, or it spills into a second bounded overflow queue
+ * that the workers drain alongside the main one; a notification that finds
+ * the overflow full as well is dropped.
+ */
+@Slf4j
+@Primary
+@Service
+public class AsyncNotificationService implements NotificationService, PublicMetrics {
+
+	private final NotificationService delegate;
+
+	private final BlockingQueue<Notification> queue;
+
+	private final BlockingQueue<Notification> overflow;
+
+	private final BackpressurePolicy backpressurePolicy;
+
+	private final int workers;
+
+	private final int batchSize;
+
+	private final LongAdder sent = new LongAdder();
+
+	private final LongAdder dropped = new LongAdder();
+
+	private final LongAdder spilled = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private volatile long lagMillis;
+
+	private volatile boolean running;
+
+	private ExecutorService executor;
+
+	@Autowired
+	public AsyncNotificationService(EmailNotificationService delegate,
+			@Value("${accounts.notifications.queue-capacity:10000}") int queueCapacity,
+			@Value("${accounts.notifications.workers:2}") int workers,
+			@Value("${accounts.notifications.batch-size:100}") int batchSize,
+			@Value("${accounts.notifications.overflow-capacity:100000}") int overflowCapacity,
+			@Value("${accounts.notifications.backpressure:BLOCK}") BackpressurePolicy backpressurePolicy) {
+		this((NotificationService) delegate, queueCapacity, workers, batchSize, overflowCapacity, backpressurePolicy);
+	}
+
+	public AsyncNotificationService(NotificationService delegate, int queueCapacity, int workers, int batchSize,
+			int overflowCapacity, BackpressurePolicy backpressurePolicy) {
+		this.delegate = delegate;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.overflow = new ArrayBlockingQueue<>(Math.max(1, overflowCapacity));
+		this.workers = workers;
+		this.batchSize = batchSize;
+		this.backpressurePolicy = backpressurePolicy;
+	}
+
+	@PostConstruct
+	public void start() {
+		AtomicInteger threadCount = new AtomicInteger();
+		this.running = true;
+		this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+			Thread thread = new Thread(runnable, "notification-worker-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		for (int i = 0; i < workers; i++) {
+			this.executor.execute(this::drain);
+		}
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		this.running = false;
+		this.executor.shutdown();
+		this.executor.awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public void notifyAboutTransfer(Account account, String transferDescription) {
+		Notification notification = new Notification(account, transferDescription, System.nanoTime());
+
+		switch (backpressurePolicy) {
+		case BLOCK:
+			try {
+				queue.put(notification);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				dropped.increment();
+			}
+			break;
+		case DROP:
+			if (!queue.offer(notification)) {
+				dropped.increment();
+			}
+			break;
+		case SPILL:
+			if (queue.offer(notification)) {
+				break;
+			}
+			if (overflow.offer(notification)) {
+				spilled.increment();
+			} else {
+				dropped.increment();
+			}
+			break;
+		}
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		return Arrays.asList(
+				new Metric<Number>("notifications.queue.depth", queue.size()),
+				new Metric<Number>("notifications.overflow.depth", overflow.size()),
+				new Metric<Number>("notifications.lag.ms", lagMillis),
+				new Metric<Number>("notifications.sent", sent.sum()),
+				new Metric<Number>("notifications.dropped", dropped.sum()),
+				new Metric<Number>("notifications.spilled", spilled.sum()),
+				new Metric<Number>("notifications.failed", failed.sum()));
+	}
+
+	/**
+	 * Takes whatever is already waiting in either queue before blocking on the
+	 * main one, so spilled notifications are not held up by the poll timeout.
+	 */
+	private void drain() {
+		List<Notification> batch = new ArrayList<>(batchSize);
+		List<Account> accounts = new ArrayList<>(batchSize);
+		List<String> descriptions = new ArrayList<>(batchSize);
+
+		while (running || !queue.isEmpty() || !overflow.isEmpty()) {
+			try {
+				Notification first = queue.poll();
+				if (first == null) {
+					first = overflow.poll();
+				}
+				if (first == null) {
+					first = queue.poll(100, TimeUnit.MILLISECONDS);
+				}
+				if (first == null) {
+					continue;
+				}
+
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				overflow.drainTo(batch, batchSize - batch.size());
+
+				send(batch, accounts, descriptions);
+				batch.clear();
+				accounts.clear();
+				descriptions.clear();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Hands the batch to the delegate in one call. A failed batch counts all of
+	 * its notifications as failed.
+	 */
+	private void send(List<Notification> batch, List<Account> accounts, List<String> descriptions) {
+		for (Notification notification : batch) {
+			accounts.add(notification.account);
+			descriptions.add(notification.description);
+		}
+
+		try {
+			delegate.notifyAboutTransfers(accounts, descriptions);
+			sent.add(batch.size());
+		} catch (RuntimeException ex) {
+			failed.add(batch.size());
+			log.warn("Failed to send a batch of {} notifications", batch.size(), ex);
+		}
+
+		lagMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batch.get(0).enqueuedAt);
+	}
+
+	private static final class Notification {
+
+		private final Account account;
+
+		private final String description;
+
+		private final long enqueuedAt;
+
+		private Notification(Account account, String description, long enqueuedAt) {
+			this.account = account;
+			this.description = description;
+			this.enqueuedAt = enqueuedAt;
+		}
+	}
+}
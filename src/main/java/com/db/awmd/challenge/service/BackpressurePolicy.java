@@ -0,0 +1,10 @@
+package com.db.awmd.challenge.service;
+
+public enum BackpressurePolicy {
+
+	BLOCK,
+
+	DROP,
+
+	SPILL
+}
@@ -0,0 +1,197 @@
+package com.db.awmd.challenge.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Service;
+
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.exception.BusinessException;
+import com.db.awmd.challenge.exception.IdempotencyKeyReusedException;
+
+/**
+ * Remembers the outcome of transfers by their Idempotency-Key so a client retry
+ * gets the stored result instead of moving the money again. A retry that
+ * arrives while the first attempt is still running waits for its outcome.
+ * Entries are evicted in insertion order once the cache is full or they are
+ * older than the time to live; since the time to live is the same for every
+ * entry, the oldest insertion is also the first to expire. A retry must name
+ * the same accounts and amount, though the amount may use another scale.
+ */
+@Service
+public class IdempotencyCache implements PublicMetrics {
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger size = new AtomicInteger();
+
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	private final int maxEntries;
+
+	private final long timeToLiveNanos;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	@Autowired
+	public IdempotencyCache(@Value("${accounts.idempotency.max-entries:100000}") int maxEntries,
+			@Value("${accounts.idempotency.ttl-ms:86400000}") long timeToLiveMillis) {
+		this.maxEntries = maxEntries;
+		this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLiveMillis);
+	}
+
+	public void execute(String idempotencyKey, TransferMoney transfer, Runnable action) {
+		long now = System.nanoTime();
+		Entry entry = entries.get(idempotencyKey);
+
+		if (entry != null && entry.isExpired(now)) {
+			evict(entry);
+			entry = null;
+		}
+
+		if (entry == null) {
+			Entry created = new Entry(idempotencyKey, transfer, now + timeToLiveNanos);
+			entry = entries.putIfAbsent(idempotencyKey, created);
+			if (entry == null) {
+				misses.increment();
+				register(created, now);
+				run(created, action);
+				return;
+			}
+		}
+
+		hits.increment();
+		if (!entry.isFor(transfer)) {
+			throw new IdempotencyKeyReusedException(idempotencyKey);
+		}
+		entry.replay();
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		return Arrays.asList(
+				new Metric<Number>("idempotency.size", size.get()),
+				new Metric<Number>("idempotency.hits", hits.sum()),
+				new Metric<Number>("idempotency.misses", misses.sum()),
+				new Metric<Number>("idempotency.evictions", evictions.sum()));
+	}
+
+	private void run(Entry entry, Runnable action) {
+		try {
+			action.run();
+			entry.outcome.complete(null);
+		} catch (BusinessException ex) {
+			entry.outcome.complete(ex);
+			throw ex;
+		} catch (RuntimeException ex) {
+			evict(entry);
+			entry.outcome.completeExceptionally(ex);
+			throw ex;
+		}
+	}
+
+	/**
+	 * Evicts from the head of the insertion order, but never an entry whose
+	 * transfer is still running, so a retry can always find it; while the
+	 * oldest transfer runs, the cache can grow past its maximum size. Only one
+	 * thread evicts at a time and the others skip it, so a burst of misses can
+	 * briefly leave a few entries too many until the next miss evicts them.
+	 */
+	private void register(Entry entry, long now) {
+		insertionOrder.add(entry);
+		size.incrementAndGet();
+
+		if (!needsEviction(insertionOrder.peek(), now) || !evictionLock.tryLock()) {
+			return;
+		}
+		try {
+			Entry oldest;
+			while (needsEviction(oldest = insertionOrder.peek(), now)) {
+				if (!oldest.outcome.isDone() && entries.get(oldest.key) == oldest) {
+					return;
+				}
+				evict(insertionOrder.poll());
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	private boolean needsEviction(Entry oldest, long now) {
+		return oldest != null && (size.get() > maxEntries || oldest.isExpired(now));
+	}
+
+	private void evict(Entry entry) {
+		if (entries.remove(entry.key, entry)) {
+			size.decrementAndGet();
+			evictions.increment();
+		}
+	}
+
+	private static final class Entry {
+
+		private final String key;
+
+		private final TransferMoney transfer;
+
+		private final long expiresAt;
+
+		private final CompletableFuture<BusinessException> outcome = new CompletableFuture<>();
+
+		private Entry(String key, TransferMoney transfer, long expiresAt) {
+			this.key = key;
+			this.transfer = transfer;
+			this.expiresAt = expiresAt;
+		}
+
+		/**
+		 * Same accounts and the same amount, whatever the scale it was sent
+		 * with.
+		 */
+		private boolean isFor(TransferMoney other) {
+			return transfer.getAccountFrom().equals(other.getAccountFrom())
+					&& transfer.getAccountTo().equals(other.getAccountTo())
+					&& transfer.getValue().compareTo(other.getValue()) == 0;
+		}
+
+		private boolean isExpired(long now) {
+			return now - expiresAt > 0;
+		}
+
+		private void replay() {
+			BusinessException failure;
+			try {
+				failure = outcome.get();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for transfer " + key, ex);
+			} catch (ExecutionException ex) {
+				throw (RuntimeException) ex.getCause();
+			}
+
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+}
@@ -1,8 +1,43 @@
 package com.db.awmd.challenge.service;
 
+import java.math.BigDecimal;
+import java.util.List;
+
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.service.engine.BatchTransfer;
 
 public interface NotificationService {
 
   void notifyAboutTransfer(Account account, String transferDescription);
+
+  /**
+   * Sends the notifications of a batch, {@code transferDescriptions.get(i)}
+   * to the owner of {@code accounts.get(i)}. Services that can send several
+   * at once override it; by default they are sent one by one.
+   */
+  default void notifyAboutTransfers(List<Account> accounts, List<String> transferDescriptions) {
+    for (int i = 0; i < accounts.size(); i++) {
+      notifyAboutTransfer(accounts.get(i), transferDescriptions.get(i));
+    }
+  }
+
+  static void notifyBothOwners(NotificationService notificationService, Account accountFrom, Account accountTo,
+      BigDecimal value) {
+    notificationService.notifyAboutTransfer(accountTo, "You received " + value + " in your account");
+    notificationService.notifyAboutTransfer(accountFrom, "You transfered " + value + " from your account to the account " + accountTo.getAccountId());
+  }
+
+  /**
+   * Every credited owner is notified once per leg and the source owner once
+   * for the total.
+   */
+  static void notifyMultiLegOwners(NotificationService notificationService, Account accountFrom, BigDecimal total,
+      List<BatchTransfer> legs) {
+    for (BatchTransfer leg : legs) {
+      notificationService.notifyAboutTransfer(leg.getAccountTo(),
+          "You received " + leg.getTransfer().getValue() + " in your account");
+    }
+    notificationService.notifyAboutTransfer(accountFrom,
+        "You transfered " + total + " from your account to " + legs.size() + " accounts");
+  }
 }
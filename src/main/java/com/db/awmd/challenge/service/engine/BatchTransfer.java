@@ -0,0 +1,16 @@
+package com.db.awmd.challenge.service.engine;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferMoney;
+
+import lombok.Value;
+
+@Value
+public class BatchTransfer {
+
+	private final TransferMoney transfer;
+
+	private final Account accountFrom;
+
+	private final Account accountTo;
+}
@@ -0,0 +1,464 @@
+package com.db.awmd.challenge.service.engine;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.FixedPointAccount;
+import com.db.awmd.challenge.domain.Money;
+import com.db.awmd.challenge.domain.StripedAccount;
+import com.db.awmd.challenge.domain.TransferResult;
+import com.db.awmd.challenge.exception.BalanceOverflowException;
+import com.db.awmd.challenge.exception.NoFundException;
+import com.db.awmd.challenge.metrics.MeterRegistry;
+import com.db.awmd.challenge.metrics.Timer;
+import com.db.awmd.challenge.repository.AccountChangeListener;
+import com.db.awmd.challenge.repository.AccountLocks;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TimedAccountsRepository;
+import com.db.awmd.challenge.repository.TransferJournal;
+
+/**
+ * Locks only the accounts involved in a transfer. Account ids are hashed onto
+ * the {@link AccountLocks} stripes, which are always taken in ascending order,
+ * so opposite transfers between the same accounts can never deadlock and
+ * transfers between disjoint accounts run in parallel. Batches lock every
+ * stripe of an account group once and apply the whole group under it.
+ * {@link StripedAccount}s are credited without taking their stripe, so
+ * transfers into one hot account only contend on their source accounts.
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.engine", havingValue = "locking", matchIfMissing = true)
+public class LockingTransferEngine implements TransferEngine {
+
+	private final AccountsRepository accountsRepository;
+
+	private final TransferJournal transferJournal;
+
+	private final AccountLocks accountLocks;
+
+	private final AccountChangeListener accountChangeListener;
+
+	private final Timer lockWaitTimer;
+
+	private final Timer criticalSectionTimer;
+
+	public LockingTransferEngine(AccountsRepository accountsRepository) {
+		this(accountsRepository, new AccountLocks());
+	}
+
+	public LockingTransferEngine(AccountsRepository accountsRepository, AccountLocks accountLocks) {
+		this(accountsRepository, accountLocks, MeterRegistry.DISABLED);
+	}
+
+	public LockingTransferEngine(AccountsRepository accountsRepository, AccountLocks accountLocks,
+			MeterRegistry meterRegistry) {
+		this(accountsRepository, accountLocks, meterRegistry, AccountChangeListener.NONE);
+	}
+
+	@Autowired
+	public LockingTransferEngine(AccountsRepository accountsRepository, AccountLocks accountLocks,
+			MeterRegistry meterRegistry, AccountChangeListener accountChangeListener) {
+		this.accountsRepository = TimedAccountsRepository.wrap(accountsRepository, meterRegistry);
+		this.transferJournal = accountsRepository instanceof TransferJournal
+				? (TransferJournal) accountsRepository : TransferJournal.NONE;
+		this.accountLocks = accountLocks;
+		this.accountChangeListener = accountChangeListener;
+		this.lockWaitTimer = meterRegistry.timer("transfer.lock.wait");
+		this.criticalSectionTimer = meterRegistry.timer("transfer.lock.held");
+	}
+
+	@Override
+	public void transfer(Account accountFrom, Account accountTo, BigDecimal value) {
+		if (accountFrom instanceof StripedAccount || accountTo instanceof StripedAccount) {
+			transferStriped(accountFrom, accountTo, value);
+			return;
+		}
+
+		boolean fixedPoint = accountFrom instanceof FixedPointAccount && accountTo instanceof FixedPointAccount;
+		long valueUnits = fixedPoint ? Money.toMinorUnits(value) : 0;
+
+		int fromStripe = accountLocks.stripeOf(accountFrom.getAccountId());
+		int toStripe = accountLocks.stripeOf(accountTo.getAccountId());
+
+		long start = lockWaitTimer.start();
+		accountLocks.lockPair(fromStripe, toStripe);
+		long locked = criticalSectionTimer.start();
+		try {
+			if (fixedPoint) {
+				applyFixedPoint((FixedPointAccount) accountFrom, (FixedPointAccount) accountTo, valueUnits, value);
+			} else {
+				apply(accountFrom, accountTo, value);
+			}
+		} finally {
+			accountLocks.unlockPair(fromStripe, toStripe);
+			criticalSectionTimer.recordSince(locked);
+			lockWaitTimer.record(locked - start);
+		}
+	}
+
+	private void transferStriped(Account accountFrom, Account accountTo, BigDecimal value) {
+		int fromStripe = accountLocks.stripeOf(accountFrom.getAccountId());
+		int toStripe = accountTo instanceof StripedAccount ? fromStripe : accountLocks.stripeOf(accountTo.getAccountId());
+
+		long start = lockWaitTimer.start();
+		accountLocks.lockPair(fromStripe, toStripe);
+		long locked = criticalSectionTimer.start();
+		try {
+			applyStriped(accountFrom, accountTo, value);
+		} finally {
+			accountLocks.unlockPair(fromStripe, toStripe);
+			criticalSectionTimer.recordSince(locked);
+			lockWaitTimer.record(locked - start);
+		}
+	}
+
+	@Override
+	public List<TransferResult> transferBatch(List<BatchTransfer> transfers, BatchMode mode) {
+		if (mode == BatchMode.ALL_OR_NOTHING) {
+			BitSet lockedStripes = new BitSet(accountLocks.size());
+			transfers.forEach(transfer -> markStripes(transfer, lockedStripes));
+
+			accountLocks.lockAll(lockedStripes);
+			try {
+				return applyAllOrNothing(transfers);
+			} finally {
+				accountLocks.unlockAll(lockedStripes);
+			}
+		}
+
+		TransferResult[] results = new TransferResult[transfers.size()];
+		for (List<Integer> group : groupByAccounts(transfers)) {
+			BitSet lockedStripes = new BitSet(accountLocks.size());
+			group.forEach(index -> markStripes(transfers.get(index), lockedStripes));
+
+			accountLocks.lockAll(lockedStripes);
+			try {
+				for (Integer index : group) {
+					results[index] = applyBestEffort(transfers.get(index));
+				}
+			} finally {
+				accountLocks.unlockAll(lockedStripes);
+			}
+		}
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Locks the source stripe and the stripes of every credited account that is
+	 * not striped, in ascending order as one set, then checks the source once
+	 * for the total of the legs.
+	 */
+	@Override
+	public void transferMultiLeg(List<BatchTransfer> legs) {
+		Account accountFrom = legs.get(0).getAccountFrom();
+		BitSet lockedStripes = new BitSet(accountLocks.size());
+		lockedStripes.set(accountLocks.stripeOf(accountFrom.getAccountId()));
+		for (BatchTransfer leg : legs) {
+			if (!(leg.getAccountTo() instanceof StripedAccount)) {
+				lockedStripes.set(accountLocks.stripeOf(leg.getAccountTo().getAccountId()));
+			}
+		}
+
+		long start = lockWaitTimer.start();
+		accountLocks.lockAll(lockedStripes);
+		long locked = criticalSectionTimer.start();
+		try {
+			applyMultiLeg(accountFrom, legs);
+		} finally {
+			accountLocks.unlockAll(lockedStripes);
+			criticalSectionTimer.recordSince(locked);
+			lockWaitTimer.record(locked - start);
+		}
+	}
+
+	private void apply(Account accountFrom, Account accountTo, BigDecimal value) {
+		if (accountFrom instanceof StripedAccount || accountTo instanceof StripedAccount) {
+			applyStriped(accountFrom, accountTo, value);
+			return;
+		}
+
+		if(accountFrom.getBalance().compareTo(value) < 0) {
+			throw new NoFundException(accountFrom.getAccountId());
+		}
+
+		BigDecimal toBalance = accountTo.getBalance().add(value);
+		BigDecimal fromBalance = (TransferEngine.isSelfTransfer(accountFrom, accountTo) ? toBalance
+				: accountFrom.getBalance()).subtract(value);
+
+		transferJournal.appendTransfer(accountFrom.getAccountId(), accountTo.getAccountId(), value,
+				fromBalance, toBalance);
+
+		accountChangeListener.beforeBalanceChange(accountTo);
+		accountChangeListener.beforeBalanceChange(accountFrom);
+		accountTo.setBalance(toBalance);
+		accountFrom.setBalance(fromBalance);
+
+		accountsRepository.updateAccount(accountTo);
+		accountsRepository.updateAccount(accountFrom);
+	}
+
+	private void applyFixedPoint(FixedPointAccount accountFrom, FixedPointAccount accountTo, long valueUnits,
+			BigDecimal value) {
+		if(accountFrom.getBalanceUnits() < valueUnits) {
+			throw new NoFundException(accountFrom.getAccountId());
+		}
+
+		if(accountTo.getBalanceUnits() > Long.MAX_VALUE - valueUnits) {
+			throw new BalanceOverflowException(accountTo.getAccountId());
+		}
+
+		long toBalance = accountTo.getBalanceUnits() + valueUnits;
+		long fromBalance = (TransferEngine.isSelfTransfer(accountFrom, accountTo) ? toBalance
+				: accountFrom.getBalanceUnits()) - valueUnits;
+
+		if (transferJournal != TransferJournal.NONE) {
+			transferJournal.appendTransfer(accountFrom.getAccountId(), accountTo.getAccountId(), value,
+					Money.toBigDecimal(fromBalance), Money.toBigDecimal(toBalance));
+		}
+
+		accountChangeListener.beforeBalanceChange(accountTo);
+		accountChangeListener.beforeBalanceChange(accountFrom);
+		accountTo.setBalanceUnits(toBalance);
+		accountFrom.setBalanceUnits(fromBalance);
+
+		accountsRepository.updateAccount(accountTo);
+		accountsRepository.updateAccount(accountFrom);
+	}
+
+	/**
+	 * Caller holds the stripe of the source account, and of the destination
+	 * unless it is striped. A striped source is debited under its stripe, so
+	 * debits stay serialized while credits race freely.
+	 */
+	private void applyStriped(Account accountFrom, Account accountTo, BigDecimal value) {
+		long valueUnits = Money.toMinorUnits(value);
+
+		if(!canCredit(accountTo, valueUnits)) {
+			throw new BalanceOverflowException(accountTo.getAccountId());
+		}
+		if(!debit(accountFrom, value, valueUnits)) {
+			throw new NoFundException(accountFrom.getAccountId());
+		}
+		try {
+			credit(accountTo, value, valueUnits);
+		} catch (BalanceOverflowException ex) {
+			credit(accountFrom, value, valueUnits);
+			throw ex;
+		}
+
+		if (transferJournal != TransferJournal.NONE) {
+			transferJournal.appendTransfer(accountFrom.getAccountId(), accountTo.getAccountId(), value,
+					accountFrom.getBalance(), accountTo.getBalance());
+		}
+
+		accountsRepository.updateAccount(accountTo);
+		accountsRepository.updateAccount(accountFrom);
+	}
+
+	private boolean debit(Account account, BigDecimal value, long valueUnits) {
+		accountChangeListener.beforeBalanceChange(account);
+		if (account instanceof StripedAccount) {
+			return ((StripedAccount) account).debitUnits(valueUnits);
+		}
+
+		BigDecimal balance = account.getBalance();
+		if (balance.compareTo(value) < 0) {
+			return false;
+		}
+		account.setBalance(balance.subtract(value));
+		return true;
+	}
+
+	private static boolean canCredit(Account account, long valueUnits) {
+		return !(account instanceof FixedPointAccount)
+				|| ((FixedPointAccount) account).getBalanceUnits() <= Long.MAX_VALUE - valueUnits;
+	}
+
+	private void credit(Account account, BigDecimal value, long valueUnits) {
+		accountChangeListener.beforeBalanceChange(account);
+		if (account instanceof StripedAccount) {
+			((StripedAccount) account).creditUnits(valueUnits);
+		} else {
+			account.setBalance(account.getBalance().add(value));
+		}
+	}
+
+	private TransferResult applyBestEffort(BatchTransfer transfer) {
+		try {
+			apply(transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getTransfer().getValue());
+			return TransferResult.applied(transfer.getTransfer());
+		} catch (NoFundException ex) {
+			return TransferResult.rejected(transfer.getTransfer(), ex.getMessage());
+		}
+	}
+
+	private List<TransferResult> applyAllOrNothing(List<BatchTransfer> transfers) {
+		Map<String, Account> accounts = new LinkedHashMap<>();
+		Map<String, BigDecimal> initialBalances = new HashMap<>();
+		Map<String, BigDecimal> balances = new HashMap<>();
+		BigDecimal[] fromBalances = new BigDecimal[transfers.size()];
+		BigDecimal[] toBalances = new BigDecimal[transfers.size()];
+
+		for (int i = 0; i < transfers.size(); i++) {
+			BatchTransfer transfer = transfers.get(i);
+			BigDecimal value = transfer.getTransfer().getValue();
+			BigDecimal fromBalance = workingBalance(transfer.getAccountFrom(), accounts, initialBalances, balances);
+
+			if (fromBalance.compareTo(value) < 0) {
+				List<TransferResult> results = new ArrayList<>(transfers.size());
+				for (int j = 0; j < transfers.size(); j++) {
+					results.add(j == i
+							? TransferResult.rejected(transfer.getTransfer(),
+									new NoFundException(transfer.getAccountFrom().getAccountId()).getMessage())
+							: TransferResult.aborted(transfers.get(j).getTransfer()));
+				}
+				return results;
+			}
+
+			fromBalances[i] = fromBalance.subtract(value);
+			balances.put(transfer.getAccountFrom().getAccountId(), fromBalances[i]);
+			toBalances[i] = workingBalance(transfer.getAccountTo(), accounts, initialBalances, balances).add(value);
+			balances.put(transfer.getAccountTo().getAccountId(), toBalances[i]);
+		}
+
+		commit(transfers, accounts, initialBalances, balances, fromBalances, toBalances);
+
+		List<TransferResult> results = new ArrayList<>(transfers.size());
+		transfers.forEach(transfer -> results.add(TransferResult.applied(transfer.getTransfer())));
+		return results;
+	}
+
+	private void applyMultiLeg(Account accountFrom, List<BatchTransfer> legs) {
+		BigDecimal total = BigDecimal.ZERO;
+		for (BatchTransfer leg : legs) {
+			total = total.add(leg.getTransfer().getValue());
+		}
+
+		Map<String, Account> accounts = new LinkedHashMap<>();
+		Map<String, BigDecimal> initialBalances = new HashMap<>();
+		Map<String, BigDecimal> balances = new HashMap<>();
+		BigDecimal fromBalance = workingBalance(accountFrom, accounts, initialBalances, balances);
+
+		if(fromBalance.compareTo(total) < 0) {
+			throw new NoFundException(accountFrom.getAccountId());
+		}
+
+		BigDecimal[] fromBalances = new BigDecimal[legs.size()];
+		BigDecimal[] toBalances = new BigDecimal[legs.size()];
+		for (int i = 0; i < legs.size(); i++) {
+			BatchTransfer leg = legs.get(i);
+			BigDecimal value = leg.getTransfer().getValue();
+
+			fromBalances[i] = balances.get(accountFrom.getAccountId()).subtract(value);
+			balances.put(accountFrom.getAccountId(), fromBalances[i]);
+			toBalances[i] = workingBalance(leg.getAccountTo(), accounts, initialBalances, balances).add(value);
+			balances.put(leg.getAccountTo().getAccountId(), toBalances[i]);
+		}
+
+		commit(legs, accounts, initialBalances, balances, fromBalances, toBalances);
+	}
+
+	/**
+	 * Rejects a net credit that would overflow a striped account, journals
+	 * every transfer with the balances it leaves behind, then moves each
+	 * account to its final balance.
+	 */
+	private void commit(List<BatchTransfer> transfers, Map<String, Account> accounts,
+			Map<String, BigDecimal> initialBalances, Map<String, BigDecimal> balances, BigDecimal[] fromBalances,
+			BigDecimal[] toBalances) {
+		accounts.forEach((accountId, account) -> {
+			if (account instanceof StripedAccount) {
+				BigDecimal change = balances.get(accountId).subtract(initialBalances.get(accountId));
+				if (change.signum() > 0 && !canCredit(account, Money.toMinorUnits(change))) {
+					throw new BalanceOverflowException(accountId);
+				}
+			}
+		});
+
+		for (int i = 0; i < transfers.size(); i++) {
+			BatchTransfer transfer = transfers.get(i);
+			transferJournal.appendTransfer(transfer.getAccountFrom().getAccountId(),
+					transfer.getAccountTo().getAccountId(), transfer.getTransfer().getValue(),
+					fromBalances[i], toBalances[i]);
+		}
+
+		accounts.forEach((accountId, account) -> {
+			accountChangeListener.beforeBalanceChange(account);
+			if (account instanceof StripedAccount) {
+				adjust((StripedAccount) account, balances.get(accountId).subtract(initialBalances.get(accountId)));
+			} else {
+				account.setBalance(balances.get(accountId));
+			}
+			accountsRepository.updateAccount(account);
+		});
+	}
+
+	private BigDecimal workingBalance(Account account, Map<String, Account> accounts,
+			Map<String, BigDecimal> initialBalances, Map<String, BigDecimal> balances) {
+		if (accounts.putIfAbsent(account.getAccountId(), account) == null) {
+			initialBalances.put(account.getAccountId(), account.getBalance());
+		}
+		return balances.computeIfAbsent(account.getAccountId(), initialBalances::get);
+	}
+
+	/**
+	 * Applies the net change of a batch to a striped account. Credits may have
+	 * landed since its balance was read, so the balance is never replaced, and
+	 * a net debit always finds the funds that were checked.
+	 */
+	private void adjust(StripedAccount account, BigDecimal change) {
+		long changeUnits = Money.toMinorUnits(change);
+		if (changeUnits >= 0) {
+			account.creditUnits(changeUnits);
+		} else {
+			account.debitUnits(-changeUnits);
+		}
+	}
+
+	private List<List<Integer>> groupByAccounts(List<BatchTransfer> transfers) {
+		Map<String, String> parents = new HashMap<>();
+		for (BatchTransfer transfer : transfers) {
+			String fromRoot = root(parents, transfer.getAccountFrom().getAccountId());
+			String toRoot = root(parents, transfer.getAccountTo().getAccountId());
+			if (!fromRoot.equals(toRoot)) {
+				parents.put(fromRoot, toRoot);
+			}
+		}
+
+		Map<String, List<Integer>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < transfers.size(); i++) {
+			groups.computeIfAbsent(root(parents, transfers.get(i).getAccountFrom().getAccountId()),
+					key -> new ArrayList<>()).add(i);
+		}
+		return new ArrayList<>(groups.values());
+	}
+
+	private String root(Map<String, String> parents, String accountId) {
+		String root = accountId;
+		String parent;
+		while ((parent = parents.get(root)) != null) {
+			root = parent;
+		}
+		if (!root.equals(accountId)) {
+			parents.put(accountId, root);
+		}
+		return root;
+	}
+
+	private void markStripes(BatchTransfer transfer, BitSet lockedStripes) {
+		lockedStripes.set(accountLocks.stripeOf(transfer.getAccountFrom().getAccountId()));
+		lockedStripes.set(accountLocks.stripeOf(transfer.getAccountTo().getAccountId()));
+	}
+}
@@ -0,0 +1,206 @@
+package com.db.awmd.challenge.service.engine;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountSnapshot;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.TransferResult;
+import com.db.awmd.challenge.exception.AccountNotFoundException;
+import com.db.awmd.challenge.exception.NoFundException;
+import com.db.awmd.challenge.repository.AccountsRepositoryOptimistic;
+
+/**
+ * Applies transfers without monitors: the debit and the credit are each a
+ * compare-and-swap retry loop on the account snapshot. The debit is applied
+ * first, so money is briefly in flight between the two accounts but is never
+ * created or lost.
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.engine", havingValue = "optimistic")
+public class OptimisticTransferEngine implements TransferEngine {
+
+	private final AccountsRepositoryOptimistic accountsRepository;
+
+	@Autowired
+	public OptimisticTransferEngine(AccountsRepositoryOptimistic accountsRepository) {
+		this.accountsRepository = accountsRepository;
+	}
+
+	@Override
+	public void transfer(Account accountFrom, Account accountTo, BigDecimal value) {
+		debit(accountFrom.getAccountId(), value);
+		credit(accountTo.getAccountId(), value);
+	}
+
+	/**
+	 * Best-effort batches are applied item by item. All-or-nothing batches are
+	 * first played in order against a copy of the balances, as the other
+	 * engines do, so a transfer that would overdraw its source rejects the
+	 * batch even when a later one would refill it. The batch is then committed
+	 * as one net movement per account; if a concurrent transfer has meanwhile
+	 * left an account short of what the batch draws from it, the debits are
+	 * refunded and the batch is played again on fresh balances.
+	 */
+	@Override
+	public List<TransferResult> transferBatch(List<BatchTransfer> transfers, BatchMode mode) {
+		if (mode == BatchMode.BEST_EFFORT) {
+			List<TransferResult> results = new ArrayList<>(transfers.size());
+			for (BatchTransfer transfer : transfers) {
+				try {
+					transfer(transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getTransfer().getValue());
+					results.add(TransferResult.applied(transfer.getTransfer()));
+				} catch (NoFundException ex) {
+					results.add(TransferResult.rejected(transfer.getTransfer(), ex.getMessage()));
+				}
+			}
+			return results;
+		}
+
+		while (true) {
+			List<TransferResult> results = applyAllOrNothing(transfers);
+			if (results != null) {
+				return results;
+			}
+		}
+	}
+
+	/**
+	 * One attempt at an all-or-nothing batch, or null if a concurrent transfer
+	 * got in the way of committing it.
+	 */
+	private List<TransferResult> applyAllOrNothing(List<BatchTransfer> transfers) {
+		Map<String, BigDecimal> initialBalances = new LinkedHashMap<>();
+		Map<String, BigDecimal> lowestBalances = new HashMap<>();
+		Map<String, BigDecimal> balances = new HashMap<>();
+
+		for (int i = 0; i < transfers.size(); i++) {
+			BatchTransfer transfer = transfers.get(i);
+			String accountFrom = transfer.getAccountFrom().getAccountId();
+			String accountTo = transfer.getAccountTo().getAccountId();
+			BigDecimal value = transfer.getTransfer().getValue();
+
+			BigDecimal fromBalance = workingBalance(accountFrom, initialBalances, lowestBalances, balances);
+			if (fromBalance.compareTo(value) < 0) {
+				List<TransferResult> results = new ArrayList<>(transfers.size());
+				for (int j = 0; j < transfers.size(); j++) {
+					results.add(j == i
+							? TransferResult.rejected(transfer.getTransfer(), new NoFundException(accountFrom).getMessage())
+							: TransferResult.aborted(transfers.get(j).getTransfer()));
+				}
+				return results;
+			}
+
+			balances.put(accountFrom, fromBalance.subtract(value));
+			lowestBalances.merge(accountFrom, fromBalance.subtract(value), BigDecimal::min);
+			balances.put(accountTo, workingBalance(accountTo, initialBalances, lowestBalances, balances).add(value));
+		}
+
+		if (!commit(initialBalances, lowestBalances, balances)) {
+			return null;
+		}
+
+		List<TransferResult> results = new ArrayList<>(transfers.size());
+		transfers.forEach(transfer -> results.add(TransferResult.applied(transfer.getTransfer())));
+		return results;
+	}
+
+	/**
+	 * Applies the net debits while each balance still covers the deepest point
+	 * its account reaches during the batch, then checks the accounts that dip
+	 * but end even or better against that point, and finally applies the net
+	 * credits, which cannot fail.
+	 */
+	private boolean commit(Map<String, BigDecimal> initialBalances, Map<String, BigDecimal> lowestBalances,
+			Map<String, BigDecimal> balances) {
+		Map<String, BigDecimal> debited = new LinkedHashMap<>();
+
+		for (Map.Entry<String, BigDecimal> initial : initialBalances.entrySet()) {
+			String accountId = initial.getKey();
+			BigDecimal movement = balances.get(accountId).subtract(initial.getValue());
+			BigDecimal drawn = initial.getValue().subtract(lowestBalances.get(accountId));
+			if (movement.signum() < 0) {
+				if (!tryDebit(accountId, movement.negate(), drawn)) {
+					debited.forEach(this::credit);
+					return false;
+				}
+				debited.put(accountId, movement.negate());
+			}
+		}
+
+		for (Map.Entry<String, BigDecimal> initial : initialBalances.entrySet()) {
+			String accountId = initial.getKey();
+			BigDecimal movement = balances.get(accountId).subtract(initial.getValue());
+			BigDecimal drawn = initial.getValue().subtract(lowestBalances.get(accountId));
+			if (movement.signum() >= 0 && snapshotOf(accountId).getBalance().compareTo(drawn) < 0) {
+				debited.forEach(this::credit);
+				return false;
+			}
+		}
+
+		initialBalances.forEach((accountId, initial) -> {
+			BigDecimal movement = balances.get(accountId).subtract(initial);
+			if (movement.signum() > 0) {
+				credit(accountId, movement);
+			}
+		});
+		return true;
+	}
+
+	private BigDecimal workingBalance(String accountId, Map<String, BigDecimal> initialBalances,
+			Map<String, BigDecimal> lowestBalances, Map<String, BigDecimal> balances) {
+		BigDecimal balance = balances.get(accountId);
+		if (balance == null) {
+			balance = snapshotOf(accountId).getBalance();
+			initialBalances.put(accountId, balance);
+			lowestBalances.put(accountId, balance);
+			balances.put(accountId, balance);
+		}
+		return balance;
+	}
+
+	private boolean tryDebit(String accountId, BigDecimal value, BigDecimal required) {
+		AccountSnapshot current;
+		do {
+			current = snapshotOf(accountId);
+			if(current.getBalance().compareTo(required) < 0) {
+				return false;
+			}
+		} while (!accountsRepository.compareAndSet(current, current.withBalance(current.getBalance().subtract(value))));
+		return true;
+	}
+
+	private void debit(String accountId, BigDecimal value) {
+		AccountSnapshot current;
+		do {
+			current = snapshotOf(accountId);
+			if(current.getBalance().compareTo(value) < 0) {
+				throw new NoFundException(accountId);
+			}
+		} while (!accountsRepository.compareAndSet(current, current.withBalance(current.getBalance().subtract(value))));
+	}
+
+	private void credit(String accountId, BigDecimal value) {
+		AccountSnapshot current;
+		do {
+			current = snapshotOf(accountId);
+		} while (!accountsRepository.compareAndSet(current, current.withBalance(current.getBalance().add(value))));
+	}
+
+	private AccountSnapshot snapshotOf(String accountId) {
+		AccountSnapshot snapshot = accountsRepository.getSnapshot(accountId);
+		if(snapshot == null) {
+			throw new AccountNotFoundException(accountId);
+		}
+		return snapshot;
+	}
+}
@@ -0,0 +1,307 @@
+package com.db.awmd.challenge.service.engine;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.TransferResult;
+import com.db.awmd.challenge.exception.NoFundException;
+import com.db.awmd.challenge.repository.AccountsRepository;
+
+/**
+ * Hashes account ids onto N partitions, each owned by a single thread that
+ * applies every balance change of its accounts in arrival order, so no locks
+ * are taken. A transfer inside one partition is a single task on its owner.
+ * A transfer across partitions is handed off in two phases: the source owner
+ * checks the funds and debits, then enqueues the credit on the destination
+ * owner, which refunds the source if the credit cannot be applied. The caller
+ * waits for the last phase before returning. Multi-leg transfers work the
+ * same way: the source owner debits the total, then every credit goes to the
+ * owner of its account.
+ *
+ * All-or-nothing batches park every owner on a barrier and apply the batch
+ * on the calling thread while nothing else can touch a balance.
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.engine", havingValue = "partitioned")
+public class PartitionedTransferEngine implements TransferEngine {
+
+	private final AccountsRepository accountsRepository;
+
+	private final ExecutorService[] owners;
+
+	private final ReentrantLock exclusiveLock = new ReentrantLock();
+
+	@Autowired
+	public PartitionedTransferEngine(AccountsRepository accountsRepository,
+			@Value("${accounts.partitioned.partitions:0}") int partitions) {
+		this.accountsRepository = accountsRepository;
+		this.owners = new ExecutorService[partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors()];
+		for (int i = 0; i < owners.length; i++) {
+			String name = "accounts-partition-" + i;
+			owners[i] = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, name);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	@Override
+	public void transfer(Account accountFrom, Account accountTo, BigDecimal value) {
+		await(submit(accountFrom, accountTo, value));
+	}
+
+	@Override
+	public CompletableFuture<Void> transferAsync(Account accountFrom, Account accountTo, BigDecimal value) {
+		return submit(accountFrom, accountTo, value);
+	}
+
+	@Override
+	public List<TransferResult> transferBatch(List<BatchTransfer> transfers, BatchMode mode) {
+		if (mode == BatchMode.ALL_OR_NOTHING) {
+			return exclusive(() -> applyAllOrNothing(transfers));
+		}
+
+		List<CompletableFuture<Void>> pending = new ArrayList<>(transfers.size());
+		for (BatchTransfer transfer : transfers) {
+			pending.add(submit(transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getTransfer().getValue()));
+		}
+
+		List<TransferResult> results = new ArrayList<>(transfers.size());
+		for (int i = 0; i < transfers.size(); i++) {
+			try {
+				await(pending.get(i));
+				results.add(TransferResult.applied(transfers.get(i).getTransfer()));
+			} catch (NoFundException ex) {
+				results.add(TransferResult.rejected(transfers.get(i).getTransfer(), ex.getMessage()));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Checks and debits the total on the source owner, so the legs are
+	 * rejected together, without stopping the other owners. A credit that
+	 * fails is refunded to the source, as it is for a single transfer.
+	 */
+	@Override
+	public void transferMultiLeg(List<BatchTransfer> legs) {
+		Account accountFrom = legs.get(0).getAccountFrom();
+		int fromPartition = partitionOf(accountFrom.getAccountId());
+		BigDecimal total = BigDecimal.ZERO;
+		for (BatchTransfer leg : legs) {
+			total = total.add(leg.getTransfer().getValue());
+		}
+
+		BigDecimal debit = total;
+		await(CompletableFuture.runAsync(() -> debit(accountFrom, debit), owners[fromPartition]));
+
+		List<CompletableFuture<Void>> credits = new ArrayList<>(legs.size());
+		for (BatchTransfer leg : legs) {
+			Account accountTo = leg.getAccountTo();
+			BigDecimal value = leg.getTransfer().getValue();
+			CompletableFuture<Void> credited = new CompletableFuture<>();
+			owners[partitionOf(accountTo.getAccountId())].execute(() -> {
+				try {
+					credit(accountTo, value);
+					credited.complete(null);
+				} catch (RuntimeException ex) {
+					owners[fromPartition].execute(() -> {
+						credit(accountFrom, value);
+						credited.completeExceptionally(ex);
+					});
+				}
+			});
+			credits.add(credited);
+		}
+
+		for (CompletableFuture<Void> credited : credits) {
+			await(credited);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		for (ExecutorService owner : owners) {
+			owner.shutdown();
+		}
+	}
+
+	private CompletableFuture<Void> submit(Account accountFrom, Account accountTo, BigDecimal value) {
+		int fromPartition = partitionOf(accountFrom.getAccountId());
+		int toPartition = partitionOf(accountTo.getAccountId());
+
+		if (fromPartition == toPartition) {
+			return CompletableFuture.runAsync(() -> applyLocal(accountFrom, accountTo, value), owners[fromPartition]);
+		}
+
+		CompletableFuture<Void> credited = new CompletableFuture<>();
+		owners[fromPartition].execute(() -> {
+			try {
+				debit(accountFrom, value);
+			} catch (RuntimeException ex) {
+				credited.completeExceptionally(ex);
+				return;
+			}
+			owners[toPartition].execute(() -> {
+				try {
+					credit(accountTo, value);
+					credited.complete(null);
+				} catch (RuntimeException ex) {
+					owners[fromPartition].execute(() -> {
+						credit(accountFrom, value);
+						credited.completeExceptionally(ex);
+					});
+				}
+			});
+		});
+		return credited;
+	}
+
+	private void applyLocal(Account accountFrom, Account accountTo, BigDecimal value) {
+		if(accountFrom.getBalance().compareTo(value) < 0) {
+			throw new NoFundException(accountFrom.getAccountId());
+		}
+
+		BigDecimal toBalance = accountTo.getBalance().add(value);
+		BigDecimal fromBalance = (TransferEngine.isSelfTransfer(accountFrom, accountTo) ? toBalance
+				: accountFrom.getBalance()).subtract(value);
+
+		accountTo.setBalance(toBalance);
+		accountFrom.setBalance(fromBalance);
+
+		accountsRepository.updateAccount(accountTo);
+		accountsRepository.updateAccount(accountFrom);
+	}
+
+	private void debit(Account account, BigDecimal value) {
+		if(account.getBalance().compareTo(value) < 0) {
+			throw new NoFundException(account.getAccountId());
+		}
+		account.setBalance(account.getBalance().subtract(value));
+		accountsRepository.updateAccount(account);
+	}
+
+	private void credit(Account account, BigDecimal value) {
+		account.setBalance(account.getBalance().add(value));
+		accountsRepository.updateAccount(account);
+	}
+
+	private List<TransferResult> applyAllOrNothing(List<BatchTransfer> transfers) {
+		Map<String, Account> accounts = new LinkedHashMap<>();
+		Map<String, BigDecimal> balances = new HashMap<>();
+
+		for (int i = 0; i < transfers.size(); i++) {
+			BatchTransfer transfer = transfers.get(i);
+			BigDecimal value = transfer.getTransfer().getValue();
+			BigDecimal fromBalance = workingBalance(transfer.getAccountFrom(), accounts, balances);
+
+			if (fromBalance.compareTo(value) < 0) {
+				List<TransferResult> results = new ArrayList<>(transfers.size());
+				for (int j = 0; j < transfers.size(); j++) {
+					results.add(j == i
+							? TransferResult.rejected(transfer.getTransfer(),
+									new NoFundException(transfer.getAccountFrom().getAccountId()).getMessage())
+							: TransferResult.aborted(transfers.get(j).getTransfer()));
+				}
+				return results;
+			}
+
+			balances.put(transfer.getAccountFrom().getAccountId(), fromBalance.subtract(value));
+			balances.put(transfer.getAccountTo().getAccountId(),
+					workingBalance(transfer.getAccountTo(), accounts, balances).add(value));
+		}
+
+		accounts.forEach((accountId, account) -> {
+			account.setBalance(balances.get(accountId));
+			accountsRepository.updateAccount(account);
+		});
+
+		List<TransferResult> results = new ArrayList<>(transfers.size());
+		transfers.forEach(transfer -> results.add(TransferResult.applied(transfer.getTransfer())));
+		return results;
+	}
+
+	private BigDecimal workingBalance(Account account, Map<String, Account> accounts, Map<String, BigDecimal> balances) {
+		accounts.putIfAbsent(account.getAccountId(), account);
+		return balances.computeIfAbsent(account.getAccountId(), accountId -> account.getBalance());
+	}
+
+	/**
+	 * Runs the work with every owner parked. Barriers are enqueued under a lock
+	 * so two exclusive sections can never park the owners in different orders.
+	 */
+	private <T> T exclusive(Supplier<T> work) {
+		exclusiveLock.lock();
+		try {
+			CountDownLatch parked = new CountDownLatch(owners.length);
+			CountDownLatch released = new CountDownLatch(1);
+			for (ExecutorService owner : owners) {
+				owner.execute(() -> {
+					parked.countDown();
+					awaitUninterruptibly(released);
+				});
+			}
+
+			try {
+				awaitUninterruptibly(parked);
+				return work.get();
+			} finally {
+				released.countDown();
+			}
+		} finally {
+			exclusiveLock.unlock();
+		}
+	}
+
+	private int partitionOf(String accountId) {
+		int hash = accountId.hashCode();
+		return Math.floorMod(hash ^ (hash >>> 16), owners.length);
+	}
+
+	private static void await(CompletableFuture<Void> future) {
+		try {
+			future.join();
+		} catch (CompletionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw ex;
+		}
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				latch.await();
+				break;
+			} catch (InterruptedException ex) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
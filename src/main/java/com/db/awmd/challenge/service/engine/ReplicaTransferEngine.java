@@ -0,0 +1,31 @@
+package com.db.awmd.challenge.service.engine;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.TransferResult;
+import com.db.awmd.challenge.exception.ReadOnlyReplicaException;
+
+/**
+ * Engine of a read-only replica, whose balances only change by applying the
+ * primary's journal. Every transfer is refused before any account is touched.
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.engine", havingValue = "replica")
+public class ReplicaTransferEngine implements TransferEngine {
+
+	@Override
+	public void transfer(Account accountFrom, Account accountTo, BigDecimal value) {
+		throw new ReadOnlyReplicaException();
+	}
+
+	@Override
+	public List<TransferResult> transferBatch(List<BatchTransfer> transfers, BatchMode mode) {
+		throw new ReadOnlyReplicaException();
+	}
+}
@@ -0,0 +1,19 @@
+package com.db.awmd.challenge.service.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Position of one consumer of the {@link TransferRingBuffer}, padded so that
+ * consumers advancing their own sequences do not share a cache line.
+ */
+final class Sequence extends AtomicLong {
+
+	private static final long serialVersionUID = 1L;
+
+	// fills the rest of the cache line after the value, never read
+	long p1, p2, p3, p4, p5, p6, p7;
+
+	Sequence(long initialValue) {
+		super(initialValue);
+	}
+}
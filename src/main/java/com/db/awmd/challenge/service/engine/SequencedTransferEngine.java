@@ -0,0 +1,557 @@
+package com.db.awmd.challenge.service.engine;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongUnaryOperator;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.FixedPointAccount;
+import com.db.awmd.challenge.domain.Money;
+import com.db.awmd.challenge.domain.TransferResult;
+import com.db.awmd.challenge.domain.TransferStatus;
+import com.db.awmd.challenge.exception.BalanceOverflowException;
+import com.db.awmd.challenge.exception.BusinessException;
+import com.db.awmd.challenge.exception.NoFundException;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferJournal;
+import com.db.awmd.challenge.service.NotificationService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Callers publish transfers into a preallocated {@link TransferRingBuffer}
+ * and a pipeline of consumer threads processes them in sequence order. The
+ * business logic consumer is the only thread that changes balances, so it
+ * takes no locks and batches are atomic by construction. The journal consumer
+ * follows it and appends the resulting balances, which groups the appends of
+ * a burst together, and the completion consumer follows the journal,
+ * notifies the account owners and hands each outcome back to its caller.
+ *
+ * Balances change before their journal record is appended and without stripe
+ * locks, so a journaled snapshot can copy one account before a transfer and
+ * the other after it. The engine hands the repository an append barrier
+ * that waits until every transfer claimed so far is journaled; the snapshot
+ * waits on it after copying and before forcing the journal, so each record
+ * behind the copy is durable and replaying the tail, whose records carry the
+ * resulting balances, repairs the torn pair. Point-in-time exports are not
+ * supported by this engine.
+ *
+ * A failed append is fatal: the journal no longer describes the balances,
+ * so the engine stops. The transfer whose record failed and every later one
+ * fail with an IllegalStateException, including those the business logic
+ * consumer had already applied; none of them is durable and a restart
+ * replays the journal without them. Until then the balances in memory may
+ * still show them, but the repository refuses to snapshot them.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "accounts.engine", havingValue = "sequenced")
+public class SequencedTransferEngine implements TransferEngine, PublicMetrics {
+
+	private static final int SPIN_TRIES = 100;
+
+	private static final int YIELD_TRIES = 100;
+
+	private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	private final AccountsRepository accountsRepository;
+
+	private final TransferJournal transferJournal;
+
+	private final NotificationService notificationService;
+
+	private final TransferRingBuffer ringBuffer;
+
+	private final Sequence applied = new Sequence(-1);
+
+	private final Sequence journaled;
+
+	private final Sequence completed = new Sequence(-1);
+
+	private final ThreadLocal<Waiter> waiters = ThreadLocal.withInitial(Waiter::new);
+
+	private final List<Thread> consumers = new ArrayList<>();
+
+	private volatile boolean running = true;
+
+	private volatile RuntimeException journalFailure;
+
+	@Autowired
+	public SequencedTransferEngine(AccountsRepository accountsRepository, NotificationService notificationService,
+			@Value("${accounts.sequenced.ring-size:65536}") int ringSize) {
+		this.accountsRepository = accountsRepository;
+		this.transferJournal = accountsRepository instanceof TransferJournal
+				? (TransferJournal) accountsRepository : TransferJournal.NONE;
+		this.notificationService = notificationService;
+		this.ringBuffer = new TransferRingBuffer(ringSize);
+		this.ringBuffer.setGatingSequence(completed);
+
+		startConsumer("transfer-sequencer-logic", applied,
+				next -> ringBuffer.highestPublished(next, ringBuffer.claimedSequence()), this::apply);
+		if (transferJournal == TransferJournal.NONE) {
+			this.journaled = applied;
+		} else {
+			this.journaled = new Sequence(-1);
+			startConsumer("transfer-sequencer-journal", journaled, next -> applied.get(), this::journal);
+		}
+		startConsumer("transfer-sequencer-completion", completed, next -> journaled.get(), this::complete);
+		this.transferJournal.setAppendBarrier(this::awaitJournaled);
+	}
+
+	@Override
+	public void transfer(Account accountFrom, Account accountTo, BigDecimal value) {
+		Waiter waiter = waiters.get();
+		waiter.reset();
+
+		long sequence = ringBuffer.claim();
+		TransferEvent event = ringBuffer.get(sequence);
+		event.transfer(accountFrom, accountTo, value);
+		event.completeWith(waiter, null);
+		ringBuffer.publish(sequence);
+
+		waiter.await();
+		if (waiter.failure != null) {
+			throw waiter.failure;
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> transferAsync(Account accountFrom, Account accountTo, BigDecimal value) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+
+		long sequence = ringBuffer.claim();
+		TransferEvent event = ringBuffer.get(sequence);
+		event.transfer(accountFrom, accountTo, value);
+		event.completeWith(null, future);
+		ringBuffer.publish(sequence);
+
+		return future;
+	}
+
+	@Override
+	public List<TransferResult> transferBatch(List<BatchTransfer> transfers, BatchMode mode) {
+		Waiter waiter = waiters.get();
+		waiter.reset();
+
+		long sequence = ringBuffer.claim();
+		TransferEvent event = ringBuffer.get(sequence);
+		event.batch(transfers, mode);
+		event.completeWith(waiter, null);
+		ringBuffer.publish(sequence);
+
+		waiter.await();
+		if (waiter.failure != null) {
+			throw waiter.failure;
+		}
+		return waiter.results;
+	}
+
+	/**
+	 * Publishes the legs as one event, which checks the source once for the
+	 * total and notifies its owner once, like the other engines do.
+	 */
+	@Override
+	public void transferMultiLeg(List<BatchTransfer> legs) {
+		Waiter waiter = waiters.get();
+		waiter.reset();
+
+		long sequence = ringBuffer.claim();
+		TransferEvent event = ringBuffer.get(sequence);
+		event.multiLeg(legs);
+		event.completeWith(waiter, null);
+		ringBuffer.publish(sequence);
+
+		waiter.await();
+		if (waiter.failure != null) {
+			throw waiter.failure;
+		}
+	}
+
+	@Override
+	public boolean notifiesTransfers() {
+		return true;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		this.running = false;
+		try {
+			for (Thread consumer : consumers) {
+				consumer.join(TimeUnit.SECONDS.toMillis(5));
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		long claimed = ringBuffer.claimedSequence();
+		return Arrays.asList(
+				new Metric<Number>("sequencer.ring.size", ringBuffer.size()),
+				new Metric<Number>("sequencer.backlog.logic", claimed - applied.get()),
+				new Metric<Number>("sequencer.backlog.journal", claimed - journaled.get()),
+				new Metric<Number>("sequencer.backlog.completion", claimed - completed.get()),
+				new Metric<Number>("sequencer.journal.failed", journalFailure == null ? 0 : 1));
+	}
+
+	/**
+	 * Waits until every transfer claimed so far is journaled. A claimed
+	 * sequence bounds every balance change already visible, including those
+	 * of the batch the logic consumer is still working through.
+	 */
+	private boolean awaitJournaled() {
+		long target = ringBuffer.claimedSequence();
+		int idle = 0;
+		while (journaled.get() < target) {
+			if (!running || journalFailure != null) {
+				return false;
+			}
+			idle = idle(idle);
+		}
+		return journalFailure == null;
+	}
+
+	private void startConsumer(String name, Sequence sequence, LongUnaryOperator available, EventHandler handler) {
+		Thread consumer = new Thread(() -> consume(sequence, available, handler), name);
+		consumer.setDaemon(true);
+		consumer.start();
+		consumers.add(consumer);
+	}
+
+	private void consume(Sequence sequence, LongUnaryOperator available, EventHandler handler) {
+		long next = sequence.get() + 1;
+		int idle = 0;
+		while (running) {
+			long last = available.applyAsLong(next);
+			if (last < next) {
+				idle = idle(idle);
+				continue;
+			}
+
+			idle = 0;
+			for (long current = next; current <= last; current++) {
+				handler.onEvent(ringBuffer.get(current));
+			}
+			sequence.set(last);
+			next = last + 1;
+		}
+	}
+
+	private static int idle(int idle) {
+		if (idle < SPIN_TRIES) {
+			return idle + 1;
+		}
+		if (idle < SPIN_TRIES + YIELD_TRIES) {
+			Thread.yield();
+			return idle + 1;
+		}
+		LockSupport.parkNanos(IDLE_PARK_NANOS);
+		return idle;
+	}
+
+	private void apply(TransferEvent event) {
+		if (journalFailure != null) {
+			event.failure = stopped(journalFailure);
+			return;
+		}
+		try {
+			if (event.batch == null) {
+				applyOne(event.accountFrom, event.accountTo, event.value);
+				if (transferJournal != TransferJournal.NONE) {
+					event.fromBalance = event.accountFrom.getBalance();
+					event.toBalance = event.accountTo.getBalance();
+				}
+			} else if (event.multiLeg) {
+				applyMultiLeg(event);
+			} else if (event.mode == BatchMode.ALL_OR_NOTHING) {
+				applyAllOrNothing(event);
+			} else {
+				applyBestEffort(event);
+			}
+		} catch (RuntimeException ex) {
+			event.failure = ex;
+		}
+	}
+
+	private void applyOne(Account accountFrom, Account accountTo, BigDecimal value) {
+		if (accountFrom instanceof FixedPointAccount && accountTo instanceof FixedPointAccount) {
+			FixedPointAccount fixedFrom = (FixedPointAccount) accountFrom;
+			FixedPointAccount fixedTo = (FixedPointAccount) accountTo;
+			long valueUnits = Money.toMinorUnits(value);
+
+			if(fixedFrom.getBalanceUnits() < valueUnits) {
+				throw new NoFundException(accountFrom.getAccountId());
+			}
+			if(fixedTo.getBalanceUnits() > Long.MAX_VALUE - valueUnits) {
+				throw new BalanceOverflowException(accountTo.getAccountId());
+			}
+
+			long toBalance = fixedTo.getBalanceUnits() + valueUnits;
+			long fromBalance = (TransferEngine.isSelfTransfer(fixedFrom, fixedTo) ? toBalance
+					: fixedFrom.getBalanceUnits()) - valueUnits;
+			fixedTo.setBalanceUnits(toBalance);
+			fixedFrom.setBalanceUnits(fromBalance);
+		} else {
+			if(accountFrom.getBalance().compareTo(value) < 0) {
+				throw new NoFundException(accountFrom.getAccountId());
+			}
+
+			BigDecimal toBalance = accountTo.getBalance().add(value);
+			BigDecimal fromBalance = (TransferEngine.isSelfTransfer(accountFrom, accountTo) ? toBalance
+					: accountFrom.getBalance()).subtract(value);
+			accountTo.setBalance(toBalance);
+			accountFrom.setBalance(fromBalance);
+		}
+
+		accountsRepository.updateAccount(accountTo);
+		accountsRepository.updateAccount(accountFrom);
+	}
+
+	private void applyBestEffort(TransferEvent event) {
+		List<BatchTransfer> transfers = event.batch;
+		List<TransferResult> results = new ArrayList<>(transfers.size());
+		BigDecimal[] fromBalances = new BigDecimal[transfers.size()];
+		BigDecimal[] toBalances = new BigDecimal[transfers.size()];
+
+		for (int i = 0; i < transfers.size(); i++) {
+			BatchTransfer transfer = transfers.get(i);
+			try {
+				applyOne(transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getTransfer().getValue());
+				results.add(TransferResult.applied(transfer.getTransfer()));
+				fromBalances[i] = transfer.getAccountFrom().getBalance();
+				toBalances[i] = transfer.getAccountTo().getBalance();
+			} catch (BusinessException ex) {
+				results.add(TransferResult.rejected(transfer.getTransfer(), ex.getMessage()));
+			}
+		}
+
+		event.results = results;
+		event.batchFromBalances = fromBalances;
+		event.batchToBalances = toBalances;
+	}
+
+	private void applyAllOrNothing(TransferEvent event) {
+		List<BatchTransfer> transfers = event.batch;
+		Map<String, Account> accounts = new LinkedHashMap<>();
+		Map<String, BigDecimal> balances = new HashMap<>();
+		BigDecimal[] fromBalances = new BigDecimal[transfers.size()];
+		BigDecimal[] toBalances = new BigDecimal[transfers.size()];
+
+		for (int i = 0; i < transfers.size(); i++) {
+			BatchTransfer transfer = transfers.get(i);
+			BigDecimal value = transfer.getTransfer().getValue();
+			BigDecimal fromBalance = workingBalance(transfer.getAccountFrom(), accounts, balances);
+
+			if (fromBalance.compareTo(value) < 0) {
+				List<TransferResult> results = new ArrayList<>(transfers.size());
+				for (int j = 0; j < transfers.size(); j++) {
+					results.add(j == i
+							? TransferResult.rejected(transfer.getTransfer(),
+									new NoFundException(transfer.getAccountFrom().getAccountId()).getMessage())
+							: TransferResult.aborted(transfers.get(j).getTransfer()));
+				}
+				event.results = results;
+				return;
+			}
+
+			fromBalances[i] = fromBalance.subtract(value);
+			balances.put(transfer.getAccountFrom().getAccountId(), fromBalances[i]);
+			toBalances[i] = workingBalance(transfer.getAccountTo(), accounts, balances).add(value);
+			balances.put(transfer.getAccountTo().getAccountId(), toBalances[i]);
+		}
+
+		accounts.forEach((accountId, account) -> {
+			account.setBalance(balances.get(accountId));
+			accountsRepository.updateAccount(account);
+		});
+
+		List<TransferResult> results = new ArrayList<>(transfers.size());
+		transfers.forEach(transfer -> results.add(TransferResult.applied(transfer.getTransfer())));
+		event.results = results;
+		event.batchFromBalances = fromBalances;
+		event.batchToBalances = toBalances;
+	}
+
+	private void applyMultiLeg(TransferEvent event) {
+		List<BatchTransfer> legs = event.batch;
+		BigDecimal total = BigDecimal.ZERO;
+		for (BatchTransfer leg : legs) {
+			total = total.add(leg.getTransfer().getValue());
+		}
+
+		if (event.accountFrom.getBalance().compareTo(total) < 0) {
+			throw new NoFundException(event.accountFrom.getAccountId());
+		}
+
+		Map<String, Account> accounts = new LinkedHashMap<>();
+		Map<String, BigDecimal> balances = new HashMap<>();
+		BigDecimal[] fromBalances = new BigDecimal[legs.size()];
+		BigDecimal[] toBalances = new BigDecimal[legs.size()];
+		for (int i = 0; i < legs.size(); i++) {
+			BatchTransfer leg = legs.get(i);
+			BigDecimal value = leg.getTransfer().getValue();
+			fromBalances[i] = workingBalance(leg.getAccountFrom(), accounts, balances).subtract(value);
+			balances.put(leg.getAccountFrom().getAccountId(), fromBalances[i]);
+			toBalances[i] = workingBalance(leg.getAccountTo(), accounts, balances).add(value);
+			balances.put(leg.getAccountTo().getAccountId(), toBalances[i]);
+		}
+
+		accounts.forEach((accountId, account) -> {
+			account.setBalance(balances.get(accountId));
+			accountsRepository.updateAccount(account);
+		});
+
+		event.value = total;
+		event.batchFromBalances = fromBalances;
+		event.batchToBalances = toBalances;
+	}
+
+	private BigDecimal workingBalance(Account account, Map<String, Account> accounts, Map<String, BigDecimal> balances) {
+		accounts.putIfAbsent(account.getAccountId(), account);
+		return balances.computeIfAbsent(account.getAccountId(), accountId -> account.getBalance());
+	}
+
+	private void journal(TransferEvent event) {
+		if (event.failure != null) {
+			return;
+		}
+		if (journalFailure != null) {
+			event.failure = stopped(journalFailure);
+			return;
+		}
+		try {
+			if (event.batch == null) {
+				transferJournal.appendTransfer(event.accountFrom.getAccountId(), event.accountTo.getAccountId(),
+						event.value, event.fromBalance, event.toBalance);
+			} else if (event.batchFromBalances != null) {
+				for (int i = 0; i < event.batch.size(); i++) {
+					if (event.batchFromBalances[i] != null) {
+						BatchTransfer transfer = event.batch.get(i);
+						transferJournal.appendTransfer(transfer.getAccountFrom().getAccountId(),
+								transfer.getAccountTo().getAccountId(), transfer.getTransfer().getValue(),
+								event.batchFromBalances[i], event.batchToBalances[i]);
+					}
+				}
+			}
+		} catch (RuntimeException ex) {
+			log.error("Failed to journal a transfer that was already applied, stopping transfers until restart", ex);
+			journalFailure = ex;
+			transferJournal.appendFailed(ex);
+			event.failure = stopped(ex);
+		}
+	}
+
+	private static RuntimeException stopped(RuntimeException journalFailure) {
+		return new IllegalStateException("The transfer journal failed, transfers are stopped until restart",
+				journalFailure);
+	}
+
+	private void complete(TransferEvent event) {
+		if (event.failure == null) {
+			notifyOwners(event);
+		}
+
+		Waiter waiter = event.waiter;
+		CompletableFuture<Void> future = event.future;
+		RuntimeException failure = event.failure;
+		List<TransferResult> results = event.results;
+		event.waiter = null;
+		event.future = null;
+
+		if (waiter != null) {
+			waiter.complete(failure, results);
+		} else if (failure != null) {
+			future.completeExceptionally(failure);
+		} else {
+			future.complete(null);
+		}
+	}
+
+	private void notifyOwners(TransferEvent event) {
+		try {
+			if (event.batch == null) {
+				NotificationService.notifyBothOwners(notificationService, event.accountFrom, event.accountTo, event.value);
+				return;
+			}
+			if (event.multiLeg) {
+				NotificationService.notifyMultiLegOwners(notificationService, event.accountFrom, event.value,
+						event.batch);
+				return;
+			}
+			for (int i = 0; i < event.results.size(); i++) {
+				if (event.results.get(i).getStatus() == TransferStatus.APPLIED) {
+					BatchTransfer transfer = event.batch.get(i);
+					NotificationService.notifyBothOwners(notificationService, transfer.getAccountFrom(),
+							transfer.getAccountTo(), transfer.getTransfer().getValue());
+				}
+			}
+		} catch (RuntimeException ex) {
+			log.warn("Failed to notify the owners of a transfer", ex);
+		}
+	}
+
+	@FunctionalInterface
+	private interface EventHandler {
+
+		void onEvent(TransferEvent event);
+	}
+
+	/**
+	 * Per-thread handle a blocking caller parks on until the completion
+	 * consumer hands it the outcome, so waiting allocates nothing.
+	 */
+	static final class Waiter {
+
+		private final Thread thread = Thread.currentThread();
+
+		private volatile boolean done;
+
+		private RuntimeException failure;
+
+		private List<TransferResult> results;
+
+		private void reset() {
+			this.done = false;
+			this.failure = null;
+			this.results = null;
+		}
+
+		private void complete(RuntimeException failure, List<TransferResult> results) {
+			this.failure = failure;
+			this.results = results;
+			this.done = true;
+			LockSupport.unpark(thread);
+		}
+
+		private void await() {
+			int spins = 0;
+			while (!done) {
+				if (spins < SPIN_TRIES) {
+					spins++;
+				} else {
+					LockSupport.park(this);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.db.awmd.challenge.service.engine;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.TransferResult;
+import com.db.awmd.challenge.domain.TransferStatus;
+import com.db.awmd.challenge.exception.NoFundException;
+
+public interface TransferEngine {
+
+	void transfer(Account accountFrom, Account accountTo, BigDecimal value) throws NoFundException;
+
+	List<TransferResult> transferBatch(List<BatchTransfer> transfers, BatchMode mode);
+
+	/**
+	 * Applies legs that share one source account as a whole or not at all. The
+	 * default runs them as an all-or-nothing batch; engines that can check the
+	 * source once for the total of the legs override it.
+	 */
+	default void transferMultiLeg(List<BatchTransfer> legs) throws NoFundException {
+		for (TransferResult result : transferBatch(legs, BatchMode.ALL_OR_NOTHING)) {
+			if (result.getStatus() == TransferStatus.REJECTED) {
+				throw new NoFundException(result.getAccountFrom());
+			}
+		}
+	}
+
+	/**
+	 * Completes when the transfer has been applied. Engines that hand transfers
+	 * to other threads complete it from there; the default applies the transfer
+	 * on the calling thread.
+	 */
+	default CompletableFuture<Void> transferAsync(Account accountFrom, Account accountTo, BigDecimal value) {
+		CompletableFuture<Void> transfer = new CompletableFuture<>();
+		try {
+			transfer(accountFrom, accountTo, value);
+			transfer.complete(null);
+		} catch (RuntimeException ex) {
+			transfer.completeExceptionally(ex);
+		}
+		return transfer;
+	}
+
+	/**
+	 * Compares ids rather than references, since a repository may hand out a
+	 * new Account object per lookup.
+	 */
+	static boolean isSelfTransfer(Account accountFrom, Account accountTo) {
+		return accountFrom.getAccountId().equals(accountTo.getAccountId());
+	}
+
+	/**
+	 * Engines that notify account owners themselves, off the caller's thread,
+	 * return true so that the service does not notify a second time.
+	 */
+	default boolean notifiesTransfers() {
+		return false;
+	}
+}
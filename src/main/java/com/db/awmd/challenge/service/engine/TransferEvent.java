@@ -0,0 +1,84 @@
+package com.db.awmd.challenge.service.engine;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.TransferResult;
+
+/**
+ * One slot of the {@link TransferRingBuffer}, reused for every sequence that
+ * maps onto it. The publisher fills the command, the business logic
+ * consumer the outcome, and the completion consumer hands the outcome to the
+ * waiting caller before the slot can be claimed again.
+ */
+final class TransferEvent {
+
+	Account accountFrom;
+
+	Account accountTo;
+
+	BigDecimal value;
+
+	List<BatchTransfer> batch;
+
+	BatchMode mode;
+
+	boolean multiLeg;
+
+	SequencedTransferEngine.Waiter waiter;
+
+	CompletableFuture<Void> future;
+
+	RuntimeException failure;
+
+	List<TransferResult> results;
+
+	BigDecimal fromBalance;
+
+	BigDecimal toBalance;
+
+	BigDecimal[] batchFromBalances;
+
+	BigDecimal[] batchToBalances;
+
+	void transfer(Account accountFrom, Account accountTo, BigDecimal value) {
+		this.accountFrom = accountFrom;
+		this.accountTo = accountTo;
+		this.value = value;
+		this.batch = null;
+		this.mode = null;
+		this.multiLeg = false;
+	}
+
+	void batch(List<BatchTransfer> batch, BatchMode mode) {
+		this.accountFrom = null;
+		this.accountTo = null;
+		this.value = null;
+		this.batch = batch;
+		this.mode = mode;
+		this.multiLeg = false;
+	}
+
+	void multiLeg(List<BatchTransfer> legs) {
+		this.accountFrom = legs.get(0).getAccountFrom();
+		this.accountTo = null;
+		this.value = null;
+		this.batch = legs;
+		this.mode = BatchMode.ALL_OR_NOTHING;
+		this.multiLeg = true;
+	}
+
+	void completeWith(SequencedTransferEngine.Waiter waiter, CompletableFuture<Void> future) {
+		this.waiter = waiter;
+		this.future = future;
+		this.failure = null;
+		this.results = null;
+		this.fromBalance = null;
+		this.toBalance = null;
+		this.batchFromBalances = null;
+		this.batchToBalances = null;
+	}
+}
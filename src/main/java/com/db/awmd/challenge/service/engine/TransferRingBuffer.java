@@ -0,0 +1,88 @@
+package com.db.awmd.challenge.service.engine;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated ring of {@link TransferEvent} slots shared by many publishers
+ * and a pipeline of consumers. Publishers claim the next sequence with one
+ * atomic increment, wait while the slot is still held by the slowest
+ * consumer, fill the slot in place and mark it published. Slots are marked
+ * individually, so a consumer reads up to the first gap left by a publisher
+ * that claimed earlier but has not finished yet.
+ */
+final class TransferRingBuffer {
+
+	private final TransferEvent[] events;
+
+	private final int mask;
+
+	private final AtomicLongArray published;
+
+	private final Sequence claimed = new Sequence(-1);
+
+	private Sequence gatingSequence;
+
+	private volatile long cachedGatingValue = -1;
+
+	TransferRingBuffer(int size) {
+		int capacity = Integer.highestOneBit(Math.max(size, 2) * 2 - 1);
+		this.events = new TransferEvent[capacity];
+		this.mask = capacity - 1;
+		this.published = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			this.events[i] = new TransferEvent();
+			this.published.set(i, -1);
+		}
+	}
+
+	/**
+	 * The sequence of the last consumer in the pipeline; publishers never
+	 * overtake it by more than the ring size. Set once before publishing.
+	 */
+	void setGatingSequence(Sequence gatingSequence) {
+		this.gatingSequence = gatingSequence;
+	}
+
+	int size() {
+		return events.length;
+	}
+
+	long claim() {
+		long next = claimed.incrementAndGet();
+		long wrapPoint = next - events.length;
+		if (wrapPoint > cachedGatingValue) {
+			long gating;
+			while (wrapPoint > (gating = gatingSequence.get())) {
+				LockSupport.parkNanos(1);
+			}
+			cachedGatingValue = gating;
+		}
+		return next;
+	}
+
+	TransferEvent get(long sequence) {
+		return events[(int) sequence & mask];
+	}
+
+	void publish(long sequence) {
+		published.lazySet((int) sequence & mask, sequence);
+	}
+
+	/**
+	 * Highest sequence up to which every slot from next on is published, or
+	 * next - 1 if next itself is not.
+	 */
+	long highestPublished(long next, long claimedLimit) {
+		for (long sequence = next; sequence <= claimedLimit; sequence++) {
+			if (published.get((int) sequence & mask) != sequence) {
+				return sequence - 1;
+			}
+		}
+		return claimedLimit;
+	}
+
+	long claimedSequence() {
+		return claimed.get();
+	}
+}
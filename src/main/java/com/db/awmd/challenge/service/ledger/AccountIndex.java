@@ -0,0 +1,52 @@
+package com.db.awmd.challenge.service.ledger;
+
+import java.util.Arrays;
+
+/**
+ * Ledger entries that touched one account, in append order and therefore in
+ * time order. Only the ledger drainer appends; readers take {@link #size()}
+ * before {@link #entries()}, so the array they see is always long enough.
+ */
+final class AccountIndex {
+
+	private volatile int[] entries = new int[4];
+
+	private volatile int size;
+
+	void add(int entry) {
+		int[] current = entries;
+		int count = size;
+		if (count == current.length) {
+			current = Arrays.copyOf(current, count * 2);
+			entries = current;
+		}
+		current[count] = entry;
+		size = count + 1;
+	}
+
+	int size() {
+		return size;
+	}
+
+	int[] entries() {
+		return entries;
+	}
+
+	/**
+	 * Position of the first entry at or after the given one within the first
+	 * size entries.
+	 */
+	static int lowerBound(int[] entries, int size, long entry) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (entries[middle] < entry) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
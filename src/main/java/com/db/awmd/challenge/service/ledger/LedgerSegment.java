@@ -0,0 +1,175 @@
+package com.db.awmd.challenge.service.ledger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.domain.TransferRecord;
+
+/**
+ * A fixed number of consecutive ledger entries. The segment is filled on the
+ * heap and, once the ledger keeps too many of them in memory, spilled to a
+ * read-only mapped file with the layout
+ * {@code [magic][int count][long timestamp]*[record]*[int record offset]*},
+ * where every record is
+ * {@code [short from length][from][short to length][to][int scale][short unscaled length][unscaled]}.
+ * Timestamps and offsets are fixed width, so both stay randomly accessible.
+ */
+final class LedgerSegment {
+
+	static final int MAGIC = 0x4C454447;
+
+	private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES;
+
+	private final long firstEntry;
+
+	private volatile Entries entries;
+
+	private HeapEntries heap;
+
+	private int size;
+
+	LedgerSegment(long firstEntry, int capacity) {
+		this.firstEntry = firstEntry;
+		this.heap = new HeapEntries(capacity);
+		this.entries = heap;
+	}
+
+	/** Drainer thread only. */
+	void append(long timestamp, TransferMoney transfer) {
+		heap.timestamps[size] = timestamp;
+		heap.transfers[size] = transfer;
+		size++;
+	}
+
+	long timestamp(long entry) {
+		return entries.timestamp((int) (entry - firstEntry));
+	}
+
+	TransferRecord read(long entry) {
+		return entries.read(entry, (int) (entry - firstEntry));
+	}
+
+	/**
+	 * Writes the entries to the file and swaps the heap arrays for a mapping of
+	 * it. Readers holding the heap arrays keep using them until they are done.
+	 */
+	void spill(Path file) throws IOException {
+		int[] offsets = new int[size];
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				output.writeLong(heap.timestamps[i]);
+			}
+			for (int i = 0; i < size; i++) {
+				offsets[i] = output.size();
+				TransferMoney transfer = heap.transfers[i];
+				writeString(output, transfer.getAccountFrom());
+				writeString(output, transfer.getAccountTo());
+				byte[] unscaled = transfer.getValue().unscaledValue().toByteArray();
+				output.writeInt(transfer.getValue().scale());
+				output.writeShort(unscaled.length);
+				output.write(unscaled);
+			}
+			for (int offset : offsets) {
+				output.writeInt(offset);
+			}
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			this.entries = new MappedEntries(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), size);
+		}
+		this.heap = null;
+	}
+
+	private static void writeString(DataOutputStream output, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		output.writeShort(bytes.length);
+		output.write(bytes);
+	}
+
+	private static TransferRecord record(long entry, long timestamp, String accountFrom, String accountTo,
+			BigDecimal value) {
+		return new TransferRecord(entry, Instant.ofEpochMilli(timestamp).toString(), accountFrom, accountTo, value);
+	}
+
+	private interface Entries {
+
+		long timestamp(int index);
+
+		TransferRecord read(long entry, int index);
+	}
+
+	private static final class HeapEntries implements Entries {
+
+		private final long[] timestamps;
+
+		private final TransferMoney[] transfers;
+
+		private HeapEntries(int capacity) {
+			this.timestamps = new long[capacity];
+			this.transfers = new TransferMoney[capacity];
+		}
+
+		@Override
+		public long timestamp(int index) {
+			return timestamps[index];
+		}
+
+		@Override
+		public TransferRecord read(long entry, int index) {
+			TransferMoney transfer = transfers[index];
+			return record(entry, timestamps[index], transfer.getAccountFrom(), transfer.getAccountTo(),
+					transfer.getValue());
+		}
+	}
+
+	private static final class MappedEntries implements Entries {
+
+		private final ByteBuffer buffer;
+
+		private final int offsetsStart;
+
+		private MappedEntries(ByteBuffer buffer, int count) {
+			this.buffer = buffer;
+			this.offsetsStart = buffer.capacity() - count * Integer.BYTES;
+		}
+
+		@Override
+		public long timestamp(int index) {
+			return buffer.getLong(HEADER_BYTES + index * Long.BYTES);
+		}
+
+		@Override
+		public TransferRecord read(long entry, int index) {
+			ByteBuffer view = buffer.duplicate();
+			view.position(buffer.getInt(offsetsStart + index * Integer.BYTES));
+
+			String accountFrom = readString(view);
+			String accountTo = readString(view);
+			int scale = view.getInt();
+			byte[] unscaled = new byte[view.getShort()];
+			view.get(unscaled);
+
+			return record(entry, timestamp(index), accountFrom, accountTo,
+					new BigDecimal(new BigInteger(unscaled), scale));
+		}
+
+		private static String readString(ByteBuffer view) {
+			byte[] bytes = new byte[view.getShort()];
+			view.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,294 @@
+package com.db.awmd.challenge.service.ledger;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Service;
+
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.domain.TransferRecord;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * History of every applied transfer, indexed per account. Recording only
+ * enqueues on a lock-free queue, after the transfer engine has released its
+ * locks; a single drainer thread gives each transfer the next sequence,
+ * appends it to the current {@link LedgerSegment} and adds the sequence to the
+ * {@link AccountIndex} of both accounts. Timestamps never go backwards in
+ * sequence order, so a time bound maps to a sequence by binary search and a
+ * query costs O(log n) before it starts reading entries. Only the newest
+ * memory-segments segments stay on the heap; older ones are spilled to the
+ * ledger directory, which is cleared on startup since the indexes are not
+ * persisted.
+ */
+@Slf4j
+@Service
+public class TransferLedger implements PublicMetrics {
+
+	public static final TransferLedger DISABLED = new TransferLedger();
+
+	static final String SEGMENT_PREFIX = "ledger-";
+
+	static final String SEGMENT_SUFFIX = ".seg";
+
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final boolean enabled;
+
+	private final Path directory;
+
+	private final int segmentEntries;
+
+	private final int memorySegments;
+
+	private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+
+	private final ConcurrentMap<String, AccountIndex> indexes = new ConcurrentHashMap<>();
+
+	private final LongAdder recorded = new LongAdder();
+
+	private final LongAdder discarded = new LongAdder();
+
+	private volatile LedgerSegment[] segments = new LedgerSegment[16];
+
+	private volatile long entries;
+
+	private volatile long drained;
+
+	private volatile boolean running;
+
+	private Thread drainer;
+
+	private long lastTimestamp;
+
+	private int spilledSegments;
+
+	private TransferLedger() {
+		this.enabled = false;
+		this.directory = null;
+		this.segmentEntries = 0;
+		this.memorySegments = 0;
+	}
+
+	public TransferLedger(Path directory, int segmentEntries, int memorySegments) {
+		this.enabled = true;
+		this.directory = directory;
+		this.segmentEntries = segmentEntries;
+		this.memorySegments = Math.max(1, memorySegments);
+	}
+
+	@Autowired
+	public TransferLedger(@Value("${accounts.ledger.enabled:true}") boolean enabled,
+			@Value("${accounts.ledger.directory:ledger}") String directory,
+			@Value("${accounts.ledger.segment-entries:1048576}") int segmentEntries,
+			@Value("${accounts.ledger.memory-segments:8}") int memorySegments) {
+		this.enabled = enabled;
+		this.directory = Paths.get(directory);
+		this.segmentEntries = segmentEntries;
+		this.memorySegments = Math.max(1, memorySegments);
+	}
+
+	@PostConstruct
+	public void start() throws IOException {
+		if (!enabled) {
+			return;
+		}
+
+		Files.createDirectories(directory);
+		try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			for (Path file : stale) {
+				Files.delete(file);
+			}
+		}
+
+		this.running = true;
+		this.drainer = new Thread(this::drain, "transfer-ledger");
+		this.drainer.setDaemon(true);
+		this.drainer.start();
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		if (drainer != null) {
+			this.running = false;
+			this.drainer.join(TimeUnit.SECONDS.toMillis(5));
+		}
+	}
+
+	public void record(TransferMoney transfer) {
+		if (!enabled) {
+			return;
+		}
+		pending.add(new Pending(transfer, System.currentTimeMillis()));
+		recorded.increment();
+	}
+
+	/**
+	 * Waits until everything recorded before the call is visible to queries.
+	 */
+	public void flush() {
+		long target = recorded.sum();
+		while (running && drained < target) {
+			LockSupport.parkNanos(IDLE_PARK_NANOS);
+		}
+	}
+
+	/**
+	 * Transfers from or to the account with from &lt;= timestamp &lt; to, oldest
+	 * first. Either bound may be null.
+	 */
+	public List<TransferRecord> history(String accountId, Instant from, Instant to, int limit) {
+		AccountIndex index = indexes.get(accountId);
+		if (index == null || limit <= 0) {
+			return Collections.emptyList();
+		}
+
+		int size = index.size();
+		int[] accountEntries = index.entries();
+		long count = entries;
+		long firstEntry = from == null ? 0 : firstEntryAtOrAfter(from.toEpochMilli(), count);
+		long endEntry = to == null ? count : firstEntryAtOrAfter(to.toEpochMilli(), count);
+
+		List<TransferRecord> records = new ArrayList<>(Math.min(limit, size));
+		for (int i = AccountIndex.lowerBound(accountEntries, size, firstEntry); i < size && records.size() < limit; i++) {
+			long entry = accountEntries[i];
+			if (entry >= endEntry) {
+				break;
+			}
+			records.add(segment(entry).read(entry));
+		}
+		return records;
+	}
+
+	public long size() {
+		return entries;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		return Arrays.asList(
+				new Metric<Number>("ledger.entries", entries),
+				new Metric<Number>("ledger.pending", recorded.sum() - drained),
+				new Metric<Number>("ledger.spilled.segments", spilledSegments),
+				new Metric<Number>("ledger.discarded", discarded.sum()));
+	}
+
+	private long firstEntryAtOrAfter(long timestamp, long count) {
+		long low = 0;
+		long high = count;
+		while (low < high) {
+			long middle = (low + high) >>> 1;
+			if (segment(middle).timestamp(middle) < timestamp) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private LedgerSegment segment(long entry) {
+		return segments[(int) (entry / segmentEntries)];
+	}
+
+	private void drain() {
+		long count = 0;
+		while (running || !pending.isEmpty()) {
+			Pending next = pending.poll();
+			if (next == null) {
+				LockSupport.parkNanos(IDLE_PARK_NANOS);
+				continue;
+			}
+
+			do {
+				append(next);
+				count++;
+			} while ((next = pending.poll()) != null);
+			drained = count;
+		}
+	}
+
+	private void append(Pending next) {
+		long entry = entries;
+		if (entry > Integer.MAX_VALUE) {
+			discarded.increment();
+			return;
+		}
+
+		lastTimestamp = Math.max(lastTimestamp, next.timestamp);
+		currentSegment(entry).append(lastTimestamp, next.transfer);
+		entries = entry + 1;
+
+		String accountFrom = next.transfer.getAccountFrom();
+		String accountTo = next.transfer.getAccountTo();
+		indexes.computeIfAbsent(accountFrom, id -> new AccountIndex()).add((int) entry);
+		if (!accountTo.equals(accountFrom)) {
+			indexes.computeIfAbsent(accountTo, id -> new AccountIndex()).add((int) entry);
+		}
+	}
+
+	private LedgerSegment currentSegment(long entry) {
+		int segmentIndex = (int) (entry / segmentEntries);
+		if (entry % segmentEntries != 0) {
+			return segments[segmentIndex];
+		}
+
+		LedgerSegment[] current = segments;
+		if (segmentIndex == current.length) {
+			current = Arrays.copyOf(current, current.length * 2);
+		}
+		current[segmentIndex] = new LedgerSegment(entry, segmentEntries);
+		segments = current;
+
+		while (segmentIndex - spilledSegments >= memorySegments) {
+			spill(current[spilledSegments], spilledSegments);
+			spilledSegments++;
+		}
+		return current[segmentIndex];
+	}
+
+	private void spill(LedgerSegment segment, int segmentIndex) {
+		Path file = directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX));
+		try {
+			segment.spill(file);
+		} catch (IOException ex) {
+			log.error("Failed to spill ledger segment {}, keeping it in memory", segmentIndex, ex);
+		}
+	}
+
+	private static final class Pending {
+
+		private final TransferMoney transfer;
+
+		private final long timestamp;
+
+		private Pending(TransferMoney transfer, long timestamp) {
+			this.transfer = transfer;
+			this.timestamp = timestamp;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package com.db.awmd.challenge.service.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AIMD limit on the transfers in flight, driven by their latency. The lowest
+ * latency seen recently stands for the service without queueing; a sample
+ * slower than tolerance times that means requests are queueing, and the limit
+ * is cut by a constant factor at most once per limit samples. Otherwise, while
+ * at least half of the limit is in use, it grows by one per limit samples.
+ * The baseline is re-taken every {@link #BASELINE_SAMPLES} samples, so it can
+ * rise when the service gets slower for good.
+ *
+ * Releases only classify their sample into striped counters. Once per fold
+ * interval, the first release to notice the interval has passed folds the
+ * window into the limit while the others skip it, so no release waits on
+ * another. A sample that races the fold may be counted in the next window or
+ * not at all, which the estimate tolerates.
+ */
+public class AdaptiveConcurrencyLimit {
+
+	static final int BASELINE_SAMPLES = 10_000;
+
+	private static final double BACKOFF = 0.9;
+
+	private static final long FOLD_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final double tolerance;
+
+	private final long foldIntervalNanos;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final LongAdder samples = new LongAdder();
+
+	private final LongAdder slowSamples = new LongAdder();
+
+	private final LongAdder busySamples = new LongAdder();
+
+	private final LongAccumulator windowMinLatency = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+	private final AtomicBoolean folding = new AtomicBoolean();
+
+	private volatile int limit;
+
+	private volatile long minLatency = Long.MAX_VALUE;
+
+	private volatile long nextFoldAt;
+
+	// only read and written by the thread holding the folding flag
+	private double estimatedLimit;
+
+	private long baselineMinLatency = Long.MAX_VALUE;
+
+	private long baselineSamples;
+
+	private long samplesSinceDecrease;
+
+	public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+		this(initialLimit, minLimit, maxLimit, tolerance, FOLD_INTERVAL_NANOS);
+	}
+
+	public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance,
+			long foldIntervalNanos) {
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.tolerance = tolerance;
+		this.foldIntervalNanos = foldIntervalNanos;
+		this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+		this.limit = (int) estimatedLimit;
+		this.nextFoldAt = System.nanoTime() + foldIntervalNanos;
+	}
+
+	public boolean tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= limit) {
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	public void release(long latencyNanos) {
+		int current = inFlight.getAndDecrement();
+		onSample(latencyNanos, current);
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	private void onSample(long latencyNanos, int inFlightAtSample) {
+		samples.increment();
+		windowMinLatency.accumulate(latencyNanos);
+		if (latencyNanos > Math.min(minLatency, latencyNanos) * tolerance) {
+			slowSamples.increment();
+		} else if (inFlightAtSample * 2 >= limit) {
+			busySamples.increment();
+		}
+
+		long now = System.nanoTime();
+		if (now - nextFoldAt >= 0 && folding.compareAndSet(false, true)) {
+			try {
+				fold(now);
+			} finally {
+				folding.set(false);
+			}
+		}
+	}
+
+	private void fold(long now) {
+		long windowSamples = samples.sumThenReset();
+		long slow = slowSamples.sumThenReset();
+		long busy = busySamples.sumThenReset();
+		long windowMin = windowMinLatency.getThenReset();
+		nextFoldAt = now + foldIntervalNanos;
+
+		minLatency = Math.min(minLatency, windowMin);
+		baselineMinLatency = Math.min(baselineMinLatency, windowMin);
+		baselineSamples += windowSamples;
+		if (baselineSamples >= BASELINE_SAMPLES) {
+			minLatency = baselineMinLatency;
+			baselineMinLatency = Long.MAX_VALUE;
+			baselineSamples = 0;
+		}
+
+		samplesSinceDecrease += windowSamples;
+		if (slow > 0 && samplesSinceDecrease >= estimatedLimit) {
+			estimatedLimit = Math.max(minLimit, estimatedLimit * BACKOFF);
+			samplesSinceDecrease = 0;
+		} else if (slow == 0 && busy > 0) {
+			estimatedLimit = Math.min(maxLimit, estimatedLimit + busy / estimatedLimit);
+		}
+		limit = (int) estimatedLimit;
+	}
+}
@@ -0,0 +1,76 @@
+package com.db.awmd.challenge.service.limit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One token bucket per key, refilled lazily from the time elapsed since it
+ * was last used. Buckets that have refilled completely hold no information
+ * and are dropped by {@link #evictFull()}; a key that races with its eviction
+ * may get a fresh bucket and at most one extra burst.
+ */
+public class TokenBuckets {
+
+	private final double tokensPerNano;
+
+	private final double burst;
+
+	private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+	public TokenBuckets(double tokensPerSecond, double burst) {
+		this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+		this.burst = Math.max(1, burst);
+	}
+
+	public boolean tryAcquire(String key) {
+		long now = System.nanoTime();
+		Bucket bucket = buckets.get(key);
+		if (bucket == null) {
+			bucket = buckets.computeIfAbsent(key, ignored -> new Bucket(burst, now));
+		}
+		return bucket.tryAcquire(now);
+	}
+
+	public void evictFull() {
+		long now = System.nanoTime();
+		buckets.values().removeIf(bucket -> bucket.isFull(now));
+	}
+
+	public int size() {
+		return buckets.size();
+	}
+
+	private final class Bucket {
+
+		private double tokens;
+
+		private long refilledAt;
+
+		private Bucket(double tokens, long refilledAt) {
+			this.tokens = tokens;
+			this.refilledAt = refilledAt;
+		}
+
+		private synchronized boolean tryAcquire(long now) {
+			refill(now);
+			if (tokens < 1) {
+				return false;
+			}
+			tokens--;
+			return true;
+		}
+
+		private synchronized boolean isFull(long now) {
+			refill(now);
+			return tokens >= burst;
+		}
+
+		private void refill(long now) {
+			if (now > refilledAt) {
+				tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+				refilledAt = now;
+			}
+		}
+	}
+}
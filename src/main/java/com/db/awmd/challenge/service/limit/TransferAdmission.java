@@ -0,0 +1,99 @@
+package com.db.awmd.challenge.service.limit;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.db.awmd.challenge.exception.TooManyRequestsException;
+
+/**
+ * Admission control in front of the transfer endpoints. A transfer first
+ * takes a token from the bucket of its source account, then a slot under the
+ * {@link AdaptiveConcurrencyLimit}; failing either rejects it at once with a
+ * {@link TooManyRequestsException} instead of letting it queue behind the
+ * account locks. The returned {@link Permit} must be released when the
+ * transfer completes, which feeds its latency back into the limit.
+ */
+@Component
+public class TransferAdmission implements PublicMetrics {
+
+	public static final TransferAdmission DISABLED = new TransferAdmission(false, 0, 0, 0, 0, 0, 0);
+
+	private static final Permit NOOP = () -> { };
+
+	private final boolean enabled;
+
+	private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+	private final TokenBuckets accountBuckets;
+
+	private final LongAdder admitted = new LongAdder();
+
+	private final LongAdder rejectedByRate = new LongAdder();
+
+	private final LongAdder rejectedByConcurrency = new LongAdder();
+
+	@Autowired
+	public TransferAdmission(@Value("${accounts.limit.enabled:true}") boolean enabled,
+			@Value("${accounts.limit.initial-concurrency:100}") int initialConcurrency,
+			@Value("${accounts.limit.min-concurrency:8}") int minConcurrency,
+			@Value("${accounts.limit.max-concurrency:2000}") int maxConcurrency,
+			@Value("${accounts.limit.latency-tolerance:2.0}") double latencyTolerance,
+			@Value("${accounts.limit.account-rate:0}") double accountRate,
+			@Value("${accounts.limit.account-burst:0}") double accountBurst) {
+		this.enabled = enabled;
+		this.concurrencyLimit = new AdaptiveConcurrencyLimit(initialConcurrency, minConcurrency, maxConcurrency,
+				latencyTolerance);
+		this.accountBuckets = accountRate > 0 ? new TokenBuckets(accountRate, Math.max(accountRate, accountBurst)) : null;
+	}
+
+	public Permit acquire(String accountFrom) {
+		if (!enabled) {
+			return NOOP;
+		}
+
+		if (accountBuckets != null && !accountBuckets.tryAcquire(accountFrom)) {
+			rejectedByRate.increment();
+			throw new TooManyRequestsException("from account " + accountFrom);
+		}
+		if (!concurrencyLimit.tryAcquire()) {
+			rejectedByConcurrency.increment();
+			throw new TooManyRequestsException("in flight");
+		}
+
+		admitted.increment();
+		long start = System.nanoTime();
+		return () -> concurrencyLimit.release(System.nanoTime() - start);
+	}
+
+	@Scheduled(fixedDelayString = "${accounts.limit.eviction-interval-ms:60000}")
+	public void evictIdleAccounts() {
+		if (accountBuckets != null) {
+			accountBuckets.evictFull();
+		}
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		return Arrays.asList(
+				new Metric<Number>("limit.concurrency", concurrencyLimit.getLimit()),
+				new Metric<Number>("limit.in-flight", concurrencyLimit.getInFlight()),
+				new Metric<Number>("limit.admitted", admitted.sum()),
+				new Metric<Number>("limit.rejected.rate", rejectedByRate.sum()),
+				new Metric<Number>("limit.rejected.concurrency", rejectedByConcurrency.sum()),
+				new Metric<Number>("limit.account-buckets", accountBuckets == null ? 0 : accountBuckets.size()));
+	}
+
+	@FunctionalInterface
+	public interface Permit {
+
+		void release();
+	}
+}
@@ -1,5 +1,11 @@
 package com.db.awmd.challenge.web;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,13 +16,25 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountSnapshot;
+import com.db.awmd.challenge.domain.MultiLegTransfer;
+import com.db.awmd.challenge.domain.TransferLeg;
 import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.domain.TransferRecord;
+import com.db.awmd.challenge.domain.TransferResult;
+import com.db.awmd.challenge.dto.BatchTransferDto;
+import com.db.awmd.challenge.dto.MultiLegTransferDto;
 import com.db.awmd.challenge.dto.TransferMoneyDto;
 import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.IdempotencyCache;
+import com.db.awmd.challenge.service.limit.TransferAdmission;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -25,11 +43,20 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class AccountsController {
 
+	private static final int MAX_TRANSFERS_PAGE = 1000;
+
 	private final AccountsService accountsService;
 
+	private final IdempotencyCache idempotencyCache;
+
+	private final TransferAdmission transferAdmission;
+
 	@Autowired
-	public AccountsController(AccountsService accountsService) {
+	public AccountsController(AccountsService accountsService, IdempotencyCache idempotencyCache,
+			TransferAdmission transferAdmission) {
 		this.accountsService = accountsService;
+		this.idempotencyCache = idempotencyCache;
+		this.transferAdmission = transferAdmission;
 	}
 
 	@PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -43,21 +70,111 @@ public class AccountsController {
 	@GetMapping(path = "/{accountId}")
 	public Account getAccount(@PathVariable String accountId) {
 		log.info("Retrieving account for id {}", accountId);
-		return this.accountsService.getAccount(accountId);
+		AccountSnapshot snapshot = this.accountsService.getAccountSnapshot(accountId);
+		return snapshot == null ? null : snapshot.toAccount();
+	}
+
+	@GetMapping(path = "/{accountId}/transfers")
+	public List<TransferRecord> getTransfers(@PathVariable String accountId,
+			@RequestParam(required = false) Instant from,
+			@RequestParam(required = false) Instant to,
+			@RequestParam(defaultValue = "100") int limit) {
+		log.info("Retrieving transfers for id {} between {} and {}", accountId, from, to);
+		return this.accountsService.getTransfers(accountId, from, to, Math.min(limit, MAX_TRANSFERS_PAGE));
 	}
 
 	@PostMapping(path = "/transference", consumes = MediaType.APPLICATION_JSON_VALUE)
-	public ResponseEntity<Object> createAccount(@RequestBody @Valid TransferMoneyDto transferData) {
+	public ResponseEntity<Object> createAccount(@RequestBody @Valid TransferMoneyDto transferData,
+			@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
 		log.info("Transfering money from account {} to account {}", transferData.getAccountFrom(), transferData.getAccountTo());
 		
-		this.accountsService.transferValuesAccount(
-				TransferMoney
+		TransferMoney transfer = toTransferMoney(transferData);
+		if(idempotencyKey == null) {
+			transferAdmitted(transfer);
+		} else {
+			this.idempotencyCache.execute(idempotencyKey, transfer, () -> transferAdmitted(transfer));
+		}
+
+		return new ResponseEntity<>(HttpStatus.ACCEPTED);
+	}
+
+	/**
+	 * Only a transfer that actually runs takes a permit, so a retry answered
+	 * from the idempotency cache is never shed and spends no token.
+	 */
+	private void transferAdmitted(TransferMoney transfer) {
+		TransferAdmission.Permit permit = this.transferAdmission.acquire(transfer.getAccountFrom());
+		try {
+			this.accountsService.transferValuesAccount(transfer);
+		} finally {
+			permit.release();
+		}
+	}
+
+	@PostMapping(path = "/transference/async", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public DeferredResult<ResponseEntity<Object>> transferAsync(@RequestBody @Valid TransferMoneyDto transferData) {
+		log.info("Transfering money asynchronously from account {} to account {}", transferData.getAccountFrom(), transferData.getAccountTo());
+
+		TransferAdmission.Permit permit = this.transferAdmission.acquire(transferData.getAccountFrom());
+		CompletableFuture<Void> transfer;
+		try {
+			transfer = this.accountsService.transferValuesAccountAsync(toTransferMoney(transferData));
+		} catch (RuntimeException ex) {
+			permit.release();
+			throw ex;
+		}
+
+		DeferredResult<ResponseEntity<Object>> result = new DeferredResult<>();
+		transfer.whenComplete((ignored, ex) -> {
+			permit.release();
+			if (ex == null) {
+				result.setResult(new ResponseEntity<>(HttpStatus.ACCEPTED));
+			} else {
+				result.setErrorResult(ex instanceof CompletionException ? ex.getCause() : ex);
+			}
+		});
+		return result;
+	}
+
+	@PostMapping(path = "/transference/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<TransferResult>> transferBatch(@RequestBody @Valid BatchTransferDto batchData) {
+		log.info("Transfering money in a {} batch of {} transfers", batchData.getMode(), batchData.getTransfers().size());
+
+		List<TransferResult> results = this.accountsService.transferValuesAccounts(
+				batchData.getTransfers().stream().map(this::toTransferMoney).collect(Collectors.toList()),
+				batchData.getMode());
+
+		return new ResponseEntity<>(results, HttpStatus.OK);
+	}
+
+	@PostMapping(path = "/transference/multi-leg", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<Object> transferMultiLeg(@RequestBody @Valid MultiLegTransferDto transferData) {
+		log.info("Transfering money from account {} to {} accounts", transferData.getAccountFrom(), transferData.getLegs().size());
+
+		MultiLegTransfer transfer = MultiLegTransfer
 				.builder()
 				.accountFrom(transferData.getAccountFrom())
-				.accountTo(transferData.getAccountTo())
-				.value(transferData.getValue())
-				.build());
+				.legs(transferData.getLegs().stream()
+						.map(leg -> TransferLeg.builder().accountTo(leg.getAccountTo()).value(leg.getValue()).build())
+						.collect(Collectors.toList()))
+				.build();
+
+		TransferAdmission.Permit permit = this.transferAdmission.acquire(transfer.getAccountFrom());
+		try {
+			this.accountsService.transferValuesAccountMultiLeg(transfer);
+		} finally {
+			permit.release();
+		}
 
 		return new ResponseEntity<>(HttpStatus.ACCEPTED);
 	}
+
+	private TransferMoney toTransferMoney(TransferMoneyDto transferData) {
+		return TransferMoney
+				.builder()
+				.accountFrom(transferData.getAccountFrom())
+				.accountTo(transferData.getAccountTo())
+				.value(transferData.getValue())
+				.build();
+	}
 }
\ No newline at end of file
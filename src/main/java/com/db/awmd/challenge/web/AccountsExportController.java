@@ -0,0 +1,62 @@
+package com.db.awmd.challenge.web;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.db.awmd.challenge.domain.AccountExport;
+import com.db.awmd.challenge.domain.ExportFormat;
+import com.db.awmd.challenge.service.AccountExportService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Point-in-time exports: open one, stream its partitions in parallel or one
+ * after another, then close it.
+ */
+@RestController
+@RequestMapping("/v1/accounts/exports")
+@Slf4j
+public class AccountsExportController {
+
+	private final AccountExportService accountExportService;
+
+	@Autowired
+	public AccountsExportController(AccountExportService accountExportService) {
+		this.accountExportService = accountExportService;
+	}
+
+	@PostMapping
+	public ResponseEntity<AccountExport> openExport(@RequestParam(defaultValue = "1") int partitions) {
+		return new ResponseEntity<>(this.accountExportService.open(partitions), HttpStatus.CREATED);
+	}
+
+	@GetMapping(path = "/{exportId}/partitions/{partition}")
+	public ResponseEntity<StreamingResponseBody> exportPartition(@PathVariable String exportId,
+			@PathVariable int partition, @RequestParam(defaultValue = "NDJSON") ExportFormat format) {
+		log.info("Exporting partition {} of export {} as {}", partition, exportId, format);
+
+		this.accountExportService.describe(exportId, partition);
+		StreamingResponseBody body = output -> this.accountExportService.export(exportId, partition, format, output);
+
+		return ResponseEntity.ok()
+				.contentType(format == ExportFormat.BINARY
+						? MediaType.APPLICATION_OCTET_STREAM : MediaType.parseMediaType(AccountsImportController.NDJSON_VALUE))
+				.body(body);
+	}
+
+	@DeleteMapping(path = "/{exportId}")
+	public ResponseEntity<Object> closeExport(@PathVariable String exportId) {
+		this.accountExportService.close(exportId);
+		return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+	}
+}
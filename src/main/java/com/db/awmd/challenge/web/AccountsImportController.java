@@ -0,0 +1,43 @@
+package com.db.awmd.challenge.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.db.awmd.challenge.domain.ImportFormat;
+import com.db.awmd.challenge.domain.ImportReport;
+import com.db.awmd.challenge.service.AccountImportService;
+
+/**
+ * Bulk account creation. The request body is handed over as a stream, never
+ * bound or buffered as a whole.
+ */
+@RestController
+@RequestMapping("/v1/accounts")
+public class AccountsImportController {
+
+	static final String NDJSON_VALUE = "application/x-ndjson";
+
+	static final String CSV_VALUE = "text/csv";
+
+	private final AccountImportService accountImportService;
+
+	@Autowired
+	public AccountsImportController(AccountImportService accountImportService) {
+		this.accountImportService = accountImportService;
+	}
+
+	@PostMapping(path = "/import", consumes = NDJSON_VALUE)
+	public ImportReport importNdjson(InputStream body) throws IOException {
+		return this.accountImportService.importAccounts(body, ImportFormat.NDJSON);
+	}
+
+	@PostMapping(path = "/import", consumes = CSV_VALUE)
+	public ImportReport importCsv(InputStream body) throws IOException {
+		return this.accountImportService.importAccounts(body, ImportFormat.CSV);
+	}
+}
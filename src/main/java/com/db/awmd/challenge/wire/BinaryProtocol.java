@@ -0,0 +1,72 @@
+package com.db.awmd.challenge.wire;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed layout of the binary transfer protocol. Every frame is
+ * {@code [int length][byte type][long correlationId][body]}, where length
+ * counts the bytes after itself. Requests:
+ * <ul>
+ * <li>{@link #TRANSFER} {@code [short length][accountFrom][short
+ * length][accountTo][long unscaledValue][byte scale]};</li>
+ * <li>{@link #BALANCE} {@code [short length][accountId]}.</li>
+ * </ul>
+ * Each request is answered, in order, with a frame of the same type and
+ * correlation id whose body is {@code [byte status]}, followed by
+ * {@code [long unscaledBalance][byte scale]} for a {@link #BALANCE} answered
+ * with {@link #OK}. Account ids are UTF-8, amounts are the unscaled value and
+ * scale of a {@link BigDecimal} and all numbers are big-endian.
+ */
+public final class BinaryProtocol {
+
+	public static final byte TRANSFER = 1;
+
+	public static final byte BALANCE = 2;
+
+	public static final byte OK = 0;
+
+	public static final byte ACCOUNT_NOT_FOUND = 1;
+
+	public static final byte NO_FUNDS = 2;
+
+	public static final byte INVALID_VALUE = 3;
+
+	public static final byte REJECTED = 4;
+
+	public static final byte TOO_MANY_REQUESTS = 5;
+
+	public static final byte READ_ONLY = 6;
+
+	public static final byte BAD_REQUEST = 7;
+
+	public static final byte ERROR = 8;
+
+	public static final int MAX_FRAME_BYTES = 1024;
+
+	public static final int HEADER_BYTES = Integer.BYTES + 1 + Long.BYTES;
+
+	public static final int MAX_RESPONSE_BYTES = HEADER_BYTES + 1 + Long.BYTES + 1;
+
+	private BinaryProtocol() {
+	}
+
+	public static void putTransfer(ByteBuffer buffer, long correlationId, String accountFrom, String accountTo,
+			BigDecimal value) {
+		byte[] from = accountFrom.getBytes(StandardCharsets.UTF_8);
+		byte[] to = accountTo.getBytes(StandardCharsets.UTF_8);
+		buffer.putInt(1 + Long.BYTES + Short.BYTES + from.length + Short.BYTES + to.length + Long.BYTES + 1)
+				.put(TRANSFER).putLong(correlationId)
+				.putShort((short) from.length).put(from)
+				.putShort((short) to.length).put(to)
+				.putLong(value.unscaledValue().longValueExact()).put((byte) value.scale());
+	}
+
+	public static void putBalance(ByteBuffer buffer, long correlationId, String accountId) {
+		byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+		buffer.putInt(1 + Long.BYTES + Short.BYTES + id.length)
+				.put(BALANCE).putLong(correlationId)
+				.putShort((short) id.length).put(id);
+	}
+}
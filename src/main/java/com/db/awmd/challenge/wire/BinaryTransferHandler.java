@@ -0,0 +1,210 @@
+package com.db.awmd.challenge.wire;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.FixedPointAccount;
+import com.db.awmd.challenge.domain.Money;
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.exception.AccountNotFoundException;
+import com.db.awmd.challenge.exception.BusinessException;
+import com.db.awmd.challenge.exception.InvalidValueException;
+import com.db.awmd.challenge.exception.NoFundException;
+import com.db.awmd.challenge.exception.ReadOnlyReplicaException;
+import com.db.awmd.challenge.exception.TooManyRequestsException;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.limit.TransferAdmission;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decodes {@link BinaryProtocol} requests straight from the connection's
+ * buffer, calls the {@link AccountsService} and encodes the answers into the
+ * output buffer. Account ids are resolved through a small cache of the ids
+ * seen before, so a known id costs a byte comparison rather than a new
+ * String; the {@link TransferMoney} and its value are the only objects left
+ * per transfer. Not thread-safe: each reactor thread has its own handler.
+ */
+@Slf4j
+public class BinaryTransferHandler {
+
+	private static final int ID_CACHE_SIZE = 4096;
+
+	private final AccountsService accountsService;
+
+	private final TransferAdmission transferAdmission;
+
+	private final byte[][] cachedIdBytes = new byte[ID_CACHE_SIZE][];
+
+	private final String[] cachedIds = new String[ID_CACHE_SIZE];
+
+	public BinaryTransferHandler(AccountsService accountsService, TransferAdmission transferAdmission) {
+		this.accountsService = accountsService;
+		this.transferAdmission = transferAdmission;
+	}
+
+	/**
+	 * Answers every complete request in {@code in} for which {@code out} has
+	 * room, and leaves {@code in} positioned on the first one it did not
+	 * handle.
+	 */
+	public void handle(ByteBuffer in, ByteBuffer out) throws ProtocolException {
+		while (in.remaining() >= Integer.BYTES && out.remaining() >= BinaryProtocol.MAX_RESPONSE_BYTES) {
+			int start = in.position();
+			int length = in.getInt(start);
+			if (length < 1 + Long.BYTES || length > BinaryProtocol.MAX_FRAME_BYTES) {
+				throw new ProtocolException("Invalid binary frame length " + length);
+			}
+			if (in.remaining() < Integer.BYTES + length) {
+				return;
+			}
+
+			int end = start + Integer.BYTES + length;
+			int limit = in.limit();
+			in.limit(end).position(start + Integer.BYTES);
+			byte type = in.get();
+			long correlationId = in.getLong();
+
+			int responseStart = out.position();
+			out.putInt(0).put(type).putLong(correlationId);
+			switch (type) {
+			case BinaryProtocol.TRANSFER:
+				out.put(transfer(in));
+				break;
+			case BinaryProtocol.BALANCE:
+				balance(in, out);
+				break;
+			default:
+				out.put(BinaryProtocol.BAD_REQUEST);
+			}
+			out.putInt(responseStart, out.position() - responseStart - Integer.BYTES);
+
+			in.limit(limit).position(end);
+		}
+	}
+
+	private byte transfer(ByteBuffer in) {
+		String accountFrom = readId(in);
+		String accountTo = readId(in);
+		if (accountFrom == null || accountTo == null || in.remaining() != Long.BYTES + 1) {
+			return BinaryProtocol.BAD_REQUEST;
+		}
+		long unscaledValue = in.getLong();
+		BigDecimal value = BigDecimal.valueOf(unscaledValue, in.get());
+
+		try {
+			TransferMoney transfer = TransferMoney.builder().accountFrom(accountFrom).accountTo(accountTo).value(value)
+					.build();
+			TransferAdmission.Permit permit = this.transferAdmission.acquire(accountFrom);
+			try {
+				this.accountsService.transferValuesAccount(transfer);
+			} finally {
+				permit.release();
+			}
+			return BinaryProtocol.OK;
+		} catch (RuntimeException ex) {
+			return statusOf(ex);
+		}
+	}
+
+	private void balance(ByteBuffer in, ByteBuffer out) {
+		String accountId = readId(in);
+		if (accountId == null || in.hasRemaining()) {
+			out.put(BinaryProtocol.BAD_REQUEST);
+			return;
+		}
+
+		try {
+			Account account = this.accountsService.getAccount(accountId);
+			if (account == null) {
+				out.put(BinaryProtocol.ACCOUNT_NOT_FOUND);
+			} else if (account instanceof FixedPointAccount) {
+				out.put(BinaryProtocol.OK).putLong(((FixedPointAccount) account).getBalanceUnits())
+						.put((byte) Money.SCALE);
+			} else {
+				BigDecimal balance = account.getBalance();
+				BigInteger unscaledBalance = balance.unscaledValue();
+				if (balance.scale() != (byte) balance.scale() || unscaledBalance.bitLength() >= Long.SIZE) {
+					out.put(BinaryProtocol.ERROR);
+				} else {
+					out.put(BinaryProtocol.OK).putLong(unscaledBalance.longValue()).put((byte) balance.scale());
+				}
+			}
+		} catch (RuntimeException ex) {
+			out.put(statusOf(ex));
+		}
+	}
+
+	/**
+	 * Reads a length-prefixed id, reusing the String of an id seen before. Ids
+	 * that are empty or run past the frame are malformed and read as null.
+	 */
+	private String readId(ByteBuffer in) {
+		if (in.remaining() < Short.BYTES) {
+			return null;
+		}
+		int length = in.getShort() & 0xFFFF;
+		if (length == 0 || length > in.remaining()) {
+			return null;
+		}
+
+		int start = in.position();
+		int hash = 0x811C9DC5;
+		for (int i = 0; i < length; i++) {
+			hash = (hash ^ in.get(start + i)) * 0x01000193;
+		}
+		int slot = (hash ^ (hash >>> 16)) & (ID_CACHE_SIZE - 1);
+
+		byte[] cached = cachedIdBytes[slot];
+		if (cached != null && matches(in, start, length, cached)) {
+			in.position(start + length);
+			return cachedIds[slot];
+		}
+
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		String accountId = new String(bytes, StandardCharsets.UTF_8);
+		cachedIdBytes[slot] = bytes;
+		cachedIds[slot] = accountId;
+		return accountId;
+	}
+
+	private static boolean matches(ByteBuffer in, int start, int length, byte[] cached) {
+		if (cached.length != length) {
+			return false;
+		}
+		for (int i = 0; i < cached.length; i++) {
+			if (in.get(start + i) != cached[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static byte statusOf(RuntimeException ex) {
+		if (ex instanceof AccountNotFoundException) {
+			return BinaryProtocol.ACCOUNT_NOT_FOUND;
+		}
+		if (ex instanceof NoFundException) {
+			return BinaryProtocol.NO_FUNDS;
+		}
+		if (ex instanceof InvalidValueException) {
+			return BinaryProtocol.INVALID_VALUE;
+		}
+		if (ex instanceof BusinessException) {
+			return BinaryProtocol.REJECTED;
+		}
+		if (ex instanceof TooManyRequestsException) {
+			return BinaryProtocol.TOO_MANY_REQUESTS;
+		}
+		if (ex instanceof ReadOnlyReplicaException) {
+			return BinaryProtocol.READ_ONLY;
+		}
+		log.error("Binary request failed", ex);
+		return BinaryProtocol.ERROR;
+	}
+}
@@ -0,0 +1,280 @@
+package com.db.awmd.challenge.wire;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.limit.TransferAdmission;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * TCP endpoint of the {@link BinaryProtocol}, next to the JSON one and in
+ * front of the same {@link AccountsService}. Accepted connections are spread
+ * over a few reactor threads, each with its own selector and
+ * {@link BinaryTransferHandler}; a connection reads into and answers from two
+ * pooled direct buffers, so pipelined requests are decoded and answered in
+ * batches without allocating per message. Transfers run on the reactor
+ * thread, as they would on a servlet thread, and go through the same
+ * admission control.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${accounts.binary.port:0} > 0")
+public class BinaryTransferServer implements PublicMetrics {
+
+	private static final int BUFFER_BYTES = 64 * 1024;
+
+	private final ServerSocketChannel server;
+
+	private final Reactor[] reactors;
+
+	private final Thread acceptor;
+
+	private final BufferPool bufferPool = new BufferPool(BUFFER_BYTES);
+
+	private final AtomicInteger connections = new AtomicInteger();
+
+	private volatile boolean running = true;
+
+	@Autowired
+	public BinaryTransferServer(AccountsService accountsService, TransferAdmission transferAdmission,
+			@Value("${accounts.binary.port:0}") int port,
+			@Value("${accounts.binary.threads:0}") int threads) throws IOException {
+		this.server = ServerSocketChannel.open();
+		this.server.bind(new InetSocketAddress(port));
+
+		this.reactors = new Reactor[threads > 0 ? threads : Runtime.getRuntime().availableProcessors()];
+		for (int i = 0; i < reactors.length; i++) {
+			reactors[i] = new Reactor(new BinaryTransferHandler(accountsService, transferAdmission), i);
+		}
+
+		this.acceptor = new Thread(this::accept, "binary-acceptor");
+		this.acceptor.setDaemon(true);
+		this.acceptor.start();
+		log.info("Serving the binary transfer protocol on port {} with {} reactors", getPort(), reactors.length);
+	}
+
+	public int getPort() throws IOException {
+		return ((InetSocketAddress) server.getLocalAddress()).getPort();
+	}
+
+	@PreDestroy
+	public void shutdown() throws IOException {
+		this.running = false;
+		server.close();
+		for (Reactor reactor : reactors) {
+			reactor.selector.wakeup();
+		}
+		try {
+			acceptor.join(TimeUnit.SECONDS.toMillis(5));
+			for (Reactor reactor : reactors) {
+				reactor.thread.join(TimeUnit.SECONDS.toMillis(5));
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		return Collections.singletonList(new Metric<Number>("binary.connections", connections.get()));
+	}
+
+	private void accept() {
+		int next = 0;
+		while (running) {
+			try {
+				SocketChannel channel = server.accept();
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				reactors[next].register(channel);
+				next = (next + 1) % reactors.length;
+			} catch (IOException ex) {
+				if (running) {
+					log.warn("Failed to accept a binary connection", ex);
+				}
+			}
+		}
+	}
+
+	private final class Reactor implements Runnable {
+
+		private final Selector selector;
+
+		private final BinaryTransferHandler handler;
+
+		private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+
+		private final Thread thread;
+
+		private Reactor(BinaryTransferHandler handler, int index) throws IOException {
+			this.selector = Selector.open();
+			this.handler = handler;
+			this.thread = new Thread(this, "binary-reactor-" + index);
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+
+		private void register(SocketChannel channel) {
+			registrations.add(channel);
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			while (running) {
+				try {
+					selector.select();
+					registerPending();
+
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+						Connection connection = (Connection) key.attachment();
+						try {
+							if (key.isReadable()) {
+								connection.read();
+							} else if (key.isWritable()) {
+								connection.write();
+							}
+						} catch (IOException ex) {
+							log.debug("Closing binary connection: {}", ex.toString());
+							connection.close();
+						}
+					}
+				} catch (IOException ex) {
+					if (running) {
+						log.warn("Binary reactor failed to select", ex);
+					}
+				}
+			}
+
+			for (SelectionKey key : selector.keys()) {
+				((Connection) key.attachment()).close();
+			}
+			try {
+				selector.close();
+			} catch (IOException ex) {
+				log.debug("Failed to close a binary reactor", ex);
+			}
+		}
+
+		private void registerPending() {
+			SocketChannel channel;
+			while ((channel = registrations.poll()) != null) {
+				try {
+					new Connection(channel, channel.register(selector, SelectionKey.OP_READ), handler);
+					connections.incrementAndGet();
+				} catch (IOException ex) {
+					log.warn("Failed to register a binary connection", ex);
+					closeQuietly(channel);
+				}
+			}
+		}
+	}
+
+	private static void closeQuietly(SocketChannel channel) {
+		try {
+			channel.close();
+		} catch (IOException ex) {
+			log.debug("Failed to close a binary connection", ex);
+		}
+	}
+
+	private final class Connection {
+
+		private final SocketChannel channel;
+
+		private final SelectionKey key;
+
+		private final BinaryTransferHandler handler;
+
+		private final ByteBuffer in = bufferPool.acquire();
+
+		private final ByteBuffer out = bufferPool.acquire();
+
+		private boolean closed;
+
+		private Connection(SocketChannel channel, SelectionKey key, BinaryTransferHandler handler) {
+			this.channel = channel;
+			this.key = key;
+			this.handler = handler;
+			key.attach(this);
+		}
+
+		private void read() throws IOException {
+			if (channel.read(in) < 0) {
+				throw new EOFException("Client closed the connection");
+			}
+			process();
+		}
+
+		/**
+		 * Resumes the requests left in the input buffer once the answers that
+		 * filled the output buffer have been sent.
+		 */
+		private void write() throws IOException {
+			flush();
+			if (out.position() == 0) {
+				process();
+			}
+		}
+
+		private void process() throws IOException {
+			in.flip();
+			try {
+				handler.handle(in, out);
+			} finally {
+				in.compact();
+			}
+			flush();
+		}
+
+		/**
+		 * Writes what the socket takes and waits for it to become writable
+		 * before reading more requests if the answers do not fit.
+		 */
+		private void flush() throws IOException {
+			out.flip();
+			channel.write(out);
+			out.compact();
+			key.interestOps(out.position() > 0 ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+		}
+
+		private void close() {
+			if (closed) {
+				return;
+			}
+			this.closed = true;
+			key.cancel();
+			closeQuietly(channel);
+			bufferPool.release(in);
+			bufferPool.release(out);
+			connections.decrementAndGet();
+		}
+	}
+}
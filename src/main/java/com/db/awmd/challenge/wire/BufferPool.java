@@ -0,0 +1,31 @@
+package com.db.awmd.challenge.wire;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Direct buffers of one size, handed out to connections when they open and
+ * taken back when they close, so connection churn does not allocate direct
+ * memory each time.
+ */
+final class BufferPool {
+
+	private final int bufferBytes;
+
+	private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+	BufferPool(int bufferBytes) {
+		this.bufferBytes = bufferBytes;
+	}
+
+	ByteBuffer acquire() {
+		ByteBuffer buffer = buffers.poll();
+		return buffer == null ? ByteBuffer.allocateDirect(bufferBytes) : buffer;
+	}
+
+	void release(ByteBuffer buffer) {
+		buffer.clear();
+		buffers.offer(buffer);
+	}
+}
@@ -0,0 +1,65 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountExport;
+import com.db.awmd.challenge.domain.ExportFormat;
+import com.db.awmd.challenge.repository.AccountLocks;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.AccountExportService;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.engine.LockingTransferEngine;
+
+public class AccountExportServiceTest {
+
+	private final AccountLocks accountLocks = new AccountLocks(16);
+
+	private AccountExportService exportService;
+
+	private CompletableFuture<AccountExport> openedDuringCreate;
+
+	/**
+	 * Opens an export right after the account is inserted, while the service
+	 * is still creating it, and gives the cut a moment to complete there.
+	 */
+	@Test(timeout = 30_000)
+	public void accountCreatedWhileTheCutIsTaken_isExported() throws Exception {
+		AccountsRepositoryInMemory accountsRepository = new AccountsRepositoryInMemory() {
+			@Override
+			public void createAccount(Account account) {
+				super.createAccount(account);
+				openedDuringCreate = CompletableFuture.supplyAsync(() -> exportService.open(1));
+				try {
+					openedDuringCreate.get(200, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException ex) {
+					// the cut waits for the creation to finish
+				} catch (Exception ex) {
+					throw new IllegalStateException(ex);
+				}
+			}
+		};
+		this.exportService = new AccountExportService(accountsRepository, accountLocks, 60_000);
+		AccountsService accountsService = AccountsService.builder(accountsRepository, (account, description) -> { },
+				new LockingTransferEngine(accountsRepository, accountLocks))
+				.accountChangeListener(exportService)
+				.build();
+
+		accountsService.createAccount(new Account("Id-1", BigDecimal.TEN));
+		AccountExport export = openedDuringCreate.get();
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		exportService.export(export.getExportId(), 0, ExportFormat.NDJSON, output);
+
+		assertThat(output.toString(StandardCharsets.UTF_8.name())).contains("\"accountId\":\"Id-1\"");
+	}
+}
@@ -2,15 +2,20 @@ package com.db.awmd.challenge;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
 
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.Before;
@@ -24,10 +29,14 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.context.WebApplicationContext;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferMoney;
 import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.ledger.TransferLedger;
+import com.jayway.jsonpath.JsonPath;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -39,6 +48,9 @@ public class AccountsControllerTest {
 	@Autowired
 	private AccountsService accountsService;
 
+	@Autowired
+	private TransferLedger transferLedger;
+
 	@Autowired
 	private WebApplicationContext webApplicationContext;
 
@@ -72,6 +84,18 @@ public class AccountsControllerTest {
 				.content("{\"accountId\":\"Id-123\",\"balance\":1000}")).andExpect(status().isBadRequest());
 	}
 
+	@Test
+	public void transferFromUnknownAccountExplainsTheError() throws Exception {
+		this.accountsService.createAccount(new Account("2", new BigDecimal("100")));
+
+		this.mockMvc.perform(post("/v1/accounts/transference").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"accountFrom\":\"Id \\\"\u00e9\\\"\",\"accountTo\":\"2\",\"value\":10}"))
+		.andExpect(status().isBadRequest())
+		.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+		.andExpect(jsonPath("$.timestamp").isNotEmpty())
+		.andExpect(jsonPath("$.error").value("The account Id \"\u00e9\" does not exist"));
+	}
+
 	@Test
 	public void createAccountNoAccountId() throws Exception {
 		this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
@@ -102,6 +126,71 @@ public class AccountsControllerTest {
 				.content("{\"accountId\":\"\",\"balance\":1000}")).andExpect(status().isBadRequest());
 	}
 
+	@Test
+	public void importAccountsNdjson() throws Exception {
+		this.accountsService.createAccount(new Account("Id-2", new BigDecimal("10")));
+
+		this.mockMvc.perform(post("/v1/accounts/import").contentType("application/x-ndjson")
+				.content("{\"accountId\":\"Id-1\",\"balance\":100}\n"
+						+ "{\"accountId\":\"Id-2\",\"balance\":200}\n"
+						+ "{\"accountId\":\"Id-3\",\"balance\":-1}\n"
+						+ "not json\n"
+						+ "{\"accountId\":\"Id-4\",\"balance\":\"400.50\"}\n"))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.imported").value(2))
+		.andExpect(jsonPath("$.failed").value(3))
+		.andExpect(jsonPath("$.errors[0].line").value(2))
+		.andExpect(jsonPath("$.errors[1].line").value(3))
+		.andExpect(jsonPath("$.errors[2].line").value(4));
+
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("100");
+		assertThat(accountsService.getAccount("Id-4").getBalance()).isEqualByComparingTo("400.50");
+	}
+
+	@Test
+	public void importAccountsCsv() throws Exception {
+		this.mockMvc.perform(post("/v1/accounts/import").contentType("text/csv")
+				.content("accountId,balance\nId-1,100\nId-1,100\nId-2,abc\nId-3,5.25\n"))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.imported").value(2))
+		.andExpect(jsonPath("$.failed").value(2))
+		.andExpect(jsonPath("$.errors[0].line").value(3))
+		.andExpect(jsonPath("$.errors[1].line").value(4));
+
+		assertThat(accountsService.getAccount("Id-3").getBalance()).isEqualByComparingTo("5.25");
+	}
+
+	@Test
+	public void exportShowsBalancesAtTheCut() throws Exception {
+		this.accountsService.createAccount(new Account("1", new BigDecimal("500")));
+		this.accountsService.createAccount(new Account("2", new BigDecimal("1000")));
+
+		String export = this.mockMvc.perform(post("/v1/accounts/exports"))
+		.andExpect(status().isCreated())
+		.andReturn().getResponse().getContentAsString();
+		String exportId = JsonPath.read(export, "$.exportId");
+
+		this.accountsService.transferValuesAccount(TransferMoney.builder()
+				.accountFrom("1").accountTo("2").value(new BigDecimal("100")).build());
+		this.accountsService.createAccount(new Account("3", new BigDecimal("10")));
+
+		MvcResult result = this.mockMvc.perform(get("/v1/accounts/exports/" + exportId + "/partitions/0"))
+		.andExpect(request().asyncStarted())
+		.andReturn();
+
+		String body = this.mockMvc.perform(asyncDispatch(result))
+		.andExpect(status().isOk())
+		.andReturn().getResponse().getContentAsString();
+
+		assertThat(body.split("\n")).containsOnly(
+				"{\"accountId\":\"1\",\"balance\":500}",
+				"{\"accountId\":\"2\",\"balance\":1000}");
+
+		this.mockMvc.perform(delete("/v1/accounts/exports/" + exportId)).andExpect(status().isNoContent());
+		this.mockMvc.perform(get("/v1/accounts/exports/" + exportId + "/partitions/0"))
+		.andExpect(status().isBadRequest());
+	}
+
 	@Test
 	public void getAccount() throws Exception {
 		String uniqueAccountId = "Id-" + System.currentTimeMillis();
@@ -153,4 +242,151 @@ public class AccountsControllerTest {
 				.content(request))
 		.andExpect(status().isBadRequest());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void transferAsyncSuccess() throws Exception {
+		this.accountsService.createAccount(new Account("1", new BigDecimal("500")));
+		this.accountsService.createAccount(new Account("2", new BigDecimal("1000")));
+
+		String transferRequest = IOUtils.toString(transferFunds100Json.getInputStream(), StandardCharsets.UTF_8);
+
+		MvcResult result = this.mockMvc.perform(post("/v1/accounts/transference/async")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(transferRequest))
+		.andExpect(request().asyncStarted())
+		.andReturn();
+
+		this.mockMvc.perform(asyncDispatch(result)).andExpect(status().isAccepted());
+
+		assertTrue(new BigDecimal(1100).compareTo(this.accountsService.getAccount("2").getBalance()) == 0);
+		assertTrue(new BigDecimal(400).compareTo(this.accountsService.getAccount("1").getBalance()) == 0);
+	}
+
+	@Test
+	public void transferAsyncNoFundsAvailable() throws Exception {
+		this.accountsService.createAccount(new Account("1", new BigDecimal("50")));
+		this.accountsService.createAccount(new Account("2", new BigDecimal("1000")));
+
+		String transferRequest = IOUtils.toString(transferFunds100Json.getInputStream(), StandardCharsets.UTF_8);
+
+		MvcResult result = this.mockMvc.perform(post("/v1/accounts/transference/async")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(transferRequest))
+		.andExpect(request().asyncStarted())
+		.andReturn();
+
+		this.mockMvc.perform(asyncDispatch(result)).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void transferRetryWithIdempotencyKey() throws Exception {
+		this.accountsService.createAccount(new Account("1", new BigDecimal("500")));
+		this.accountsService.createAccount(new Account("2", new BigDecimal("1000")));
+
+		String request = IOUtils.toString(transferFunds100Json.getInputStream(), StandardCharsets.UTF_8);
+
+		for (int i = 0; i < 2; i++) {
+			this.mockMvc.perform(post("/v1/accounts/transference")
+					.header("Idempotency-Key", "transfer-retry")
+					.contentType(MediaType.APPLICATION_JSON)
+					.content(request))
+			.andExpect(status().isAccepted());
+		}
+
+		assertTrue(new BigDecimal(1100).compareTo(this.accountsService.getAccount("2").getBalance()) == 0);
+		assertTrue(new BigDecimal(400).compareTo(this.accountsService.getAccount("1").getBalance()) == 0);
+	}
+
+	@Test
+	public void transferIdempotencyKeyReusedForOtherTransfer() throws Exception {
+		this.accountsService.createAccount(new Account("1", new BigDecimal("500")));
+		this.accountsService.createAccount(new Account("2", new BigDecimal("1000")));
+
+		this.mockMvc.perform(post("/v1/accounts/transference")
+				.header("Idempotency-Key", "transfer-reused")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"accountFrom\":\"1\",\"accountTo\":\"2\",\"value\":100}"))
+		.andExpect(status().isAccepted());
+
+		this.mockMvc.perform(post("/v1/accounts/transference")
+				.header("Idempotency-Key", "transfer-reused")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"accountFrom\":\"1\",\"accountTo\":\"2\",\"value\":200}"))
+		.andExpect(status().isBadRequest());
+
+		assertTrue(new BigDecimal(400).compareTo(this.accountsService.getAccount("1").getBalance()) == 0);
+	}
+
+	@Test
+	public void transferBatchBestEffort() throws Exception {
+		this.accountsService.createAccount(new Account("1", new BigDecimal("500")));
+		this.accountsService.createAccount(new Account("2", new BigDecimal("1000")));
+
+		this.mockMvc.perform(post("/v1/accounts/transference/batch")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"mode\":\"BEST_EFFORT\",\"transfers\":["
+						+ "{\"accountFrom\":\"1\",\"accountTo\":\"2\",\"value\":100},"
+						+ "{\"accountFrom\":\"1\",\"accountTo\":\"2\",\"value\":1000},"
+						+ "{\"accountFrom\":\"1\",\"accountTo\":\"3\",\"value\":10}]}"))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$[0].status").value("APPLIED"))
+		.andExpect(jsonPath("$[1].status").value("REJECTED"))
+		.andExpect(jsonPath("$[2].status").value("REJECTED"));
+
+		assertTrue(new BigDecimal(1100).compareTo(this.accountsService.getAccount("2").getBalance()) == 0);
+		assertTrue(new BigDecimal(400).compareTo(this.accountsService.getAccount("1").getBalance()) == 0);
+	}
+
+	@Test
+	public void transferBatchAllOrNothing() throws Exception {
+		this.accountsService.createAccount(new Account("1", new BigDecimal("500")));
+		this.accountsService.createAccount(new Account("2", new BigDecimal("1000")));
+
+		this.mockMvc.perform(post("/v1/accounts/transference/batch")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"mode\":\"ALL_OR_NOTHING\",\"transfers\":["
+						+ "{\"accountFrom\":\"1\",\"accountTo\":\"2\",\"value\":100},"
+						+ "{\"accountFrom\":\"1\",\"accountTo\":\"2\",\"value\":1000}]}"))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$[0].status").value("ABORTED"))
+		.andExpect(jsonPath("$[1].status").value("REJECTED"));
+
+		assertTrue(new BigDecimal(1000).compareTo(this.accountsService.getAccount("2").getBalance()) == 0);
+		assertTrue(new BigDecimal(500).compareTo(this.accountsService.getAccount("1").getBalance()) == 0);
+	}
+
+	@Test
+	public void transferHistoryByAccount() throws Exception {
+		// The ledger outlives clearAccounts(), so these ids are not reused by other tests.
+		this.accountsService.createAccount(new Account("Ledger-1", new BigDecimal("500")));
+		this.accountsService.createAccount(new Account("Ledger-2", new BigDecimal("500")));
+		this.accountsService.createAccount(new Account("Ledger-3", new BigDecimal("500")));
+
+		this.accountsService.transferValuesAccount(transfer("Ledger-1", "Ledger-2", "100"));
+		this.accountsService.transferValuesAccount(transfer("Ledger-2", "Ledger-3", "30"));
+		this.accountsService.transferValuesAccount(transfer("Ledger-3", "Ledger-1", "5"));
+		this.transferLedger.flush();
+
+		this.mockMvc.perform(get("/v1/accounts/Ledger-1/transfers"))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.length()").value(2))
+		.andExpect(jsonPath("$[0].accountTo").value("Ledger-2"))
+		.andExpect(jsonPath("$[0].value").value(100))
+		.andExpect(jsonPath("$[1].accountFrom").value("Ledger-3"))
+		.andExpect(jsonPath("$[1].value").value(5));
+
+		this.mockMvc.perform(get("/v1/accounts/Ledger-2/transfers").param("limit", "1"))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.length()").value(1))
+		.andExpect(jsonPath("$[0].accountFrom").value("Ledger-1"));
+
+		this.mockMvc.perform(get("/v1/accounts/Ledger-2/transfers")
+				.param("from", Instant.now().plusSeconds(60).toString()))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.length()").value(0));
+	}
+
+	private static TransferMoney transfer(String accountFrom, String accountTo, String value) {
+		return TransferMoney.builder().accountFrom(accountFrom).accountTo(accountTo).value(new BigDecimal(value)).build();
+	}
+}
@@ -0,0 +1,192 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.FixedPointAccount;
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.exception.NoFundException;
+import com.db.awmd.challenge.repository.AccountLocks;
+import com.db.awmd.challenge.repository.AccountsRepositoryJournaled;
+import com.db.awmd.challenge.repository.journal.FsyncPolicy;
+import com.db.awmd.challenge.repository.journal.Journal;
+import com.db.awmd.challenge.repository.journal.JournalException;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.engine.LockingTransferEngine;
+
+public class AccountsRepositoryJournaledTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final AccountLocks accountLocks = new AccountLocks(64);
+
+	@Test
+	public void replay_restoresCreatedAccountsAndTransfers() throws Exception {
+		AccountsRepositoryJournaled accountsRepository = openRepository(1024);
+		AccountsService accountsService = accountsService(accountsRepository);
+
+		accountsService.createAccount(new Account("1", new BigDecimal("500.25")));
+		accountsService.createAccount(new Account("2", new BigDecimal("1000")));
+		for (int i = 0; i < 100; i++) {
+			accountsService.transferValuesAccount(transfer("1", "2", new BigDecimal("1.5")));
+		}
+		accountsRepository.close();
+
+		AccountsRepositoryJournaled reopened = openRepository(1024);
+
+		assertThat(reopened.getAccount("1").getBalance()).isEqualByComparingTo("350.25");
+		assertThat(reopened.getAccount("2").getBalance()).isEqualByComparingTo("1150");
+		assertThat(folder.getRoot().listFiles().length).isGreaterThan(1);
+		reopened.close();
+	}
+
+	@Test
+	public void replay_appliesClear() throws Exception {
+		AccountsRepositoryJournaled accountsRepository = openRepository(4096);
+		accountsRepository.createAccount(new Account("1", BigDecimal.TEN));
+		accountsRepository.clearAccounts();
+		accountsRepository.createAccount(new Account("2", BigDecimal.ONE));
+		accountsRepository.close();
+
+		AccountsRepositoryJournaled reopened = openRepository(4096);
+
+		assertThat(reopened.getAccount("1")).isNull();
+		assertThat(reopened.getAccount("2").getBalance()).isEqualByComparingTo("1");
+		reopened.close();
+	}
+
+	@Test
+	public void replay_restoresFixedPointAccounts() throws Exception {
+		AccountsRepositoryJournaled accountsRepository = openRepository(4096, true);
+		AccountsService accountsService = AccountsService.builder(accountsRepository, (account, description) -> { },
+				new LockingTransferEngine(accountsRepository, accountLocks))
+				.fixedPointMoney(true)
+				.build();
+		accountsService.createAccount(new Account("1", new BigDecimal("10.50")));
+		accountsService.createAccount(new Account("2", BigDecimal.ZERO));
+		accountsService.transferValuesAccount(transfer("1", "2", new BigDecimal("0.25")));
+		accountsRepository.close();
+
+		AccountsRepositoryJournaled reopened = openRepository(4096, true);
+
+		assertThat(reopened.getAccount("1")).isInstanceOf(FixedPointAccount.class);
+		assertThat(reopened.getAccount("1").getBalance()).isEqualByComparingTo("10.25");
+		assertThat(reopened.getAccount("2")).isInstanceOf(FixedPointAccount.class);
+		assertThat(reopened.getAccount("2").getBalance()).isEqualByComparingTo("0.25");
+		reopened.close();
+	}
+
+	@Test
+	public void replay_failsOnACorruptRecordBeforeTheLastSegment() throws Exception {
+		AccountsRepositoryJournaled accountsRepository = openRepository(1024);
+		for (int i = 0; i < 100; i++) {
+			accountsRepository.createAccount(new Account("Id-" + i, BigDecimal.ONE));
+		}
+		Path firstSegment = accountsRepository.getJournal().segmentPath(0);
+		accountsRepository.close();
+
+		byte[] bytes = Files.readAllBytes(firstSegment);
+		bytes[Integer.BYTES + 1] ^= 0x7F;
+		Files.write(firstSegment, bytes);
+
+		try {
+			openRepository(1024);
+			fail("Should have failed to replay past the corrupt record");
+		} catch (JournalException ex) {
+			assertThat(ex.getMessage()).contains(firstSegment.toString());
+		}
+	}
+
+	@Test(timeout = 60_000)
+	public void snapshot_takenDuringTransfers_restoresSameBalances() throws Exception {
+		int accounts = 10_000;
+		AccountsRepositoryJournaled accountsRepository = openRepository(64 * 1024);
+		AccountsService accountsService = accountsService(accountsRepository);
+		for (int i = 0; i < accounts; i++) {
+			accountsService.createAccount(new Account("Id-" + i, new BigDecimal("1000")));
+		}
+
+		AtomicBoolean running = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		Future<?>[] workers = new Future<?>[4];
+		for (int w = 0; w < workers.length; w++) {
+			workers[w] = executor.submit(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				while (running.get()) {
+					try {
+						accountsService.transferValuesAccount(transfer("Id-" + random.nextInt(accounts),
+								"Id-" + random.nextInt(accounts), new BigDecimal(random.nextInt(1, 100))));
+					} catch (NoFundException ex) {
+						// expected once an account is drained
+					}
+				}
+			});
+		}
+
+		accountsRepository.snapshot();
+		accountsRepository.snapshot();
+		running.set(false);
+		for (Future<?> worker : workers) {
+			worker.get(30, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+
+		Map<String, BigDecimal> expected = new HashMap<>();
+		for (int i = 0; i < accounts; i++) {
+			expected.put("Id-" + i, accountsRepository.getAccount("Id-" + i).getBalance());
+		}
+		accountsRepository.close();
+
+		AccountsRepositoryJournaled reopened = openRepository(64 * 1024);
+
+		BigDecimal total = BigDecimal.ZERO;
+		for (Map.Entry<String, BigDecimal> account : expected.entrySet()) {
+			BigDecimal restored = reopened.getAccount(account.getKey()).getBalance();
+			assertThat(restored).isEqualByComparingTo(account.getValue());
+			total = total.add(restored);
+		}
+		assertThat(total).isEqualByComparingTo(new BigDecimal(1000L * accounts));
+		reopened.close();
+	}
+
+	private AccountsRepositoryJournaled openRepository(int segmentSize) throws Exception {
+		return openRepository(segmentSize, false);
+	}
+
+	private AccountsRepositoryJournaled openRepository(int segmentSize, boolean fixedPointMoney) throws Exception {
+		return new AccountsRepositoryJournaled(
+				new Journal(folder.getRoot().toPath(), segmentSize, FsyncPolicy.NONE, 0), accountLocks, fixedPointMoney);
+	}
+
+	private AccountsService accountsService(AccountsRepositoryJournaled accountsRepository) {
+		return AccountsService.builder(accountsRepository, (account, description) -> { },
+				new LockingTransferEngine(accountsRepository, accountLocks)).build();
+	}
+
+	private static TransferMoney transfer(String accountFrom, String accountTo, BigDecimal value) {
+		return TransferMoney
+				.builder()
+				.accountFrom(accountFrom)
+				.accountTo(accountTo)
+				.value(value)
+				.build();
+	}
+}
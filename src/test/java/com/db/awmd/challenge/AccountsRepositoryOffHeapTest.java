@@ -0,0 +1,120 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.domain.TransferResult;
+import com.db.awmd.challenge.domain.TransferStatus;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.exception.NoFundException;
+import com.db.awmd.challenge.repository.AccountsRepositoryOffHeap;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.engine.LockingTransferEngine;
+
+public class AccountsRepositoryOffHeapTest {
+
+	private final AccountsRepositoryOffHeap accountsRepository = new AccountsRepositoryOffHeap();
+
+	@Test
+	public void createAndGetAccounts() {
+		for (int i = 0; i < 200_000; i++) {
+			accountsRepository.createAccount(new Account("Id-" + i, new BigDecimal(i)));
+		}
+		accountsRepository.createAccount(new Account("Conta-çăo", new BigDecimal("12.34")));
+
+		assertThat(accountsRepository.size()).isEqualTo(200_001);
+		assertThat(accountsRepository.getAccount("Id-0").getBalance()).isEqualByComparingTo("0");
+		assertThat(accountsRepository.getAccount("Id-199999").getBalance()).isEqualByComparingTo("199999");
+		assertThat(accountsRepository.getAccount("Conta-çăo").getBalance()).isEqualByComparingTo("12.34");
+		assertThat(accountsRepository.getAccount("Id-200000")).isNull();
+	}
+
+	@Test
+	public void createDuplicateAccount() {
+		accountsRepository.createAccount(new Account("Id-123", new BigDecimal("1000")));
+
+		try {
+			accountsRepository.createAccount(new Account("Id-123", new BigDecimal("1000")));
+			fail("Should have failed when adding duplicate account");
+		} catch (DuplicateAccountIdException ex) {
+			assertThat(ex.getMessage()).isEqualTo("Account id Id-123 already exists!");
+		}
+	}
+
+	@Test
+	public void balanceChangesGoThroughToTheSlab() {
+		accountsRepository.createAccount(new Account("Id-1", new BigDecimal("1000")));
+
+		accountsRepository.getAccount("Id-1").setBalance(new BigDecimal("900.50"));
+		assertThat(accountsRepository.getAccount("Id-1").getBalance()).isEqualByComparingTo("900.50");
+
+		accountsRepository.updateAccount(new Account("Id-1", new BigDecimal("10")));
+		assertThat(accountsRepository.getAccount("Id-1").getBalance()).isEqualByComparingTo("10");
+	}
+
+	@Test
+	public void clearAccountsDetachesOldHandles() {
+		accountsRepository.createAccount(new Account("Id-1", new BigDecimal("1000")));
+		Account stale = accountsRepository.getAccount("Id-1");
+
+		accountsRepository.clearAccounts();
+		accountsRepository.createAccount(new Account("Id-2", new BigDecimal("50")));
+		stale.setBalance(BigDecimal.ONE);
+
+		assertThat(accountsRepository.getAccount("Id-1")).isNull();
+		assertThat(accountsRepository.getAccount("Id-2").getBalance()).isEqualByComparingTo("50");
+	}
+
+	@Test
+	public void transfersMoveMoneyBetweenRecords() {
+		AccountsService accountsService = accountsService();
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("Id-2", new BigDecimal("5.25")));
+
+		accountsService.transferValuesAccount(transfer("Id-1", "Id-2", "30.50"));
+
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("69.50");
+		assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("35.75");
+
+		try {
+			accountsService.transferValuesAccount(transfer("Id-2", "Id-1", "100"));
+			fail("NoFundsException should be thrown");
+		} catch (NoFundException ex) {
+			assertThat(ex.getMessage()).isEqualTo(new NoFundException("Id-2").getMessage());
+		}
+		assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("35.75");
+	}
+
+	@Test
+	public void transferToTheSameAccountKeepsTheBalance() {
+		AccountsService accountsService = accountsService();
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("100")));
+
+		accountsService.transferValuesAccount(transfer("Id-1", "Id-1", "40"));
+		List<TransferResult> results = accountsService.transferValuesAccounts(Arrays.asList(
+				transfer("Id-1", "Id-1", "10"),
+				transfer("Id-1", "Id-1", "20")), BatchMode.BEST_EFFORT);
+
+		assertThat(results).extracting("status").containsExactly(TransferStatus.APPLIED, TransferStatus.APPLIED);
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("100");
+	}
+
+	private AccountsService accountsService() {
+		return AccountsService.builder(accountsRepository, (account, description) -> { },
+				new LockingTransferEngine(accountsRepository)).build();
+	}
+
+	private static TransferMoney transfer(String accountFrom, String accountTo, String value) {
+		return TransferMoney.builder().accountFrom(accountFrom).accountTo(accountTo).value(new BigDecimal(value))
+				.build();
+	}
+}
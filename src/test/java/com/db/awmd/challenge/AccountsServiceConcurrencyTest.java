@@ -0,0 +1,263 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountSnapshot;
+import com.db.awmd.challenge.domain.StripedAccount;
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.exception.NoFundException;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.AccountsRepositoryOptimistic;
+import com.db.awmd.challenge.service.AccountStriping;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.engine.LockingTransferEngine;
+import com.db.awmd.challenge.service.engine.OptimisticTransferEngine;
+import com.db.awmd.challenge.service.engine.PartitionedTransferEngine;
+import com.db.awmd.challenge.service.engine.SequencedTransferEngine;
+import com.db.awmd.challenge.service.engine.TransferEngine;
+
+public class AccountsServiceConcurrencyTest {
+
+	private static final int ACCOUNTS = 20;
+
+	private static final int THREADS = 16;
+
+	private static final int TRANSFERS_PER_THREAD = 10_000;
+
+	private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000");
+
+	private AccountsService accountsService;
+
+	private ExecutorService executor;
+
+	@Before
+	public void prepareExecutor() {
+		this.executor = Executors.newFixedThreadPool(THREADS);
+	}
+
+	@After
+	public void shutdownExecutor() {
+		this.executor.shutdownNow();
+	}
+
+	@Test(timeout = 60_000)
+	public void concurrentTransfers_conserveTotalBalance() throws Exception {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		prepareService(accountsRepository, new LockingTransferEngine(accountsRepository));
+
+		assertRandomTransfersConserveTotalBalance();
+	}
+
+	@Test(timeout = 60_000)
+	public void concurrentTransfers_conserveTotalBalance_fixedPoint() throws Exception {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		this.accountsService = AccountsService.builder(accountsRepository, (account, description) -> { },
+				new LockingTransferEngine(accountsRepository))
+				.fixedPointMoney(true)
+				.build();
+		createAccounts();
+
+		assertRandomTransfersConserveTotalBalance();
+	}
+
+	@Test(timeout = 60_000)
+	public void concurrentTransfers_conserveTotalBalance_optimistic() throws Exception {
+		AccountsRepositoryOptimistic accountsRepository = new AccountsRepositoryOptimistic();
+		prepareService(accountsRepository, new OptimisticTransferEngine(accountsRepository));
+
+		assertRandomTransfersConserveTotalBalance();
+	}
+
+	@Test(timeout = 60_000)
+	public void concurrentTransfers_conserveTotalBalance_partitioned() throws Exception {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		PartitionedTransferEngine transferEngine = new PartitionedTransferEngine(accountsRepository, 4);
+		prepareService(accountsRepository, transferEngine);
+
+		try {
+			assertRandomTransfersConserveTotalBalance();
+		} finally {
+			transferEngine.shutdown();
+		}
+	}
+
+	@Test(timeout = 60_000)
+	public void concurrentTransfers_conserveTotalBalance_sequenced() throws Exception {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		SequencedTransferEngine transferEngine = new SequencedTransferEngine(accountsRepository,
+				(account, description) -> { }, 1024);
+		prepareService(accountsRepository, transferEngine);
+
+		try {
+			assertRandomTransfersConserveTotalBalance();
+		} finally {
+			transferEngine.shutdown();
+		}
+	}
+
+	@Test(timeout = 60_000)
+	public void concurrentTransfers_conserveTotalBalance_stripedHotAccounts() throws Exception {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		this.accountsService = AccountsService.builder(accountsRepository, (account, description) -> { },
+				new LockingTransferEngine(accountsRepository))
+				.accountStriping(new AccountStriping(new HashSet<>(Arrays.asList("Id-0", "Id-1")), 4))
+				.build();
+		createAccounts();
+		assertThat(this.accountsService.getAccount("Id-0")).isInstanceOf(StripedAccount.class);
+
+		runConcurrently(() -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+				String hotAccount = "Id-" + random.nextInt(2);
+				String otherAccount = "Id-" + random.nextInt(ACCOUNTS);
+				BigDecimal value = new BigDecimal(random.nextInt(1, 50));
+				if (random.nextBoolean()) {
+					transferIgnoringNoFunds(otherAccount, hotAccount, value);
+				} else {
+					transferIgnoringNoFunds(hotAccount, otherAccount, value);
+				}
+			}
+		});
+
+		BigDecimal total = BigDecimal.ZERO;
+		for (int i = 0; i < ACCOUNTS; i++) {
+			BigDecimal balance = this.accountsService.getAccount("Id-" + i).getBalance();
+			assertThat(balance).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+			total = total.add(balance);
+		}
+
+		assertThat(total).isEqualByComparingTo(INITIAL_BALANCE.multiply(new BigDecimal(ACCOUNTS)));
+	}
+
+	@Test(timeout = 60_000)
+	public void opposingTransfers_doNotDeadlock() throws Exception {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		prepareService(accountsRepository, new LockingTransferEngine(accountsRepository));
+
+		AtomicInteger workers = new AtomicInteger();
+
+		runConcurrently(() -> {
+			boolean forward = workers.getAndIncrement() % 2 == 0;
+			for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+				if (forward) {
+					transferIgnoringNoFunds("Id-0", "Id-1", BigDecimal.ONE);
+				} else {
+					transferIgnoringNoFunds("Id-1", "Id-0", BigDecimal.ONE);
+				}
+			}
+		});
+
+		BigDecimal total = this.accountsService.getAccount("Id-0").getBalance()
+				.add(this.accountsService.getAccount("Id-1").getBalance());
+		assertThat(total).isEqualByComparingTo(INITIAL_BALANCE.multiply(new BigDecimal(2)));
+	}
+
+	@Test(timeout = 60_000)
+	public void snapshotsDuringTransfers_pairBalanceWithVersion() throws Exception {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		prepareService(accountsRepository, new LockingTransferEngine(accountsRepository));
+
+		int transfers = 1000;
+		AtomicInteger workers = new AtomicInteger();
+
+		runConcurrently(() -> {
+			if (workers.getAndIncrement() == 0) {
+				for (int i = 0; i < transfers; i++) {
+					transferIgnoringNoFunds("Id-0", "Id-1", BigDecimal.ONE);
+				}
+			} else {
+				for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+					// every transfer writes Id-0 once and takes exactly 1 from it
+					AccountSnapshot snapshot = this.accountsService.getAccountSnapshot("Id-0");
+					assertThat(snapshot.getBalance().add(new BigDecimal(snapshot.getVersion())))
+						.isEqualByComparingTo(INITIAL_BALANCE);
+				}
+			}
+		});
+
+		assertThat(this.accountsService.getAccountSnapshot("Id-0").getVersion()).isEqualTo(transfers);
+	}
+
+	private void prepareService(AccountsRepository accountsRepository, TransferEngine transferEngine) {
+		this.accountsService = AccountsService.builder(accountsRepository, (account, description) -> { },
+				transferEngine).build();
+		createAccounts();
+	}
+
+	private void createAccounts() {
+		for (int i = 0; i < ACCOUNTS; i++) {
+			this.accountsService.createAccount(new Account("Id-" + i, INITIAL_BALANCE));
+		}
+	}
+
+	private void assertRandomTransfersConserveTotalBalance() throws Exception {
+		runConcurrently(() -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+				transferIgnoringNoFunds("Id-" + random.nextInt(ACCOUNTS), "Id-" + random.nextInt(ACCOUNTS),
+						new BigDecimal(random.nextInt(1, 50)));
+			}
+		});
+
+		BigDecimal total = BigDecimal.ZERO;
+		for (int i = 0; i < ACCOUNTS; i++) {
+			BigDecimal balance = this.accountsService.getAccount("Id-" + i).getBalance();
+			assertThat(balance).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+			total = total.add(balance);
+		}
+
+		assertThat(total).isEqualByComparingTo(INITIAL_BALANCE.multiply(new BigDecimal(ACCOUNTS)));
+	}
+
+	private void runConcurrently(Runnable task) throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (int i = 0; i < THREADS; i++) {
+			futures.add(this.executor.submit(() -> {
+				start.await();
+				task.run();
+				return null;
+			}));
+		}
+
+		start.countDown();
+
+		for (Future<?> future : futures) {
+			future.get(50, TimeUnit.SECONDS);
+		}
+	}
+
+	private void transferIgnoringNoFunds(String accountFrom, String accountTo, BigDecimal value) {
+		try {
+			this.accountsService.transferValuesAccount(
+					TransferMoney
+						.builder()
+						.accountFrom(accountFrom)
+						.accountTo(accountTo)
+						.value(value)
+						.build());
+		} catch (NoFundException ex) {
+			// expected when random transfers drain an account
+		}
+	}
+}
@@ -8,10 +8,11 @@ import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +20,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.MultiLegTransfer;
+import com.db.awmd.challenge.domain.TransferLeg;
 import com.db.awmd.challenge.domain.TransferMoney;
 import com.db.awmd.challenge.exception.AccountNotFoundException;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
@@ -27,6 +30,7 @@ import com.db.awmd.challenge.exception.NoFundException;
 import com.db.awmd.challenge.repository.AccountsRepository;
 import com.db.awmd.challenge.service.AccountsService;
 import com.db.awmd.challenge.service.NotificationService;
+import com.db.awmd.challenge.service.engine.LockingTransferEngine;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -41,8 +45,13 @@ public class AccountsServiceTest {
 	@Mock
 	private AccountsRepository accountsRepositoryMock;
 
-	@InjectMocks
 	private AccountsService accountsServiceInjected;
+
+	@Before
+	public void prepareInjectedService() {
+		this.accountsServiceInjected = AccountsService.builder(accountsRepositoryMock, notificationServiceMock,
+				new LockingTransferEngine(accountsRepositoryMock)).build();
+	}
 	
 	@Test
 	public void addAccount() throws Exception {
@@ -191,4 +200,63 @@ public class AccountsServiceTest {
 		Mockito.verify(notificationServiceMock, Mockito.times(0)).notifyAboutTransfer(Mockito.any(), Mockito.any());
 	}
 	
+	@Test
+	public void transferFunds_MultiLeg() throws Exception {
+		Account accountFrom = new Account("1", new BigDecimal("150"));
+		Account firstAccountTo = new Account("2", new BigDecimal("10"));
+		Account secondAccountTo = new Account("3", new BigDecimal("20"));
+		
+		doNothing().when(notificationServiceMock).notifyAboutTransfer(any(), any());
+		when(accountsRepositoryMock.getAccount("1")).thenReturn(accountFrom);
+		when(accountsRepositoryMock.getAccount("2")).thenReturn(firstAccountTo);
+		when(accountsRepositoryMock.getAccount("3")).thenReturn(secondAccountTo);
+		
+		this.accountsServiceInjected
+		.transferValuesAccountMultiLeg(
+				MultiLegTransfer
+					.builder()
+					.accountFrom("1")
+					.legs(Arrays.asList(
+							TransferLeg.builder().accountTo("2").value(new BigDecimal(100)).build(),
+							TransferLeg.builder().accountTo("3").value(new BigDecimal(50)).build()))
+					.build());
+		
+		assertThat(accountFrom.getBalance()).isEqualByComparingTo("0");
+		assertThat(firstAccountTo.getBalance()).isEqualByComparingTo("110");
+		assertThat(secondAccountTo.getBalance()).isEqualByComparingTo("70");
+		Mockito.verify(accountsRepositoryMock, Mockito.times(3)).updateAccount(Mockito.any());
+		Mockito.verify(notificationServiceMock, Mockito.times(3)).notifyAboutTransfer(Mockito.any(), Mockito.any());
+	}
+
+	@Test
+	public void transferFunds_MultiLegNoFundsForTotal() throws Exception {
+		Account accountFrom = new Account("1", new BigDecimal("150"));
+		
+		doNothing().when(notificationServiceMock).notifyAboutTransfer(any(), any());
+		when(accountsRepositoryMock.getAccount("1")).thenReturn(accountFrom);
+		when(accountsRepositoryMock.getAccount("2")).thenReturn(new Account("2", new BigDecimal("10")));
+		when(accountsRepositoryMock.getAccount("3")).thenReturn(new Account("3", new BigDecimal("20")));
+		
+		try {
+			this.accountsServiceInjected
+			.transferValuesAccountMultiLeg(
+					MultiLegTransfer
+						.builder()
+						.accountFrom("1")
+						.legs(Arrays.asList(
+								TransferLeg.builder().accountTo("2").value(new BigDecimal(100)).build(),
+								TransferLeg.builder().accountTo("3").value(new BigDecimal(100)).build()))
+						.build());
+			
+			fail("NoFundsException should be thrown");
+
+		} catch (NoFundException ex) {
+			assertTrue(ex.getMessage().equals(new NoFundException("1").getMessage()));
+		}
+		
+		assertThat(accountFrom.getBalance()).isEqualByComparingTo("150");
+		Mockito.verify(accountsRepositoryMock, Mockito.times(0)).updateAccount(Mockito.any());
+		Mockito.verify(notificationServiceMock, Mockito.times(0)).notifyAboutTransfer(Mockito.any(), Mockito.any());
+	}
+	
 }
\ No newline at end of file
@@ -0,0 +1,170 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.service.AsyncNotificationService;
+import com.db.awmd.challenge.service.BackpressurePolicy;
+import com.db.awmd.challenge.service.NotificationService;
+
+public class AsyncNotificationServiceTest {
+
+	private static final Account ACCOUNT = new Account("Id-1", BigDecimal.ONE);
+
+	@Test(timeout = 30_000)
+	public void block_waitsForRoomInTheQueue() throws Exception {
+		GatedNotificationService delegate = new GatedNotificationService();
+		AsyncNotificationService notificationService = new AsyncNotificationService(delegate, 1, 1, 1, 1,
+				BackpressurePolicy.BLOCK);
+		notificationService.start();
+		fillWhileWorkerIsBlocked(notificationService, delegate);
+
+		Thread caller = new Thread(() -> notificationService.notifyAboutTransfer(ACCOUNT, "third"));
+		caller.start();
+		caller.join(200);
+		assertThat(caller.isAlive()).isTrue();
+
+		delegate.release.countDown();
+		caller.join();
+		notificationService.stop();
+
+		assertThat(delegate.descriptions).containsExactly("first", "second", "third");
+		assertThat(metrics(notificationService).get("notifications.dropped")).isEqualTo(0L);
+	}
+
+	@Test(timeout = 30_000)
+	public void drop_countsRejectedNotifications() throws Exception {
+		GatedNotificationService delegate = new GatedNotificationService();
+		AsyncNotificationService notificationService = new AsyncNotificationService(delegate, 1, 1, 1, 1,
+				BackpressurePolicy.DROP);
+		notificationService.start();
+		fillWhileWorkerIsBlocked(notificationService, delegate);
+
+		for (int i = 0; i < 5; i++) {
+			notificationService.notifyAboutTransfer(ACCOUNT, "dropped");
+		}
+		assertThat(metrics(notificationService).get("notifications.dropped")).isEqualTo(5L);
+		assertThat(metrics(notificationService).get("notifications.queue.depth")).isEqualTo(1);
+
+		delegate.release.countDown();
+		notificationService.stop();
+
+		assertThat(delegate.descriptions).containsExactly("first", "second");
+		assertThat(metrics(notificationService).get("notifications.sent")).isEqualTo(2L);
+	}
+
+	@Test(timeout = 30_000)
+	public void spill_overflowsIntoABoundedQueueThenDrops() throws Exception {
+		GatedNotificationService delegate = new GatedNotificationService();
+		AsyncNotificationService notificationService = new AsyncNotificationService(delegate, 1, 1, 10, 2,
+				BackpressurePolicy.SPILL);
+		notificationService.start();
+		fillWhileWorkerIsBlocked(notificationService, delegate);
+
+		for (int i = 0; i < 4; i++) {
+			notificationService.notifyAboutTransfer(ACCOUNT, "spilled-" + i);
+		}
+		Map<String, Object> metrics = metrics(notificationService);
+		assertThat(metrics.get("notifications.spilled")).isEqualTo(2L);
+		assertThat(metrics.get("notifications.dropped")).isEqualTo(2L);
+		assertThat(metrics.get("notifications.overflow.depth")).isEqualTo(2);
+
+		delegate.release.countDown();
+		notificationService.stop();
+
+		assertThat(delegate.descriptions).hasSize(4).containsOnly("first", "second", "spilled-0", "spilled-1");
+		assertThat(metrics(notificationService).get("notifications.overflow.depth")).isEqualTo(0);
+	}
+
+	@Test(timeout = 30_000)
+	public void stop_drainsQueuedNotificationsInBatches() throws Exception {
+		GatedNotificationService delegate = new GatedNotificationService();
+		delegate.release.countDown();
+		AsyncNotificationService notificationService = new AsyncNotificationService(delegate, 1000, 1, 50, 1,
+				BackpressurePolicy.BLOCK);
+		for (int i = 0; i < 100; i++) {
+			notificationService.notifyAboutTransfer(ACCOUNT, "queued-" + i);
+		}
+
+		notificationService.start();
+		notificationService.stop();
+
+		assertThat(delegate.descriptions).hasSize(100);
+		assertThat(delegate.batches.get()).isEqualTo(2);
+		assertThat(metrics(notificationService).get("notifications.sent")).isEqualTo(100L);
+	}
+
+	@Test(timeout = 30_000)
+	public void failedBatch_isCounted() throws Exception {
+		NotificationService failing = (account, description) -> {
+			throw new IllegalStateException("mail server down");
+		};
+		AsyncNotificationService notificationService = new AsyncNotificationService(failing, 10, 1, 10, 1,
+				BackpressurePolicy.BLOCK);
+		notificationService.notifyAboutTransfer(ACCOUNT, "lost");
+
+		notificationService.start();
+		notificationService.stop();
+
+		assertThat(metrics(notificationService).get("notifications.failed")).isEqualTo(1L);
+		assertThat(metrics(notificationService).get("notifications.sent")).isEqualTo(0L);
+	}
+
+	/**
+	 * Leaves the single worker blocked on "first" and "second" in the queue.
+	 */
+	private static void fillWhileWorkerIsBlocked(AsyncNotificationService notificationService,
+			GatedNotificationService delegate) throws InterruptedException {
+		notificationService.notifyAboutTransfer(ACCOUNT, "first");
+		assertThat(delegate.entered.await(10, TimeUnit.SECONDS)).isTrue();
+		notificationService.notifyAboutTransfer(ACCOUNT, "second");
+	}
+
+	private static Map<String, Object> metrics(AsyncNotificationService notificationService) {
+		Map<String, Object> metrics = new HashMap<>();
+		for (Metric<?> metric : notificationService.metrics()) {
+			metrics.put(metric.getName(), metric.getValue());
+		}
+		return metrics;
+	}
+
+	private static final class GatedNotificationService implements NotificationService {
+
+		private final CountDownLatch entered = new CountDownLatch(1);
+
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		private final List<String> descriptions = new CopyOnWriteArrayList<>();
+
+		private final AtomicInteger batches = new AtomicInteger();
+
+		@Override
+		public void notifyAboutTransfers(List<Account> accounts, List<String> transferDescriptions) {
+			batches.incrementAndGet();
+			NotificationService.super.notifyAboutTransfers(accounts, transferDescriptions);
+		}
+
+		@Override
+		public void notifyAboutTransfer(Account account, String transferDescription) {
+			entered.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			descriptions.add(transferDescription);
+		}
+	}
+}
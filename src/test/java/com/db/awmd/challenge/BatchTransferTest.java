@@ -0,0 +1,173 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.MultiLegTransfer;
+import com.db.awmd.challenge.domain.TransferLeg;
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.domain.TransferResult;
+import com.db.awmd.challenge.domain.TransferStatus;
+import com.db.awmd.challenge.exception.NoFundException;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.AccountsRepositoryOptimistic;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.engine.LockingTransferEngine;
+import com.db.awmd.challenge.service.engine.OptimisticTransferEngine;
+import com.db.awmd.challenge.service.engine.PartitionedTransferEngine;
+import com.db.awmd.challenge.service.engine.SequencedTransferEngine;
+import com.db.awmd.challenge.service.engine.TransferEngine;
+
+public class BatchTransferTest {
+
+	@Test
+	public void allOrNothing_playsTransfersInOrder_locking() {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		assertOverdraftInTheMiddleRejectsTheBatch(accountsRepository, new LockingTransferEngine(accountsRepository));
+	}
+
+	@Test
+	public void allOrNothing_playsTransfersInOrder_optimistic() {
+		AccountsRepositoryOptimistic accountsRepository = new AccountsRepositoryOptimistic();
+		assertOverdraftInTheMiddleRejectsTheBatch(accountsRepository, new OptimisticTransferEngine(accountsRepository));
+	}
+
+	@Test
+	public void allOrNothing_playsTransfersInOrder_partitioned() {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		PartitionedTransferEngine transferEngine = new PartitionedTransferEngine(accountsRepository, 4);
+		try {
+			assertOverdraftInTheMiddleRejectsTheBatch(accountsRepository, transferEngine);
+		} finally {
+			transferEngine.shutdown();
+		}
+	}
+
+	@Test
+	public void allOrNothing_playsTransfersInOrder_sequenced() {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		SequencedTransferEngine transferEngine = new SequencedTransferEngine(accountsRepository, (account, description) -> { },
+				1024);
+		try {
+			assertOverdraftInTheMiddleRejectsTheBatch(accountsRepository, transferEngine);
+		} finally {
+			transferEngine.shutdown();
+		}
+	}
+
+	@Test
+	public void allOrNothing_appliesABatchThatDipsButNeverOverdraws_optimistic() {
+		AccountsRepositoryOptimistic accountsRepository = new AccountsRepositoryOptimistic();
+		AccountsService accountsService = createAccounts(accountsRepository,
+				new OptimisticTransferEngine(accountsRepository));
+
+		List<TransferResult> results = accountsService.transferValuesAccounts(Arrays.asList(
+				transfer("Id-C", "Id-A", "10"),
+				transfer("Id-A", "Id-B", "10")), BatchMode.ALL_OR_NOTHING);
+
+		assertThat(results).extracting("status").containsExactly(TransferStatus.APPLIED, TransferStatus.APPLIED);
+		assertThat(accountsService.getAccount("Id-A").getBalance()).isEqualByComparingTo("0");
+		assertThat(accountsService.getAccount("Id-B").getBalance()).isEqualByComparingTo("10");
+		assertThat(accountsService.getAccount("Id-C").getBalance()).isEqualByComparingTo("0");
+	}
+
+	@Test
+	public void allOrNothing_rejectsAValueBelowTheMinorUnitBeforeApplyingAnything_fixedPoint() {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		AccountsService accountsService = AccountsService.builder(accountsRepository, (account, description) -> { },
+				new LockingTransferEngine(accountsRepository))
+				.fixedPointMoney(true)
+				.build();
+		accountsService.createAccount(new Account("Id-A", BigDecimal.ZERO));
+		accountsService.createAccount(new Account("Id-B", BigDecimal.ZERO));
+		accountsService.createAccount(new Account("Id-C", BigDecimal.TEN));
+
+		List<TransferResult> results = accountsService.transferValuesAccounts(Arrays.asList(
+				transfer("Id-C", "Id-B", "1.00"),
+				transfer("Id-C", "Id-A", "0.005")), BatchMode.ALL_OR_NOTHING);
+
+		assertThat(results).extracting("status").containsExactly(TransferStatus.ABORTED, TransferStatus.REJECTED);
+		assertThat(accountsService.getAccount("Id-A").getBalance()).isEqualByComparingTo("0");
+		assertThat(accountsService.getAccount("Id-B").getBalance()).isEqualByComparingTo("0");
+		assertThat(accountsService.getAccount("Id-C").getBalance()).isEqualByComparingTo("10");
+	}
+
+	@Test
+	public void multiLeg_debitsTheSourceOnceAndCreditsEveryPartition_partitioned() {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		PartitionedTransferEngine transferEngine = new PartitionedTransferEngine(accountsRepository, 4);
+		try {
+			AccountsService accountsService = createAccounts(accountsRepository, transferEngine);
+
+			accountsService.transferValuesAccountMultiLeg(MultiLegTransfer.builder()
+					.accountFrom("Id-C")
+					.legs(Arrays.asList(
+							TransferLeg.builder().accountTo("Id-A").value(new BigDecimal("4")).build(),
+							TransferLeg.builder().accountTo("Id-B").value(new BigDecimal("6")).build()))
+					.build());
+
+			assertThat(accountsService.getAccount("Id-A").getBalance()).isEqualByComparingTo("4");
+			assertThat(accountsService.getAccount("Id-B").getBalance()).isEqualByComparingTo("6");
+			assertThat(accountsService.getAccount("Id-C").getBalance()).isEqualByComparingTo("0");
+
+			try {
+				accountsService.transferValuesAccountMultiLeg(MultiLegTransfer.builder()
+						.accountFrom("Id-B")
+						.legs(Arrays.asList(
+								TransferLeg.builder().accountTo("Id-A").value(new BigDecimal("5")).build(),
+								TransferLeg.builder().accountTo("Id-C").value(new BigDecimal("5")).build()))
+						.build());
+				fail("NoFundException should be thrown");
+			} catch (NoFundException ex) {
+				assertThat(ex.getMessage()).isEqualTo(new NoFundException("Id-B").getMessage());
+			}
+
+			assertThat(accountsService.getAccount("Id-A").getBalance()).isEqualByComparingTo("4");
+			assertThat(accountsService.getAccount("Id-B").getBalance()).isEqualByComparingTo("6");
+			assertThat(accountsService.getAccount("Id-C").getBalance()).isEqualByComparingTo("0");
+		} finally {
+			transferEngine.shutdown();
+		}
+	}
+
+	/**
+	 * A starts empty and is refilled by the second transfer, after it would
+	 * already have been overdrawn by the first.
+	 */
+	private static void assertOverdraftInTheMiddleRejectsTheBatch(AccountsRepository accountsRepository,
+			TransferEngine transferEngine) {
+		AccountsService accountsService = createAccounts(accountsRepository, transferEngine);
+
+		List<TransferResult> results = accountsService.transferValuesAccounts(Arrays.asList(
+				transfer("Id-A", "Id-B", "10"),
+				transfer("Id-C", "Id-A", "10")), BatchMode.ALL_OR_NOTHING);
+
+		assertThat(results).extracting("status").containsExactly(TransferStatus.REJECTED, TransferStatus.ABORTED);
+		assertThat(accountsService.getAccount("Id-A").getBalance()).isEqualByComparingTo("0");
+		assertThat(accountsService.getAccount("Id-B").getBalance()).isEqualByComparingTo("0");
+		assertThat(accountsService.getAccount("Id-C").getBalance()).isEqualByComparingTo("10");
+	}
+
+	private static AccountsService createAccounts(AccountsRepository accountsRepository, TransferEngine transferEngine) {
+		AccountsService accountsService = AccountsService.builder(accountsRepository, (account, description) -> { },
+				transferEngine).build();
+		accountsService.createAccount(new Account("Id-A", BigDecimal.ZERO));
+		accountsService.createAccount(new Account("Id-B", BigDecimal.ZERO));
+		accountsService.createAccount(new Account("Id-C", BigDecimal.TEN));
+		return accountsService;
+	}
+
+	private static TransferMoney transfer(String accountFrom, String accountTo, String value) {
+		return TransferMoney.builder().accountFrom(accountFrom).accountTo(accountTo).value(new BigDecimal(value))
+				.build();
+	}
+}
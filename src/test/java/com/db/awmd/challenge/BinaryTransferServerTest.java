@@ -0,0 +1,132 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.engine.LockingTransferEngine;
+import com.db.awmd.challenge.service.limit.TransferAdmission;
+import com.db.awmd.challenge.wire.BinaryProtocol;
+import com.db.awmd.challenge.wire.BinaryTransferHandler;
+import com.db.awmd.challenge.wire.BinaryTransferServer;
+
+public class BinaryTransferServerTest {
+
+	private AccountsService accountsService;
+
+	private BinaryTransferServer server;
+
+	@Before
+	public void startServer() throws Exception {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		this.accountsService = AccountsService.builder(accountsRepository, (account, description) -> { },
+				new LockingTransferEngine(accountsRepository)).build();
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("Id-2", BigDecimal.ZERO));
+		this.server = new BinaryTransferServer(accountsService, TransferAdmission.DISABLED, 0, 2);
+	}
+
+	@After
+	public void stopServer() throws Exception {
+		server.shutdown();
+	}
+
+	@Test(timeout = 30_000)
+	public void pipelinedRequests_areAnsweredInOrder() throws Exception {
+		try (SocketChannel client = SocketChannel.open(new InetSocketAddress("localhost", server.getPort()))) {
+			ByteBuffer requests = ByteBuffer.allocate(1024);
+			BinaryProtocol.putTransfer(requests, 1, "Id-1", "Id-2", new BigDecimal("30.50"));
+			BinaryProtocol.putBalance(requests, 2, "Id-2");
+			BinaryProtocol.putTransfer(requests, 3, "Id-1", "Id-2", new BigDecimal("1000"));
+			BinaryProtocol.putTransfer(requests, 4, "Id-1", "Unknown", BigDecimal.ONE);
+			BinaryProtocol.putTransfer(requests, 5, "Id-1", "Id-2", new BigDecimal("-1"));
+			BinaryProtocol.putBalance(requests, 6, "Id-1");
+			requests.flip();
+			while (requests.hasRemaining()) {
+				client.write(requests);
+			}
+
+			assertThat(readStatus(client, BinaryProtocol.TRANSFER, 1)).isEqualTo(BinaryProtocol.OK);
+			assertThat(readBalance(client, 2)).isEqualByComparingTo("30.50");
+			assertThat(readStatus(client, BinaryProtocol.TRANSFER, 3)).isEqualTo(BinaryProtocol.NO_FUNDS);
+			assertThat(readStatus(client, BinaryProtocol.TRANSFER, 4)).isEqualTo(BinaryProtocol.ACCOUNT_NOT_FOUND);
+			assertThat(readStatus(client, BinaryProtocol.TRANSFER, 5)).isEqualTo(BinaryProtocol.INVALID_VALUE);
+			assertThat(readBalance(client, 6)).isEqualByComparingTo("69.50");
+		}
+
+		assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("30.50");
+	}
+
+	@Test
+	public void handler_waitsForSplitFramesAndRejectsMalformedOnes() throws Exception {
+		BinaryTransferHandler handler = new BinaryTransferHandler(accountsService, TransferAdmission.DISABLED);
+		ByteBuffer frames = ByteBuffer.allocate(1024);
+		BinaryProtocol.putTransfer(frames, 1, "Id-1", "Id-2", BigDecimal.TEN);
+		BinaryProtocol.putBalance(frames, 2, "");
+		frames.flip();
+		ByteBuffer out = ByteBuffer.allocate(1024);
+
+		ByteBuffer in = ByteBuffer.allocate(1024);
+		in.put(frames.get()).put(frames.get()).put(frames.get()).put(frames.get()).put(frames.get());
+		in.flip();
+		handler.handle(in, out);
+
+		assertThat(in.position()).isEqualTo(0);
+		assertThat(out.position()).isEqualTo(0);
+
+		in.position(in.limit()).limit(in.capacity());
+		in.put(frames);
+		in.flip();
+		handler.handle(in, out);
+
+		assertThat(in.hasRemaining()).isFalse();
+		out.flip();
+		assertThat(statusOf(out, BinaryProtocol.TRANSFER, 1)).isEqualTo(BinaryProtocol.OK);
+		assertThat(statusOf(out, BinaryProtocol.BALANCE, 2)).isEqualTo(BinaryProtocol.BAD_REQUEST);
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("90");
+	}
+
+	private static byte readStatus(SocketChannel client, byte type, long correlationId) throws Exception {
+		return statusOf(readFrame(client), type, correlationId);
+	}
+
+	private static BigDecimal readBalance(SocketChannel client, long correlationId) throws Exception {
+		ByteBuffer frame = readFrame(client);
+		assertThat(statusOf(frame, BinaryProtocol.BALANCE, correlationId)).isEqualTo(BinaryProtocol.OK);
+		return BigDecimal.valueOf(frame.getLong(), frame.get());
+	}
+
+	private static ByteBuffer readFrame(SocketChannel client) throws Exception {
+		ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+		readFully(client, length);
+		ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + length.getInt(0));
+		frame.putInt(length.getInt(0));
+		readFully(client, frame);
+		frame.flip();
+		return frame;
+	}
+
+	private static byte statusOf(ByteBuffer frame, byte type, long correlationId) {
+		frame.getInt();
+		assertThat(frame.get()).isEqualTo(type);
+		assertThat(frame.getLong()).isEqualTo(correlationId);
+		return frame.get();
+	}
+
+	private static void readFully(SocketChannel client, ByteBuffer buffer) throws Exception {
+		while (buffer.hasRemaining()) {
+			assertThat(client.read(buffer)).isNotNegative();
+		}
+	}
+}
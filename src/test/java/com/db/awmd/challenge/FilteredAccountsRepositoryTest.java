@@ -0,0 +1,68 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.metrics.MeterRegistry;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.BloomFilter;
+import com.db.awmd.challenge.repository.FilteredAccountsRepository;
+
+public class FilteredAccountsRepositoryTest {
+
+	private static final int ACCOUNTS = 100_000;
+
+	@Test
+	public void createdAccountsAreNeverFilteredOut() {
+		AccountsRepository accountsRepository = filtered(new AccountsRepositoryInMemory());
+
+		for (int i = 0; i < ACCOUNTS; i++) {
+			accountsRepository.createAccount(new Account("Id-" + i, BigDecimal.ONE));
+		}
+
+		for (int i = 0; i < ACCOUNTS; i++) {
+			assertThat(accountsRepository.getAccount("Id-" + i)).isNotNull();
+		}
+	}
+
+	@Test
+	public void unknownIdsAreMostlyAnsweredByTheFilter() {
+		MeterRegistry meterRegistry = new MeterRegistry(true);
+		AccountsRepository accountsRepository = new FilteredAccountsRepository(new AccountsRepositoryInMemory(),
+				() -> new BloomFilter(ACCOUNTS, 0.01), meterRegistry);
+		for (int i = 0; i < ACCOUNTS; i++) {
+			accountsRepository.createAccount(new Account("Id-" + i, BigDecimal.ONE));
+		}
+
+		for (int i = 0; i < ACCOUNTS; i++) {
+			assertThat(accountsRepository.getAccount("Scan-" + i)).isNull();
+		}
+
+		assertThat((Long) meterRegistry.counterValues().get("repository.getAccount.filtered")).isGreaterThan(ACCOUNTS * 95L / 100);
+	}
+
+	@Test
+	public void seedsFromExistingAccountsAndResetsOnClear() {
+		AccountsRepository inMemory = new AccountsRepositoryInMemory();
+		inMemory.createAccount(new Account("Existing", BigDecimal.ONE));
+		AccountsRepository accountsRepository = filtered(inMemory);
+
+		assertThat(accountsRepository.getAccount("Existing")).isNotNull();
+
+		accountsRepository.clearAccounts();
+		accountsRepository.createAccount(new Account("Recreated", BigDecimal.ONE));
+
+		assertThat(accountsRepository.getAccount("Existing")).isNull();
+		assertThat(accountsRepository.getAccount("Recreated")).isNotNull();
+	}
+
+	private static AccountsRepository filtered(AccountsRepository accountsRepository) {
+		return new FilteredAccountsRepository(accountsRepository, () -> new BloomFilter(ACCOUNTS, 0.01),
+				MeterRegistry.DISABLED);
+	}
+}
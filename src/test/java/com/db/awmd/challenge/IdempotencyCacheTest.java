@@ -0,0 +1,92 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.exception.IdempotencyKeyReusedException;
+import com.db.awmd.challenge.service.IdempotencyCache;
+
+public class IdempotencyCacheTest {
+
+	@Test
+	public void retry_withTheSameAmountInAnotherScale_isReplayed() {
+		IdempotencyCache idempotencyCache = new IdempotencyCache(10, 60_000);
+		AtomicInteger applied = new AtomicInteger();
+
+		idempotencyCache.execute("key", transfer("Id-1", "Id-2", "100"), applied::incrementAndGet);
+		idempotencyCache.execute("key", transfer("Id-1", "Id-2", "100.00"), applied::incrementAndGet);
+
+		assertThat(applied.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void retry_withAnotherTransfer_isRejected() {
+		IdempotencyCache idempotencyCache = new IdempotencyCache(10, 60_000);
+		idempotencyCache.execute("key", transfer("Id-1", "Id-2", "100"), () -> { });
+
+		try {
+			idempotencyCache.execute("key", transfer("Id-1", "Id-3", "100"), () -> { });
+			fail("Should have rejected a different transfer under the same key");
+		} catch (IdempotencyKeyReusedException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void fullCache_evictsTheOldestCompletedEntry() {
+		IdempotencyCache idempotencyCache = new IdempotencyCache(2, 60_000);
+		AtomicInteger applied = new AtomicInteger();
+
+		idempotencyCache.execute("first", transfer("Id-1", "Id-2", "1"), applied::incrementAndGet);
+		idempotencyCache.execute("second", transfer("Id-1", "Id-2", "2"), applied::incrementAndGet);
+		idempotencyCache.execute("third", transfer("Id-1", "Id-2", "3"), applied::incrementAndGet);
+		idempotencyCache.execute("second", transfer("Id-1", "Id-2", "2"), applied::incrementAndGet);
+		idempotencyCache.execute("first", transfer("Id-1", "Id-2", "1"), applied::incrementAndGet);
+
+		assertThat(applied.get()).isEqualTo(4);
+	}
+
+	@Test(timeout = 30_000)
+	public void runningTransfer_isNotEvictedWhenTheCacheIsFull() throws Exception {
+		IdempotencyCache idempotencyCache = new IdempotencyCache(1, 60_000);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger applied = new AtomicInteger();
+
+		Thread first = new Thread(() -> idempotencyCache.execute("running", transfer("Id-1", "Id-2", "1"), () -> {
+			applied.incrementAndGet();
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		first.start();
+		assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+		idempotencyCache.execute("other", transfer("Id-3", "Id-4", "1"), () -> { });
+
+		Thread retry = new Thread(() -> idempotencyCache.execute("running", transfer("Id-1", "Id-2", "1"),
+				applied::incrementAndGet));
+		retry.start();
+		release.countDown();
+		first.join();
+		retry.join();
+
+		assertThat(applied.get()).isEqualTo(1);
+	}
+
+	private static TransferMoney transfer(String accountFrom, String accountTo, String value) {
+		return TransferMoney.builder().accountFrom(accountFrom).accountTo(accountTo).value(new BigDecimal(value))
+				.build();
+	}
+}
@@ -0,0 +1,41 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.db.awmd.challenge.metrics.MeterRegistry;
+import com.db.awmd.challenge.metrics.Timer;
+
+public class MeterRegistryTest {
+
+	@Test
+	public void timerReportsPercentilesInMicroseconds() {
+		MeterRegistry meterRegistry = new MeterRegistry(true);
+		Timer timer = meterRegistry.timer("transfer");
+
+		for (int i = 1; i <= 100; i++) {
+			timer.record(TimeUnit.MICROSECONDS.toNanos(i));
+		}
+
+		Map<String, Object> summary = timer.summary();
+		assertThat(summary.get("count")).isEqualTo(100L);
+		assertThat((Double) summary.get("p50")).isBetween(49.0, 51.0);
+		assertThat((Double) summary.get("max")).isBetween(99.0, 101.0);
+		assertThat(meterRegistry.timer("transfer")).isSameAs(timer);
+	}
+
+	@Test
+	public void disabledRegistryRecordsNothing() {
+		MeterRegistry meterRegistry = new MeterRegistry(false);
+
+		meterRegistry.timer("transfer").record(1000);
+		meterRegistry.counter("transfer.rejected.NoFundException").increment();
+
+		assertThat(meterRegistry.timerSummaries()).isEmpty();
+		assertThat(meterRegistry.counterValues()).isEmpty();
+	}
+}
@@ -0,0 +1,45 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import com.db.awmd.challenge.domain.Money;
+import com.db.awmd.challenge.exception.InvalidValueException;
+
+public class MoneyTest {
+
+	@Test
+	public void toMinorUnits_acceptsEveryScaleThatFits() {
+		assertThat(Money.toMinorUnits(new BigDecimal("12.34"))).isEqualTo(1234L);
+		assertThat(Money.toMinorUnits(new BigDecimal("12.3"))).isEqualTo(1230L);
+		assertThat(Money.toMinorUnits(new BigDecimal("12"))).isEqualTo(1200L);
+		assertThat(Money.toMinorUnits(new BigDecimal("12.3400"))).isEqualTo(1234L);
+		assertThat(Money.toMinorUnits(new BigDecimal("1E+3"))).isEqualTo(100000L);
+		assertThat(Money.toMinorUnits(new BigDecimal("-0.01"))).isEqualTo(-1L);
+	}
+
+	@Test
+	public void toMinorUnits_rejectsFractionsOfACent() {
+		assertInvalid(new BigDecimal("0.001"));
+	}
+
+	@Test
+	public void toMinorUnits_rejectsValuesBeyondALong() {
+		assertInvalid(new BigDecimal("92233720368547758.08"));
+		assertInvalid(new BigDecimal("92233720368547759"));
+		assertInvalid(new BigDecimal("1E+20"));
+	}
+
+	private static void assertInvalid(BigDecimal amount) {
+		try {
+			Money.toMinorUnits(amount);
+			fail("Should have rejected " + amount);
+		} catch (InvalidValueException ex) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.db.awmd.challenge;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryReplica;
+
+/**
+ * Replica JVM forked by {@link ReplicationTest}. Follows the primary on the
+ * port given as argument and prints a digest of its accounts for every
+ * {@code dump} line read from standard input.
+ */
+public class ReplicaProcess {
+
+	static final String DIGEST_PREFIX = "digest ";
+
+	public static void main(String[] args) throws Exception {
+		AccountsRepositoryReplica accountsRepository = new AccountsRepositoryReplica("localhost",
+				Integer.parseInt(args[0]));
+
+		BufferedReader commands = new BufferedReader(new InputStreamReader(System.in));
+		String command;
+		while ((command = commands.readLine()) != null) {
+			if ("dump".equals(command)) {
+				System.out.println(DIGEST_PREFIX + digest(accountsRepository));
+				System.out.flush();
+			}
+		}
+		accountsRepository.close();
+	}
+
+	static String digest(AccountsRepository accountsRepository) {
+		Map<String, BigDecimal> balances = new TreeMap<>();
+		accountsRepository.forEachAccount(0, 1,
+				account -> balances.put(account.getAccountId(), account.getBalance().stripTrailingZeros()));
+
+		BigDecimal total = BigDecimal.ZERO;
+		int hash = 1;
+		for (Map.Entry<String, BigDecimal> balance : balances.entrySet()) {
+			total = total.add(balance.getValue());
+			hash = 31 * hash + (balance.getKey() + "=" + balance.getValue().toPlainString()).hashCode();
+		}
+		return balances.size() + " " + total.stripTrailingZeros().toPlainString() + " " + Integer.toHexString(hash);
+	}
+}
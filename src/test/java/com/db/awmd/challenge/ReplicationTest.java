@@ -0,0 +1,133 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.exception.NoFundException;
+import com.db.awmd.challenge.repository.AccountLocks;
+import com.db.awmd.challenge.repository.AccountsRepositoryJournaled;
+import com.db.awmd.challenge.repository.journal.FsyncPolicy;
+import com.db.awmd.challenge.repository.journal.Journal;
+import com.db.awmd.challenge.repository.replication.JournalShipper;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.engine.LockingTransferEngine;
+
+/**
+ * Runs the primary in this JVM and a replica in a forked one, and checks the
+ * replica ends up with exactly the primary's balances.
+ */
+public class ReplicationTest {
+
+	private static final int ACCOUNTS = 2_000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final AccountLocks accountLocks = new AccountLocks(64);
+
+	@Test(timeout = 120_000)
+	public void replicaInAnotherJvm_convergesToPrimary() throws Exception {
+		AccountsRepositoryJournaled accountsRepository = new AccountsRepositoryJournaled(
+				new Journal(folder.getRoot().toPath(), 64 * 1024, FsyncPolicy.NONE, 0), accountLocks);
+		AccountsService accountsService = AccountsService.builder(accountsRepository, (account, description) -> { },
+				new LockingTransferEngine(accountsRepository, accountLocks)).build();
+		JournalShipper shipper = new JournalShipper(accountsRepository, 0);
+
+		for (int i = 0; i < ACCOUNTS / 2; i++) {
+			accountsService.createAccount(new Account("Id-" + i, new BigDecimal("1000")));
+		}
+
+		Process replica = new ProcessBuilder(
+				System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+				"-cp", System.getProperty("java.class.path"),
+				ReplicaProcess.class.getName(), String.valueOf(shipper.getPort()))
+				.redirectError(ProcessBuilder.Redirect.INHERIT)
+				.start();
+		try {
+			PrintWriter commands = new PrintWriter(replica.getOutputStream(), true);
+			BufferedReader output = new BufferedReader(new InputStreamReader(replica.getInputStream()));
+
+			for (int i = ACCOUNTS / 2; i < ACCOUNTS; i++) {
+				accountsService.createAccount(new Account("Id-" + i, new BigDecimal("1000")));
+			}
+
+			ExecutorService executor = Executors.newFixedThreadPool(4);
+			Future<?>[] workers = new Future<?>[4];
+			for (int w = 0; w < workers.length; w++) {
+				workers[w] = executor.submit(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					for (int i = 0; i < 20_000; i++) {
+						try {
+							accountsService.transferValuesAccount(transfer("Id-" + random.nextInt(ACCOUNTS),
+									"Id-" + random.nextInt(ACCOUNTS), new BigDecimal(random.nextInt(1, 100) + ".25")));
+						} catch (NoFundException ex) {
+							// expected once an account is drained
+						}
+					}
+				});
+			}
+			accountsRepository.snapshot();
+			for (Future<?> worker : workers) {
+				worker.get(60, TimeUnit.SECONDS);
+			}
+			executor.shutdown();
+
+			String expected = ReplicaProcess.digest(accountsRepository);
+			String actual = null;
+			long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+			while (System.currentTimeMillis() < deadline) {
+				actual = dump(commands, output);
+				if (expected.equals(actual)) {
+					break;
+				}
+				Thread.sleep(100);
+			}
+
+			assertThat(actual).isEqualTo(expected);
+			assertThat(expected).startsWith(ACCOUNTS + " " + (1000L * ACCOUNTS) + " ");
+		} finally {
+			replica.destroy();
+			replica.waitFor(10, TimeUnit.SECONDS);
+			shipper.shutdown();
+			accountsRepository.close();
+		}
+	}
+
+	private static String dump(PrintWriter commands, BufferedReader output) throws Exception {
+		commands.println("dump");
+		String line;
+		while ((line = output.readLine()) != null) {
+			if (line.startsWith(ReplicaProcess.DIGEST_PREFIX)) {
+				return line.substring(ReplicaProcess.DIGEST_PREFIX.length());
+			}
+		}
+		fail("The replica process exited");
+		return null;
+	}
+
+	private static TransferMoney transfer(String accountFrom, String accountTo, BigDecimal value) {
+		return TransferMoney
+				.builder()
+				.accountFrom(accountFrom)
+				.accountTo(accountTo)
+				.value(value)
+				.build();
+	}
+}
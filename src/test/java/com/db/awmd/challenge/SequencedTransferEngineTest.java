@@ -0,0 +1,249 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.MultiLegTransfer;
+import com.db.awmd.challenge.domain.TransferLeg;
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.domain.TransferResult;
+import com.db.awmd.challenge.domain.TransferStatus;
+import com.db.awmd.challenge.exception.NoFundException;
+import com.db.awmd.challenge.repository.AccountLocks;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.AccountsRepositoryJournaled;
+import com.db.awmd.challenge.repository.TransferJournal;
+import com.db.awmd.challenge.repository.journal.FsyncPolicy;
+import com.db.awmd.challenge.repository.journal.Journal;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.engine.SequencedTransferEngine;
+
+public class SequencedTransferEngineTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SequencedTransferEngine transferEngine;
+
+	@After
+	public void shutdownEngine() {
+		if (transferEngine != null) {
+			transferEngine.shutdown();
+		}
+	}
+
+	@Test(timeout = 30_000)
+	public void bestEffortBatch_appliesWhatItCan() {
+		AccountsService accountsService = accountsService(new AccountsRepositoryInMemory());
+
+		List<TransferResult> results = accountsService.transferValuesAccounts(Arrays.asList(
+				transfer("Id-1", "Id-2", "60"),
+				transfer("Id-1", "Id-2", "60"),
+				transfer("Id-2", "Id-1", "10")), BatchMode.BEST_EFFORT);
+
+		assertThat(results).extracting("status")
+				.containsExactly(TransferStatus.APPLIED, TransferStatus.REJECTED, TransferStatus.APPLIED);
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("50");
+		assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("50");
+	}
+
+	@Test(timeout = 30_000)
+	public void allOrNothingBatch_appliesEveryTransferOrNone() {
+		AccountsService accountsService = accountsService(new AccountsRepositoryInMemory());
+
+		List<TransferResult> applied = accountsService.transferValuesAccounts(Arrays.asList(
+				transfer("Id-1", "Id-2", "60"),
+				transfer("Id-2", "Id-1", "10")), BatchMode.ALL_OR_NOTHING);
+		List<TransferResult> aborted = accountsService.transferValuesAccounts(Arrays.asList(
+				transfer("Id-2", "Id-1", "10"),
+				transfer("Id-1", "Id-2", "100")), BatchMode.ALL_OR_NOTHING);
+
+		assertThat(applied).extracting("status").containsExactly(TransferStatus.APPLIED, TransferStatus.APPLIED);
+		assertThat(aborted).extracting("status").containsExactly(TransferStatus.ABORTED, TransferStatus.REJECTED);
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("50");
+		assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("50");
+	}
+
+	@Test(timeout = 30_000)
+	public void multiLeg_checksTheTotalOnceAndNotifiesTheSourceOnce() {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		List<String> notifications = new CopyOnWriteArrayList<>();
+		this.transferEngine = new SequencedTransferEngine(accountsRepository,
+				(account, description) -> notifications.add(account.getAccountId() + ": " + description), 64);
+		AccountsService accountsService = AccountsService.builder(accountsRepository, (account, description) -> { },
+				transferEngine).build();
+		accountsService.createAccount(new Account("Id-1", new BigDecimal("100")));
+		accountsService.createAccount(new Account("Id-2", BigDecimal.ZERO));
+		accountsService.createAccount(new Account("Id-3", BigDecimal.ZERO));
+
+		accountsService.transferValuesAccountMultiLeg(MultiLegTransfer.builder()
+				.accountFrom("Id-1")
+				.legs(Arrays.asList(
+						TransferLeg.builder().accountTo("Id-2").value(new BigDecimal("60")).build(),
+						TransferLeg.builder().accountTo("Id-3").value(new BigDecimal("30")).build()))
+				.build());
+		try {
+			accountsService.transferValuesAccountMultiLeg(MultiLegTransfer.builder()
+					.accountFrom("Id-1")
+					.legs(Arrays.asList(
+							TransferLeg.builder().accountTo("Id-2").value(new BigDecimal("5")).build(),
+							TransferLeg.builder().accountTo("Id-3").value(new BigDecimal("6")).build()))
+					.build());
+			fail("NoFundException should be thrown");
+		} catch (NoFundException ex) {
+			assertThat(ex.getMessage()).isEqualTo(new NoFundException("Id-1").getMessage());
+		}
+
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("10");
+		assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("60");
+		assertThat(accountsService.getAccount("Id-3").getBalance()).isEqualByComparingTo("30");
+		assertThat(notifications).containsExactly(
+				"Id-2: You received 60 in your account",
+				"Id-3: You received 30 in your account",
+				"Id-1: You transfered 90 from your account to 2 accounts");
+	}
+
+	@Test(timeout = 30_000)
+	public void transferAsync_completesOnceApplied() throws Exception {
+		AccountsService accountsService = accountsService(new AccountsRepositoryInMemory());
+
+		CompletableFuture<Void> applied = accountsService.transferValuesAccountAsync(transfer("Id-1", "Id-2", "30"));
+		CompletableFuture<Void> rejected = accountsService.transferValuesAccountAsync(transfer("Id-1", "Id-2", "100"));
+
+		applied.get();
+		try {
+			rejected.get();
+			fail("NoFundsException should be thrown");
+		} catch (ExecutionException ex) {
+			assertThat(ex.getCause()).isInstanceOf(NoFundException.class);
+		}
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("70");
+		assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("30");
+	}
+
+	@Test(timeout = 30_000)
+	public void journaledTransfers_areReplayed() throws Exception {
+		AccountLocks accountLocks = new AccountLocks(16);
+		AccountsRepositoryJournaled accountsRepository = openRepository(accountLocks);
+		AccountsService accountsService = accountsService(accountsRepository);
+
+		for (int i = 0; i < 10; i++) {
+			accountsService.transferValuesAccount(transfer("Id-1", "Id-2", "2.5"));
+		}
+		accountsService.transferValuesAccounts(Arrays.asList(
+				transfer("Id-2", "Id-1", "5"),
+				transfer("Id-1", "Id-2", "1000")), BatchMode.BEST_EFFORT);
+		transferEngine.shutdown();
+		accountsRepository.close();
+
+		AccountsRepositoryJournaled reopened = openRepository(accountLocks);
+
+		assertThat(reopened.getAccount("Id-1").getBalance()).isEqualByComparingTo("80");
+		assertThat(reopened.getAccount("Id-2").getBalance()).isEqualByComparingTo("20");
+		reopened.close();
+	}
+
+	@Test(timeout = 30_000)
+	public void snapshotsTakenWhileTransfersRun_conserveTheTotal() throws Exception {
+		AccountLocks accountLocks = new AccountLocks(16);
+		AccountsRepositoryJournaled accountsRepository = openRepository(accountLocks);
+		AccountsService accountsService = accountsService(accountsRepository);
+
+		Thread transfers = new Thread(() -> {
+			for (int i = 0; i < 2000; i++) {
+				accountsService.transferValuesAccount(i % 2 == 0
+						? transfer("Id-1", "Id-2", "1")
+						: transfer("Id-2", "Id-1", "1"));
+			}
+		});
+		transfers.start();
+		for (int i = 0; i < 5; i++) {
+			accountsRepository.snapshot();
+		}
+		transfers.join();
+		accountsRepository.snapshot();
+		transferEngine.shutdown();
+		accountsRepository.close();
+
+		AccountsRepositoryJournaled reopened = openRepository(accountLocks);
+
+		assertThat(reopened.getAccount("Id-1").getBalance()).isEqualByComparingTo("100");
+		assertThat(reopened.getAccount("Id-2").getBalance()).isEqualByComparingTo("0");
+		reopened.close();
+	}
+
+	@Test(timeout = 30_000)
+	public void failedJournalAppend_stopsTheEngine() {
+		AtomicReference<RuntimeException> reported = new AtomicReference<>();
+		AccountsService accountsService = accountsService(new FailingJournalRepository(reported));
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				accountsService.transferValuesAccount(transfer("Id-1", "Id-2", "10"));
+				fail("Should have failed once the journal failed");
+			} catch (IllegalStateException ex) {
+				assertThat(ex.getCause()).hasMessage("disk full");
+			}
+		}
+
+		assertThat(reported.get()).hasMessage("disk full");
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("90");
+	}
+
+	private AccountsService accountsService(AccountsRepository accountsRepository) {
+		this.transferEngine = new SequencedTransferEngine(accountsRepository, (account, description) -> { }, 64);
+		AccountsService accountsService = AccountsService.builder(accountsRepository, (account, description) -> { },
+				transferEngine).build();
+		if (accountsRepository.getAccount("Id-1") == null) {
+			accountsService.createAccount(new Account("Id-1", new BigDecimal("100")));
+			accountsService.createAccount(new Account("Id-2", BigDecimal.ZERO));
+		}
+		return accountsService;
+	}
+
+	private AccountsRepositoryJournaled openRepository(AccountLocks accountLocks) throws Exception {
+		return new AccountsRepositoryJournaled(new Journal(folder.getRoot().toPath(), 4096, FsyncPolicy.NONE, 0),
+				accountLocks);
+	}
+
+	private static TransferMoney transfer(String accountFrom, String accountTo, String value) {
+		return TransferMoney.builder().accountFrom(accountFrom).accountTo(accountTo).value(new BigDecimal(value))
+				.build();
+	}
+
+	private static final class FailingJournalRepository extends AccountsRepositoryInMemory implements TransferJournal {
+
+		private final AtomicReference<RuntimeException> reported;
+
+		private FailingJournalRepository(AtomicReference<RuntimeException> reported) {
+			this.reported = reported;
+		}
+
+		@Override
+		public void appendTransfer(String accountFrom, String accountTo, BigDecimal value, BigDecimal fromBalance,
+				BigDecimal toBalance) {
+			throw new IllegalStateException("disk full");
+		}
+
+		@Override
+		public void appendFailed(RuntimeException cause) {
+			reported.set(cause);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.StripedAccount;
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.exception.BalanceOverflowException;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.AccountStriping;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.engine.LockingTransferEngine;
+
+public class StripedAccountTest {
+
+	private static final BigDecimal NEARLY_FULL = new BigDecimal("92233720368547758.00");
+
+	@Test
+	public void creditThatWouldOverflowACell_isRejected() {
+		StripedAccount account = new StripedAccount("Id-hot", NEARLY_FULL, 1);
+
+		try {
+			account.creditUnits(100);
+			fail("BalanceOverflowException should be thrown");
+		} catch (BalanceOverflowException ex) {
+			assertThat(ex.getMessage()).contains("Id-hot");
+		}
+		assertThat(account.getBalance()).isEqualByComparingTo(NEARLY_FULL);
+	}
+
+	@Test
+	public void transferThatWouldOverflowAHotAccount_isRejectedBeforeTheDebit() {
+		AccountsService accountsService = accountsService();
+
+		try {
+			accountsService.transferValuesAccount(transfer("Id-1", "Id-hot", "1"));
+			fail("BalanceOverflowException should be thrown");
+		} catch (BalanceOverflowException ex) {
+			assertThat(ex.getMessage()).contains("Id-hot");
+		}
+
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("10");
+		assertThat(accountsService.getAccount("Id-hot").getBalance()).isEqualByComparingTo(NEARLY_FULL);
+	}
+
+	@Test
+	public void batchThatWouldOverflowAHotAccount_changesNothing() {
+		AccountsService accountsService = accountsService();
+
+		try {
+			accountsService.transferValuesAccounts(Arrays.asList(
+					transfer("Id-1", "Id-hot", "0.05"),
+					transfer("Id-1", "Id-hot", "0.05")), BatchMode.ALL_OR_NOTHING);
+			fail("BalanceOverflowException should be thrown");
+		} catch (BalanceOverflowException ex) {
+			assertThat(ex.getMessage()).contains("Id-hot");
+		}
+
+		assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("10");
+		assertThat(accountsService.getAccount("Id-hot").getBalance()).isEqualByComparingTo(NEARLY_FULL);
+	}
+
+	private static AccountsService accountsService() {
+		AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+		AccountsService accountsService = AccountsService.builder(accountsRepository, (account, description) -> { },
+				new LockingTransferEngine(accountsRepository))
+				.accountStriping(new AccountStriping(new HashSet<>(Collections.singletonList("Id-hot")), 4))
+				.build();
+		accountsService.createAccount(new Account("Id-hot", NEARLY_FULL));
+		accountsService.createAccount(new Account("Id-1", BigDecimal.TEN));
+		return accountsService;
+	}
+
+	private static TransferMoney transfer(String accountFrom, String accountTo, String value) {
+		return TransferMoney.builder().accountFrom(accountFrom).accountTo(accountTo).value(new BigDecimal(value))
+				.build();
+	}
+}
@@ -0,0 +1,82 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.db.awmd.challenge.exception.TooManyRequestsException;
+import com.db.awmd.challenge.service.limit.AdaptiveConcurrencyLimit;
+import com.db.awmd.challenge.service.limit.TransferAdmission;
+
+public class TransferAdmissionTest {
+
+	@Test
+	public void accountBeyondItsBurst_isRejected() {
+		TransferAdmission transferAdmission = new TransferAdmission(true, 100, 8, 2000, 2.0, 1, 2);
+
+		transferAdmission.acquire("Id-1").release();
+		transferAdmission.acquire("Id-1").release();
+
+		try {
+			transferAdmission.acquire("Id-1");
+			fail("Should have rejected a third transfer within the same second");
+		} catch (TooManyRequestsException ex) {
+			assertThat(ex.getMessage()).contains("Id-1");
+		}
+		transferAdmission.acquire("Id-2").release();
+	}
+
+	@Test
+	public void transfersBeyondTheConcurrencyLimit_areRejected() {
+		TransferAdmission transferAdmission = new TransferAdmission(true, 8, 8, 8, 2.0, 0, 0);
+		List<TransferAdmission.Permit> permits = new ArrayList<>();
+
+		for (int i = 0; i < 8; i++) {
+			permits.add(transferAdmission.acquire("Id-" + i));
+		}
+
+		try {
+			transferAdmission.acquire("Id-8");
+			fail("Should have rejected a ninth transfer in flight");
+		} catch (TooManyRequestsException ex) {
+			assertThat(ex.getMessage()).contains("in flight");
+		}
+		permits.remove(0).release();
+		transferAdmission.acquire("Id-8").release();
+	}
+
+	@Test
+	public void slowTransfers_shrinkTheLimit() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(100, 10, 1000, 2.0, 0);
+
+		assertThat(limit.tryAcquire()).isTrue();
+		limit.release(TimeUnit.MILLISECONDS.toNanos(1));
+		for (int i = 0; i < 1000; i++) {
+			assertThat(limit.tryAcquire()).isTrue();
+			limit.release(TimeUnit.MILLISECONDS.toNanos(10));
+		}
+
+		assertThat(limit.getLimit()).isLessThan(100).isGreaterThanOrEqualTo(10);
+		assertThat(limit.getInFlight()).isZero();
+	}
+
+	@Test
+	public void samples_areOnlyFoldedIntoTheLimitOncePerInterval() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(100, 10, 1000, 2.0,
+				TimeUnit.HOURS.toNanos(1));
+
+		assertThat(limit.tryAcquire()).isTrue();
+		limit.release(TimeUnit.MILLISECONDS.toNanos(1));
+		for (int i = 0; i < 1000; i++) {
+			assertThat(limit.tryAcquire()).isTrue();
+			limit.release(TimeUnit.MILLISECONDS.toNanos(10));
+		}
+
+		assertThat(limit.getLimit()).isEqualTo(100);
+	}
+}
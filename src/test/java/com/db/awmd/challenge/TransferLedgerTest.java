@@ -0,0 +1,116 @@
+package com.db.awmd.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import com.db.awmd.challenge.domain.TransferMoney;
+import com.db.awmd.challenge.domain.TransferRecord;
+import com.db.awmd.challenge.service.ledger.TransferLedger;
+
+public class TransferLedgerTest {
+
+	private static final int BATCHES = 3;
+
+	private static final int TRANSFERS_PER_BATCH = 6;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private TransferLedger transferLedger;
+
+	private final List<List<String>> valuesPerBatch = new ArrayList<>();
+
+	private final List<Instant> batchStarts = new ArrayList<>();
+
+	/**
+	 * Four entries per segment and one segment in memory, so all but the last
+	 * segment of the 18 transfers are spilled. Every third transfer does not
+	 * involve Id-1.
+	 */
+	@Before
+	public void recordTransfers() throws Exception {
+		this.transferLedger = new TransferLedger(folder.getRoot().toPath(), 4, 1);
+		transferLedger.start();
+
+		int value = 1;
+		for (int batch = 0; batch < BATCHES; batch++) {
+			Thread.sleep(5);
+			batchStarts.add(Instant.ofEpochMilli(System.currentTimeMillis()));
+			List<String> values = new ArrayList<>();
+			for (int i = 0; i < TRANSFERS_PER_BATCH; i++, value++) {
+				if (value % 3 == 0) {
+					transferLedger.record(transfer("Id-2", "Id-3", value));
+				} else {
+					transferLedger.record(value % 2 == 0
+							? transfer("Id-1", "Id-2", value)
+							: transfer("Id-3", "Id-1", value));
+					values.add(value + ".50");
+				}
+			}
+			valuesPerBatch.add(values);
+			Thread.sleep(5);
+		}
+		transferLedger.flush();
+	}
+
+	@After
+	public void stopLedger() throws Exception {
+		transferLedger.stop();
+	}
+
+	@Test
+	public void history_readsSpilledSegmentsInOrder() {
+		List<TransferRecord> records = transferLedger.history("Id-1", null, null, 100);
+
+		assertThat(spilledSegments()).isGreaterThan(0);
+		assertThat(values(records)).containsExactlyElementsOf(
+				valuesPerBatch.stream().flatMap(List::stream).collect(Collectors.toList()));
+		assertThat(records).extracting("sequence").isSorted();
+		assertThat(records.get(0).getAccountFrom()).isEqualTo("Id-3");
+		assertThat(records.get(0).getAccountTo()).isEqualTo("Id-1");
+	}
+
+	@Test
+	public void history_withBounds_onlyReturnsTheTransfersInBetween() {
+		List<TransferRecord> records = transferLedger.history("Id-1", batchStarts.get(1), batchStarts.get(2), 100);
+
+		assertThat(values(records)).containsExactlyElementsOf(valuesPerBatch.get(1));
+	}
+
+	@Test
+	public void history_withALimit_returnsTheOldestFirst() {
+		List<TransferRecord> records = transferLedger.history("Id-1", batchStarts.get(1), null, 3);
+
+		assertThat(values(records)).containsExactlyElementsOf(valuesPerBatch.get(1).subList(0, 3));
+	}
+
+	private long spilledSegments() {
+		for (Metric<?> metric : transferLedger.metrics()) {
+			if (metric.getName().equals("ledger.spilled.segments")) {
+				return metric.getValue().longValue();
+			}
+		}
+		return 0;
+	}
+
+	private static List<String> values(List<TransferRecord> records) {
+		return records.stream().map(record -> record.getValue().toPlainString()).collect(Collectors.toList());
+	}
+
+	private static TransferMoney transfer(String accountFrom, String accountTo, int value) {
+		return TransferMoney.builder().accountFrom(accountFrom).accountTo(accountTo)
+				.value(new BigDecimal(value + ".50")).build();
+	}
+}